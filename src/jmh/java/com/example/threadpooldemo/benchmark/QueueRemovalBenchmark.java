@@ -0,0 +1,62 @@
+package com.example.threadpooldemo.benchmark;
+
+import com.example.threadpooldemo.config.IndexedTaskQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of cancelling a queued task: removing a random element from a full FIFO work
+ * queue and queueing it again at the back, as {@code ThreadPoolExecutor.remove} and a
+ * new submission would. {@code linked} is {@link LinkedBlockingQueue}, which scans for
+ * the element; {@code indexed} is {@link IndexedTaskQueue}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueueRemovalBenchmark {
+
+    @Param({"linked", "indexed"})
+    public String implementation;
+
+    @Param({"100", "10000"})
+    public int size;
+
+    private BlockingQueue<Runnable> queue;
+    private Runnable[] tasks;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        queue = "indexed".equals(implementation) ? new IndexedTaskQueue(size) : new LinkedBlockingQueue<>(size);
+        tasks = new Runnable[size];
+        for (int i = 0; i < size; i++) {
+            tasks[i] = () -> { };
+            queue.offer(tasks[i]);
+        }
+    }
+
+    @Benchmark
+    public boolean removeAndRequeue() {
+        Runnable task = tasks[ThreadLocalRandom.current().nextInt(size)];
+        boolean removed = queue.remove(task);
+        queue.offer(task);
+        return removed;
+    }
+}
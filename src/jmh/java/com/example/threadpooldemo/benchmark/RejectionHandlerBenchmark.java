@@ -0,0 +1,113 @@
+package com.example.threadpooldemo.benchmark;
+
+import com.example.threadpooldemo.config.IndexedTaskQueue;
+import com.example.threadpooldemo.config.PrioritizedTask;
+import com.example.threadpooldemo.config.SchedulingPolicy;
+import com.example.threadpooldemo.config.SchedulingQueue;
+import com.example.threadpooldemo.handler.LoggingRejectedExecutionHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link ThreadPoolExecutor#execute} on a saturated pool, where every call
+ * ends in {@link LoggingRejectedExecutionHandler} dropping a queued victim to make room.
+ *
+ * The single worker is parked for the whole trial and the queue starts full, so the
+ * measured path is the failed offer, the handler and the re-offer. Logging is switched
+ * off in the fork; pass {@code -jvmArgsAppend -Dlogback.configurationFile=<config>} with
+ * a WARN-level config to include its cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+@Threads(4)
+public class RejectionHandlerBenchmark {
+
+    @Param({"FIFO", "PRIORITY", "SJF"})
+    public SchedulingPolicy policy;
+
+    @Param({"10", "1000"})
+    public int queueCapacity;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private ThreadPoolExecutor executor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BlockingQueue<Runnable> queue = policy == SchedulingPolicy.FIFO
+                ? new IndexedTaskQueue(queueCapacity)
+                : new SchedulingQueue(queueCapacity, policy, 2000);
+        executor = new ThreadPoolExecutor(1, 1, 20, TimeUnit.SECONDS, queue, new LoggingRejectedExecutionHandler());
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        while (queue.remainingCapacity() > 0) {
+            queue.offer(job());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public void executeWhenSaturated() {
+        executor.execute(job());
+    }
+
+    private static Job job() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return new Job(random.nextInt(10), 1 + random.nextInt(10));
+    }
+
+    private static final class Job implements PrioritizedTask {
+        private final int priority;
+        private final int complexity;
+
+        Job(int priority, int complexity) {
+            this.priority = priority;
+            this.complexity = complexity;
+        }
+
+        @Override
+        public int getPriority() {
+            return priority;
+        }
+
+        @Override
+        public int getComplexity() {
+            return complexity;
+        }
+
+        @Override
+        public void run() {
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.threadpooldemo.benchmark;
+
+import com.example.threadpooldemo.ThreadpoolExecutorSpringbootDemoApplication;
+import com.example.threadpooldemo.dto.TaskStatusDto;
+import com.example.threadpooldemo.model.TaskStatus;
+import com.example.threadpooldemo.repository.PersistentTaskRepository;
+import com.example.threadpooldemo.repository.TaskRepository;
+import com.example.threadpooldemo.repository.TaskRepositoryPort;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the in-memory {@link TaskRepository} with the JPA-backed
+ * {@link PersistentTaskRepository} (H2 in memory) for a store pre-filled with
+ * {@code size} active tasks.
+ *
+ * Status writes walk the ids round-robin and alternate between RETRYING and RUNNING,
+ * so every call is a legal transition rather than a rejected one. New rows from
+ * {@link #save()} are terminal; the in-memory store runs with a capacity limit of
+ * twice the size, so it measures save plus eviction the way a retention-enabled
+ * deployment would and its heap stays flat.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+public class RepositoryBenchmark {
+
+    private static final TaskStatus RUNNING = TaskStatus.running(1, 3);
+    private static final TaskStatus RETRYING = TaskStatus.retrying(1, 3);
+
+    @Param({"memory", "jpa"})
+    public String implementation;
+
+    @Param({"1000", "10000"})
+    public int size;
+
+    private ConfigurableApplicationContext context;
+    private TaskRepositoryPort repository;
+    private String[] ids;
+    private final AtomicLong cursor = new AtomicLong();
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if ("jpa".equals(implementation)) {
+            // command-line arguments, so they win over application.properties
+            context = new SpringApplicationBuilder(ThreadpoolExecutorSpringbootDemoApplication.class)
+                    .run("--spring.main.web-application-type=none",
+                            "--spring.main.banner-mode=off",
+                            "--logging.level.root=OFF",
+                            "--app.persistence.enabled=true",
+                            "--spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1",
+                            "--spring.jpa.hibernate.ddl-auto=create-drop");
+            repository = context.getBean(PersistentTaskRepository.class);
+        } else {
+            repository = new TaskRepository(0, size * 2, "");
+        }
+
+        ids = new String[size];
+        List<TaskStatusDto> rows = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ids[i] = "t" + i;
+            rows.add(new TaskStatusDto(ids[i], "bench.jpg", RETRYING, "bench-worker"));
+        }
+        repository.saveAll(rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public void save() {
+        repository.save(new TaskStatusDto("s" + sequence.incrementAndGet(), "bench.jpg", TaskStatus.COMPLETED, "bench-worker"));
+    }
+
+    @Benchmark
+    public boolean updateStatus() {
+        long n = cursor.getAndIncrement();
+        boolean toRunning = (n / size) % 2 == 0;
+        return repository.updateStatus(ids[(int) (n % size)], toRunning ? RUNNING : RETRYING, "bench-worker");
+    }
+
+    @Benchmark
+    public boolean compareAndUpdateStatus() {
+        long n = cursor.getAndIncrement();
+        boolean toRunning = (n / size) % 2 == 0;
+        return repository.compareAndUpdateStatus(ids[(int) (n % size)],
+                toRunning ? RETRYING : RUNNING, toRunning ? RUNNING : RETRYING, "bench-worker");
+    }
+
+    @Benchmark
+    public void findAll(Blackhole bh) {
+        for (TaskStatusDto dto : repository.findAll()) {
+            bh.consume(dto);
+        }
+    }
+}
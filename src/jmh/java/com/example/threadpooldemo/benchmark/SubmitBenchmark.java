@@ -0,0 +1,93 @@
+package com.example.threadpooldemo.benchmark;
+
+import com.example.threadpooldemo.config.GracefulThreadPoolExecutor;
+import com.example.threadpooldemo.config.IndexedTaskQueue;
+import com.example.threadpooldemo.config.RetryConfig;
+import com.example.threadpooldemo.config.SchedulingPolicy;
+import com.example.threadpooldemo.config.SchedulingQueue;
+import com.example.threadpooldemo.model.TaskRequest;
+import com.example.threadpooldemo.repository.TaskRepository;
+import com.example.threadpooldemo.service.ProcessingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link ProcessingService#submit} with several producer threads.
+ *
+ * Tasks have complexity 0 and a single attempt, so workers fail them immediately and
+ * the numbers are dominated by the submission path: id generation, the QUEUED write,
+ * handle bookkeeping and the hand-off through the work queue. The pool pushes back with
+ * CallerRunsPolicy instead of dropping, so no handle is left behind, and the in-memory
+ * repository runs with a capacity limit to keep the heap flat.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+@Threads(4)
+public class SubmitBenchmark {
+
+    @Param({"FIFO", "PRIORITY"})
+    public SchedulingPolicy policy;
+
+    @Param({"4"})
+    public int workers;
+
+    private ProcessingService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BlockingQueue<Runnable> queue = policy == SchedulingPolicy.FIFO
+                ? new IndexedTaskQueue(1024)
+                : new SchedulingQueue(1024, policy, 2000);
+        GracefulThreadPoolExecutor executor = new GracefulThreadPoolExecutor(workers, workers, 20, TimeUnit.SECONDS,
+                queue, Thread::new, new ThreadPoolExecutor.CallerRunsPolicy());
+        service = new ProcessingService(executor, new TaskRepository(0, 10_000, ""), new SingleAttempt());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.shutdownExecutor();
+    }
+
+    @Benchmark
+    public String submit() {
+        return service.submit(new TaskRequest("bench.jpg", 0, ThreadLocalRandom.current().nextInt(10)));
+    }
+
+    private static final class SingleAttempt extends RetryConfig {
+        @Override
+        public int getMaxRetryAttempts() {
+            return 1;
+        }
+
+        @Override
+        public long getRetryDelayMillis() {
+            return 0;
+        }
+
+        @Override
+        public long backoffDelayMillis(int failedAttempt) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.example.threadpooldemo.config;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded blocking work queue with an identity index from each queued task to its node
+ * in the ordering structure, so {@link #remove(Object)} finds a cancelled task without
+ * scanning. One lock guards everything; subclasses only decide the order, by linking
+ * and detaching nodes of type {@code N} while the lock is held.
+ *
+ * Queuing a task instance that is already queued moves it, it is never held twice.
+ */
+public abstract class AbstractTaskQueue<N> extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+    private final int capacity;
+
+    protected final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Map<Runnable, N> index = new IdentityHashMap<>();
+
+    protected AbstractTaskQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Adds a node for the task to the ordering structure and returns it.
+     */
+    protected abstract N link(Runnable task);
+
+    /**
+     * Removes the node from the ordering structure.
+     */
+    protected abstract void detach(N node);
+
+    /**
+     * Removes every node from the ordering structure.
+     */
+    protected abstract void detachAll();
+
+    /**
+     * The node that runs next, or null if there is none.
+     */
+    protected abstract N first();
+
+    protected abstract Runnable taskOf(N node);
+
+    /**
+     * The queued tasks in the order they would run.
+     */
+    protected abstract List<Runnable> snapshot();
+
+    @Override
+    public boolean offer(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        lock.lock();
+        try {
+            if (index.size() >= capacity) {
+                return false;
+            }
+            insert(task);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (index.size() >= capacity) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            insert(task);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(Runnable task) throws InterruptedException {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        lock.lockInterruptibly();
+        try {
+            while (index.size() >= capacity) {
+                notFull.await();
+            }
+            insert(task);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll() {
+        lock.lock();
+        try {
+            return index.isEmpty() ? null : unlink(first());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (index.isEmpty()) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return unlink(first());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (index.isEmpty()) {
+                notEmpty.await();
+            }
+            return unlink(first());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable peek() {
+        lock.lock();
+        try {
+            return index.isEmpty() ? null : taskOf(first());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the task via the index; identity, not equals(), decides which task is removed.
+     */
+    @Override
+    public boolean remove(Object o) {
+        lock.lock();
+        try {
+            N node = index.get(o);
+            if (node == null) {
+                return false;
+            }
+            unlink(node);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        lock.lock();
+        try {
+            return index.containsKey(o);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return index.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        lock.lock();
+        try {
+            return capacity - index.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            detachAll();
+            index.clear();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c, int maxElements) {
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        lock.lock();
+        try {
+            int n = 0;
+            while (n < maxElements && !index.isEmpty()) {
+                c.add(unlink(first()));
+                n++;
+            }
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Weakly consistent iterator over a snapshot in queue order. {@code remove()}
+     * removes the last returned task from the queue if it is still queued.
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+        List<Runnable> snapshot;
+        lock.lock();
+        try {
+            snapshot = snapshot();
+        } finally {
+            lock.unlock();
+        }
+        return new Iterator<Runnable>() {
+            private int next;
+            private Runnable last;
+
+            @Override
+            public boolean hasNext() {
+                return next < snapshot.size();
+            }
+
+            @Override
+            public Runnable next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                last = snapshot.get(next++);
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                AbstractTaskQueue.this.remove(last);
+                last = null;
+            }
+        };
+    }
+
+    /**
+     * Removes the node's task from the queue and returns it; the lock must be held.
+     */
+    protected Runnable unlink(N node) {
+        detach(node);
+        Runnable task = taskOf(node);
+        index.remove(task);
+        notFull.signal();
+        return task;
+    }
+
+    private void insert(Runnable task) {
+        N previous = index.remove(task);
+        if (previous != null) {
+            detach(previous);
+        }
+        index.put(task, link(task));
+        notEmpty.signal();
+    }
+}
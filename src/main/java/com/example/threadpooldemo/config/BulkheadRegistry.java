@@ -0,0 +1,134 @@
+package com.example.threadpooldemo.config;
+
+import com.example.threadpooldemo.handler.LoggingRejectedExecutionHandler.OverflowPolicy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Named executors ("bulkheads") defined under {@code threadpool.pools.<name>.*}, next to
+ * the shared task executor. Each pool has its own workers, queue and rejection handling,
+ * so a flood of one kind of work can only exhaust its own pool.
+ *
+ * A task goes to the pool named by its {@code workload} (the {@code X-Workload-Class}
+ * header), otherwise to the first pool, in configuration order, whose
+ * {@code minComplexity}/{@code maxComplexity} range contains its complexity, otherwise
+ * to the shared executor. Pools without a range are only reachable by name.
+ */
+public class BulkheadRegistry implements MeterBinder {
+
+    public static final String DEFAULT_POOL = "default";
+
+    private final GracefulThreadPoolExecutor defaultExecutor;
+    private final Map<String, Pool> pools;
+
+    public BulkheadRegistry(GracefulThreadPoolExecutor defaultExecutor, Map<String, Pool> pools) {
+        this.defaultExecutor = defaultExecutor;
+        this.pools = Collections.unmodifiableMap(new LinkedHashMap<>(pools));
+    }
+
+    /**
+     * Executor for a task of the given workload class and complexity. Throws
+     * {@link IllegalArgumentException} for a workload that names no pool.
+     */
+    public GracefulThreadPoolExecutor route(String workload, int complexity) {
+        if (workload != null && !workload.isBlank()) {
+            if (DEFAULT_POOL.equals(workload)) {
+                return defaultExecutor;
+            }
+            Pool pool = pools.get(workload);
+            if (pool == null) {
+                throw new IllegalArgumentException("Unknown workload class: " + workload);
+            }
+            return pool.getExecutor();
+        }
+        for (Pool pool : pools.values()) {
+            if (pool.getSettings().matches(complexity)) {
+                return pool.getExecutor();
+            }
+        }
+        return defaultExecutor;
+    }
+
+    /**
+     * Every executor by pool name, the shared one first as {@value #DEFAULT_POOL}.
+     */
+    public Map<String, GracefulThreadPoolExecutor> getExecutors() {
+        Map<String, GracefulThreadPoolExecutor> executors = new LinkedHashMap<>();
+        executors.put(DEFAULT_POOL, defaultExecutor);
+        pools.forEach((name, pool) -> executors.put(name, pool.getExecutor()));
+        return executors;
+    }
+
+    /**
+     * The shared executor is bound as a bean of its own.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Pool pool : pools.values()) {
+            pool.getExecutor().bindTo(registry);
+        }
+    }
+
+    /**
+     * Shuts the named pools down; the shared executor is shut down as its own bean.
+     */
+    public void shutdown() {
+        for (Pool pool : pools.values()) {
+            pool.getExecutor().shutdownGracefully();
+        }
+    }
+
+    public static final class Pool {
+        private final Settings settings;
+        private final GracefulThreadPoolExecutor executor;
+
+        public Pool(Settings settings, GracefulThreadPoolExecutor executor) {
+            this.settings = settings;
+            this.executor = executor;
+        }
+
+        public Settings getSettings() { return settings; }
+        public GracefulThreadPoolExecutor getExecutor() { return executor; }
+    }
+
+    /**
+     * Configuration of one pool, bound from {@code threadpool.pools.<name>}.
+     */
+    public static class Settings {
+        private int corePoolSize = 1;
+        private int maxPoolSize = 2;
+        private int keepAliveSeconds = 20;
+        private int queueCapacity = 10;
+        private OverflowPolicy policy = OverflowPolicy.REJECT;
+        private Integer minComplexity;
+        private Integer maxComplexity;
+
+        boolean matches(int complexity) {
+            if (minComplexity == null && maxComplexity == null) {
+                return false;
+            }
+            return (minComplexity == null || complexity >= minComplexity)
+                    && (maxComplexity == null || complexity <= maxComplexity);
+        }
+
+        public int getCorePoolSize() { return corePoolSize; }
+        public void setCorePoolSize(int corePoolSize) { this.corePoolSize = corePoolSize; }
+        public int getMaxPoolSize() { return maxPoolSize; }
+        public void setMaxPoolSize(int maxPoolSize) { this.maxPoolSize = maxPoolSize; }
+        public int getKeepAliveSeconds() { return keepAliveSeconds; }
+        public void setKeepAliveSeconds(int keepAliveSeconds) { this.keepAliveSeconds = keepAliveSeconds; }
+        public int getQueueCapacity() { return queueCapacity; }
+        public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+        public OverflowPolicy getPolicy() { return policy; }
+        public void setPolicy(OverflowPolicy policy) { this.policy = policy; }
+        public Integer getMinComplexity() { return minComplexity; }
+        public void setMinComplexity(Integer minComplexity) { this.minComplexity = minComplexity; }
+        public Integer getMaxComplexity() { return maxComplexity; }
+        public void setMaxComplexity(Integer maxComplexity) { this.maxComplexity = maxComplexity; }
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.threadpooldemo.config;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Work queue decorator that manages queue delay the way CoDel (RFC 8289) manages
+ * packet delay: it limits how long tasks wait, not how many are waiting.
+ *
+ * Every dequeued {@link TimestampedTask} has its sojourn time checked. As long as tasks
+ * wait less than {@code target}, or only exceed it briefly, nothing happens. Once
+ * sojourn times have stayed above {@code target} for a full {@code interval}, the queue
+ * enters the dropping state and sheds a task whenever the next drop is due, with drops
+ * getting closer together ({@code interval / sqrt(count)}) until a task waited less
+ * than {@code target} again. Shed {@link ExpirableTask}s are told so and never reach a
+ * worker; the worker moves on to the next task. As in the RFC, a dropping state that
+ * starts within {@code 16 * interval} of the previous one resumes at the drop rate that
+ * one ended with, so a persistent overload is not relearned from scratch.
+ *
+ * Everything but dequeuing is delegated, so the wrapped queue keeps its ordering,
+ * capacity and O(log n) removal.
+ */
+public class CoDelQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+    private final BlockingQueue<Runnable> delegate;
+    private final long targetNanos;
+    private final long intervalNanos;
+    private final LongAdder expired = new LongAdder();
+
+    // control state, guarded by this
+    private long firstAboveNanos;
+    private long dropNextNanos;
+    private int count;
+    private int lastCount;
+    private boolean dropping;
+
+    public CoDelQueue(BlockingQueue<Runnable> delegate, long targetMillis, long intervalMillis) {
+        if (targetMillis <= 0 || intervalMillis <= 0) {
+            throw new IllegalArgumentException("targetMillis and intervalMillis must be positive");
+        }
+        this.delegate = delegate;
+        this.targetNanos = TimeUnit.MILLISECONDS.toNanos(targetMillis);
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+    }
+
+    public BlockingQueue<Runnable> getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Number of tasks shed so far.
+     */
+    public long getExpiredCount() {
+        return expired.sum();
+    }
+
+    public synchronized boolean isDropping() {
+        return dropping;
+    }
+
+    synchronized int getDropCount() {
+        return count;
+    }
+
+    @Override
+    public Runnable poll() {
+        Runnable task;
+        while ((task = delegate.poll()) != null && shed(task)) {
+            // try the next one
+        }
+        return task;
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        Runnable task;
+        while ((task = delegate.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) != null && shed(task)) {
+            // the time spent shedding counts against the caller's timeout
+        }
+        return task;
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException {
+        Runnable task;
+        do {
+            task = delegate.take();
+        } while (shed(task));
+        return task;
+    }
+
+    /**
+     * Runs the control law for a task just taken off the queue and, if it is to be
+     * shed, notifies it. Returns whether the task was shed.
+     */
+    private boolean shed(Runnable task) {
+        if (!(task instanceof TimestampedTask)) {
+            return false;
+        }
+        long now = System.nanoTime();
+        long sojourn = now - ((TimestampedTask) task).getEnqueuedNanos();
+        if (!(task instanceof ExpirableTask) || !shouldDrop(sojourn, now)) {
+            return false;
+        }
+        expired.increment();
+        ((ExpirableTask) task).onExpired(sojourn);
+        return true;
+    }
+
+    private synchronized boolean shouldDrop(long sojournNanos, long now) {
+        boolean okToDrop = aboveTargetForInterval(sojournNanos, now);
+        if (dropping) {
+            if (!okToDrop) {
+                dropping = false;
+                return false;
+            }
+            if (now - dropNextNanos >= 0) {
+                count++;
+                dropNextNanos = controlLaw(dropNextNanos);
+                return true;
+            }
+            return false;
+        }
+        if (okToDrop) {
+            dropping = true;
+            // resume at the previous drop rate if the last dropping state ended recently
+            int delta = count - lastCount;
+            count = delta > 1 && now - dropNextNanos < 16 * intervalNanos ? delta : 1;
+            lastCount = count;
+            dropNextNanos = controlLaw(now);
+            return true;
+        }
+        return false;
+    }
+
+    private boolean aboveTargetForInterval(long sojournNanos, long now) {
+        if (sojournNanos < targetNanos) {
+            firstAboveNanos = 0;
+            return false;
+        }
+        if (firstAboveNanos == 0) {
+            firstAboveNanos = now + intervalNanos;
+            return false;
+        }
+        return now - firstAboveNanos >= 0;
+    }
+
+    private long controlLaw(long from) {
+        return from + (long) (intervalNanos / Math.sqrt(count));
+    }
+
+    @Override
+    public boolean offer(Runnable task) {
+        return delegate.offer(task);
+    }
+
+    @Override
+    public boolean offer(Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.offer(task, timeout, unit);
+    }
+
+    @Override
+    public void put(Runnable task) throws InterruptedException {
+        delegate.put(task);
+    }
+
+    @Override
+    public Runnable peek() {
+        return delegate.peek();
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return delegate.remove(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return delegate.contains(o);
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return delegate.remainingCapacity();
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c) {
+        return delegate.drainTo(c);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c, int maxElements) {
+        return delegate.drainTo(c, maxElements);
+    }
+
+    @Override
+    public Iterator<Runnable> iterator() {
+        return delegate.iterator();
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.threadpooldemo.config;
+
+/**
+ * Work item that must be told when the executor discards it without running it, so
+ * the owner can record the outcome and release what it holds for the task.
+ */
+public interface DroppableTask extends Runnable {
+
+    /**
+     * Called once, on the thread that dropped the task, after it left the queue.
+     */
+    void onDropped();
+}
@@ -0,0 +1,14 @@
+package com.example.threadpooldemo.config;
+
+/**
+ * Timestamped work item that {@link CoDelQueue} may shed at dequeue time because it
+ * waited too long, so its owner can record it instead of running it.
+ */
+public interface ExpirableTask extends TimestampedTask {
+
+    /**
+     * Called once, on the dequeuing worker, after the task was taken off the queue
+     * and will not run.
+     */
+    void onExpired(long sojournNanos);
+}
@@ -1,22 +1,188 @@
 package com.example.threadpooldemo.config;
 
+import com.example.threadpooldemo.model.TaskState;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Small subclass that exposes a graceful shutdown helper which will be
  * invoked by Spring's destroyMethod to await termination.
+ *
+ * It also instruments task execution. The beforeExecute/afterExecute hooks record
+ * queue wait (for {@link TimestampedTask}s) and execution time, the rejection handler
+ * is wrapped to count rejections, and the service reports retries and final task
+ * outcomes. Once bound to a {@link MeterRegistry} the latencies are published as
+ * timers with percentiles and histogram buckets; the counters are plain adders, so
+ * recording stays cheap and works unbound too. Every meter carries a {@code pool} tag
+ * so bulkhead pools can be told apart from the shared {@code default} pool.
  */
-public class GracefulThreadPoolExecutor extends ThreadPoolExecutor {
+public class GracefulThreadPoolExecutor extends ThreadPoolExecutor implements MeterBinder {
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99, 0.999};
+
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final LongAdder timedTaskCount = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final Map<TaskState, LongAdder> outcomes = new EnumMap<>(TaskState.class);
+    private final RejectionCounter rejections;
+    private final ThreadLocal<Long> startNanos = new ThreadLocal<>();
+
+    private volatile String poolName = "default";
+    private volatile Timer queueWaitTimer;
+    private volatile Timer executionTimer;
 
     public GracefulThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime,
                                       TimeUnit unit, BlockingQueue<Runnable> workQueue,
                                       ThreadFactory threadFactory,
                                       RejectedExecutionHandler handler) {
-        super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, handler);
+        this(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory,
+                new RejectionCounter(handler));
+    }
+
+    private GracefulThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime,
+                                       TimeUnit unit, BlockingQueue<Runnable> workQueue,
+                                       ThreadFactory threadFactory, RejectionCounter rejections) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, rejections);
+        this.rejections = rejections;
+        for (TaskState state : TaskState.values()) {
+            if (state.isTerminal()) {
+                outcomes.put(state, new LongAdder());
+            }
+        }
+    }
+
+    public String getPoolName() {
+        return poolName;
+    }
+
+    /**
+     * Name used in the {@code pool} tag; set before binding.
+     */
+    public void setPoolName(String poolName) {
+        this.poolName = poolName;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Tags tags = Tags.of("pool", poolName);
+        queueWaitTimer = latencyTimer("threadpool.task.queue.wait", "Time tasks spent queued before starting", tags, registry);
+        executionTimer = latencyTimer("threadpool.task.execution", "Time tasks spent running on a worker", tags, registry);
+        FunctionCounter.builder("threadpool.task.rejected", rejections.count, LongAdder::sum).tags(tags)
+                .description("Tasks handed to the rejection handler").register(registry);
+        FunctionCounter.builder("threadpool.task.retries", retries, LongAdder::sum).tags(tags)
+                .description("Failed attempts scheduled for another try").register(registry);
+        for (Map.Entry<TaskState, LongAdder> outcome : outcomes.entrySet()) {
+            FunctionCounter.builder("threadpool.task.outcome", outcome.getValue(), LongAdder::sum).tags(tags)
+                    .tag("state", outcome.getKey().name())
+                    .description("Tasks that reached a final state").register(registry);
+        }
+        Gauge.builder("threadpool.active", this, ThreadPoolExecutor::getActiveCount).tags(tags).register(registry);
+        Gauge.builder("threadpool.pool.size", this, ThreadPoolExecutor::getPoolSize).tags(tags).register(registry);
+        Gauge.builder("threadpool.pool.core", this, ThreadPoolExecutor::getCorePoolSize).tags(tags).register(registry);
+        Gauge.builder("threadpool.pool.max", this, ThreadPoolExecutor::getMaximumPoolSize).tags(tags).register(registry);
+        Gauge.builder("threadpool.queue.size", this, e -> e.getQueue().size()).tags(tags).register(registry);
+    }
+
+    private static Timer latencyTimer(String name, String description, Tags tags, MeterRegistry registry) {
+        return Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofMinutes(5))
+                .register(registry);
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+        long now = System.nanoTime();
+        if (r instanceof TimestampedTask) {
+            long wait = now - ((TimestampedTask) r).getEnqueuedNanos();
+            queueWaitNanos.add(wait);
+            timedTaskCount.increment();
+            Timer timer = queueWaitTimer;
+            if (timer != null) {
+                timer.record(wait, TimeUnit.NANOSECONDS);
+            }
+        }
+        startNanos.set(now);
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        super.afterExecute(r, t);
+        Long start = startNanos.get();
+        startNanos.remove();
+        Timer timer = executionTimer;
+        if (start != null && timer != null) {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Counts a failed attempt that was scheduled to run again.
+     */
+    public void recordRetry() {
+        retries.increment();
+    }
+
+    /**
+     * Counts a task that reached the given state; non-terminal states are ignored.
+     */
+    public void recordOutcome(TaskState state) {
+        LongAdder counter = state == null ? null : outcomes.get(state);
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    public long getRejectedCount() {
+        return rejections.count.sum();
+    }
+
+    /**
+     * The handler this executor was built with, behind the rejection counter that
+     * {@link #getRejectedExecutionHandler()} returns.
+     */
+    public RejectedExecutionHandler getOverflowHandler() {
+        return rejections.delegate;
+    }
+
+    public long getRetryCount() {
+        return retries.sum();
+    }
+
+    public long getOutcomeCount(TaskState state) {
+        LongAdder counter = outcomes.get(state);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * Total queue wait of all timestamped tasks started so far. Callers sample it
+     * together with {@link #getTimedTaskCount()} and work with the deltas.
+     */
+    public long getTotalQueueWaitNanos() {
+        return queueWaitNanos.sum();
+    }
+
+    public long getTimedTaskCount() {
+        return timedTaskCount.sum();
     }
 
     /**
@@ -39,4 +205,22 @@ public class GracefulThreadPoolExecutor extends ThreadPoolExecutor {
             shutdownNow();
         }
     }
+
+    /**
+     * Counts every rejection before passing it on to the configured handler.
+     */
+    private static final class RejectionCounter implements RejectedExecutionHandler {
+        private final RejectedExecutionHandler delegate;
+        private final LongAdder count = new LongAdder();
+
+        RejectionCounter(RejectedExecutionHandler delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            count.increment();
+            delegate.rejectedExecution(r, executor);
+        }
+    }
 }
@@ -0,0 +1,80 @@
+package com.example.threadpooldemo.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Bounded FIFO work queue with constant-time removal of any queued task.
+ *
+ * Tasks are held in a doubly linked list of nodes, and an identity index maps each
+ * queued task to its node. {@link #remove(Object)}, which
+ * {@link java.util.concurrent.ThreadPoolExecutor#remove} uses when a queued task is
+ * cancelled, therefore unlinks the task in O(1) instead of scanning the queue like
+ * {@link LinkedBlockingQueue} does, and its slot counts against the capacity again
+ * right away.
+ */
+public class IndexedTaskQueue extends AbstractTaskQueue<IndexedTaskQueue.Node> {
+
+    // sentinel: head.next is the oldest task, head.prev the newest
+    private final Node head = new Node(null);
+
+    public IndexedTaskQueue(int capacity) {
+        super(capacity);
+        head.next = head;
+        head.prev = head;
+    }
+
+    @Override
+    protected Node link(Runnable task) {
+        Node node = new Node(task);
+        node.prev = head.prev;
+        node.next = head;
+        head.prev.next = node;
+        head.prev = node;
+        return node;
+    }
+
+    @Override
+    protected void detach(Node node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+    }
+
+    @Override
+    protected void detachAll() {
+        head.next = head;
+        head.prev = head;
+    }
+
+    @Override
+    protected Node first() {
+        return head.next == head ? null : head.next;
+    }
+
+    @Override
+    protected Runnable taskOf(Node node) {
+        return node.task;
+    }
+
+    @Override
+    protected List<Runnable> snapshot() {
+        List<Runnable> snapshot = new ArrayList<>();
+        for (Node node = head.next; node != head; node = node.next) {
+            snapshot.add(node.task);
+        }
+        return snapshot;
+    }
+
+    static final class Node {
+        private final Runnable task;
+        private Node prev;
+        private Node next;
+
+        Node(Runnable task) {
+            this.task = task;
+        }
+    }
+}
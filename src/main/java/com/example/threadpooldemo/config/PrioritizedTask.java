@@ -0,0 +1,13 @@
+package com.example.threadpooldemo.config;
+
+/**
+ * Work item that exposes the scheduling hints of its request, so a
+ * {@link SchedulingQueue} can order it according to the configured {@link SchedulingPolicy}.
+ * Runnables that do not implement it are ranked as neutral work.
+ */
+public interface PrioritizedTask extends Runnable {
+
+    int getPriority();
+
+    int getComplexity();
+}
@@ -0,0 +1,33 @@
+package com.example.threadpooldemo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Replay of tasks left unfinished by a previous run. With a persistent repository the
+ * rows of QUEUED, RUNNING and RETRYING tasks survive a crash; on startup they are
+ * enqueued again, at most {@code batchSize} every {@code intervalMillis}.
+ */
+@Configuration
+public class RecoveryConfig {
+    @Value("${app.recovery.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.recovery.batchSize:50}")
+    private int batchSize;
+
+    @Value("${app.recovery.intervalMillis:1000}")
+    private long intervalMillis;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+}
@@ -3,6 +3,8 @@ package com.example.threadpooldemo.config;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.concurrent.ThreadLocalRandom;
+
 @Configuration
 public class RetryConfig {
     @Value("${threadpool.retry.maxAttempts:3}")
@@ -11,6 +13,19 @@ public class RetryConfig {
     @Value("${threadpool.retry.delayMillis:1000}")
     private long retryDelayMillis;
 
+    @Value("${threadpool.retry.backoffMultiplier:2.0}")
+    private double backoffMultiplier;
+
+    @Value("${threadpool.retry.maxDelayMillis:30000}")
+    private long maxRetryDelayMillis;
+
+    /**
+     * Fraction of the computed delay that is randomized in both directions, so tasks
+     * that failed together do not all come back at the same instant.
+     */
+    @Value("${threadpool.retry.jitter:0.2}")
+    private double jitter;
+
     public int getMaxRetryAttempts() {
         return maxRetryAttempts;
     }
@@ -18,4 +33,37 @@ public class RetryConfig {
     public long getRetryDelayMillis() {
         return retryDelayMillis;
     }
-}
\ No newline at end of file
+
+    public double getBackoffMultiplier() {
+        return backoffMultiplier;
+    }
+
+    public long getMaxRetryDelayMillis() {
+        return maxRetryDelayMillis;
+    }
+
+    public double getJitter() {
+        return jitter;
+    }
+
+    /**
+     * Delay before retrying after the given failed attempt (1-based):
+     * {@code delayMillis * backoffMultiplier^(failedAttempt - 1)}, capped at
+     * {@code maxDelayMillis} and spread by {@code +/- jitter}.
+     */
+    public long backoffDelayMillis(int failedAttempt) {
+        return backoffDelayMillis(retryDelayMillis, backoffMultiplier, maxRetryDelayMillis, jitter,
+                failedAttempt, ThreadLocalRandom.current().nextDouble());
+    }
+
+    static long backoffDelayMillis(long baseMillis, double multiplier, long maxMillis, double jitter,
+                                   int failedAttempt, double random) {
+        double delay = baseMillis * Math.pow(Math.max(1.0, multiplier), Math.max(0, failedAttempt - 1));
+        if (maxMillis > 0) {
+            delay = Math.min(delay, maxMillis);
+        }
+        double spread = Math.min(Math.max(jitter, 0.0), 1.0);
+        delay *= 1.0 + spread * (2.0 * random - 1.0);
+        return Math.max(0L, Math.round(delay));
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.threadpooldemo.config;
+
+/**
+ * Order in which queued tasks are handed to workers ({@code threadpool.scheduling.policy}).
+ */
+public enum SchedulingPolicy {
+    /** Arrival order; uses a plain bounded FIFO queue. */
+    FIFO,
+    /** Higher {@code TaskRequest.priority} first. */
+    PRIORITY,
+    /** Shortest job first: lower {@code TaskRequest.complexity} first. */
+    SJF;
+
+    /**
+     * Largest rank magnitude. Priorities and complexities beyond it rank the same as the
+     * bound, so no task can push others back by more than {@code MAX_RANK * agingMillis}.
+     */
+    public static final int MAX_RANK = 10;
+
+    /**
+     * Rank of a task under this policy, lower runs earlier, within
+     * [{@code -MAX_RANK}, {@code MAX_RANK}]. A {@link SchedulingQueue} delays a task by
+     * {@code rank * agingMillis} relative to its arrival, so rank differences are bounded
+     * in time and large or low-priority jobs cannot starve.
+     */
+    public long rank(Runnable task) {
+        if (!(task instanceof PrioritizedTask)) {
+            return 0;
+        }
+        PrioritizedTask prioritized = (PrioritizedTask) task;
+        switch (this) {
+            case PRIORITY:
+                return -Math.max(-MAX_RANK, Math.min(MAX_RANK, prioritized.getPriority()));
+            case SJF:
+                return Math.max(0, Math.min(MAX_RANK, prioritized.getComplexity()));
+            default:
+                return 0;
+        }
+    }
+}
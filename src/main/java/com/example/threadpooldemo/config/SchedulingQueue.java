@@ -0,0 +1,115 @@
+package com.example.threadpooldemo.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded work queue that orders tasks by a {@link SchedulingPolicy} with aging.
+ *
+ * Each task is keyed by its arrival time plus {@code rank * agingMillis}, so a task of
+ * a worse rank is treated as if it had arrived later by a fixed amount. Newer tasks of a
+ * better rank overtake it only within that window, which bounds how long any task can be
+ * passed over. Keys are fixed on insertion, so no re-sorting is needed as tasks age.
+ *
+ * {@link #remove(Object)} is O(log n) so cancelling a queued task stays cheap, and
+ * {@link #pollLast()} gives the rejection handler the least urgent task to drop.
+ */
+public class SchedulingQueue extends AbstractTaskQueue<SchedulingQueue.Entry> {
+
+    private final SchedulingPolicy policy;
+    private final long agingNanos;
+    private final long origin = System.nanoTime();
+
+    private final TreeSet<Entry> entries = new TreeSet<>();
+    private long sequence;
+
+    public SchedulingQueue(int capacity, SchedulingPolicy policy, long agingMillis) {
+        super(capacity);
+        if (agingMillis <= 0) {
+            throw new IllegalArgumentException("agingMillis must be positive");
+        }
+        this.policy = policy;
+        this.agingNanos = TimeUnit.MILLISECONDS.toNanos(agingMillis);
+    }
+
+    public SchedulingPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Removes and returns the task that would run last, or null if the queue is empty.
+     */
+    public Runnable pollLast() {
+        lock.lock();
+        try {
+            return entries.isEmpty() ? null : unlink(entries.last());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    protected Entry link(Runnable task) {
+        Entry entry = new Entry(System.nanoTime() - origin + offset(policy.rank(task)), sequence++, task);
+        entries.add(entry);
+        return entry;
+    }
+
+    @Override
+    protected void detach(Entry entry) {
+        entries.remove(entry);
+    }
+
+    @Override
+    protected void detachAll() {
+        entries.clear();
+    }
+
+    @Override
+    protected Entry first() {
+        return entries.isEmpty() ? null : entries.first();
+    }
+
+    @Override
+    protected Runnable taskOf(Entry entry) {
+        return entry.task;
+    }
+
+    @Override
+    protected List<Runnable> snapshot() {
+        List<Runnable> snapshot = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            snapshot.add(entry.task);
+        }
+        return snapshot;
+    }
+
+    private long offset(long rank) {
+        // saturate far beyond any realistic wait instead of overflowing the key
+        long limit = Long.MAX_VALUE / 4;
+        if (rank != 0 && Math.abs(rank) > limit / agingNanos) {
+            return rank < 0 ? -limit : limit;
+        }
+        return rank * agingNanos;
+    }
+
+    static final class Entry implements Comparable<Entry> {
+        private final long key;
+        private final long seq;
+        private final Runnable task;
+
+        Entry(long key, long seq, Runnable task) {
+            this.key = key;
+            this.seq = seq;
+            this.task = task;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int byKey = Long.compare(key, other.key);
+            return byKey != 0 ? byKey : Long.compare(seq, other.seq);
+        }
+    }
+}
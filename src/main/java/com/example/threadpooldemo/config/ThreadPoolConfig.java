@@ -1,10 +1,17 @@
 package com.example.threadpooldemo.config;
 
 import com.example.threadpooldemo.handler.LoggingRejectedExecutionHandler;
+import com.example.threadpooldemo.handler.LoggingRejectedExecutionHandler.OverflowPolicy;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.*;
 
 @Configuration
@@ -22,34 +29,188 @@ public class ThreadPoolConfig {
     @Value("${threadpool.queueCapacity:50}")
     private int queueCapacity;
 
+    /**
+     * "platform" (default) runs tasks on the fixed platform-thread pool above.
+     * "virtual" runs every worker on its own virtual thread (JDK 21+).
+     */
+    @Value("${threadpool.mode:platform}")
+    private String mode;
+
+    @Value("${threadpool.virtual.maxConcurrency:1000}")
+    private int virtualMaxConcurrency;
+
+    @Value("${threadpool.scheduling.policy:FIFO}")
+    private SchedulingPolicy schedulingPolicy = SchedulingPolicy.FIFO;
+
+    /**
+     * Delay charged per rank unit under PRIORITY and SJF scheduling; bounds how long a
+     * queued task can be overtaken by newer, better ranked ones.
+     */
+    @Value("${threadpool.scheduling.agingMillis:2000}")
+    private long agingMillis = 2000;
+
+    /**
+     * With {@code threadpool.codel.enabled=true} the work queue sheds tasks that waited
+     * longer than {@code targetMillis} for a full {@code intervalMillis}, see {@link CoDelQueue}.
+     */
+    @Value("${threadpool.codel.enabled:false}")
+    private boolean codelEnabled;
+
+    @Value("${threadpool.codel.targetMillis:100}")
+    private long codelTargetMillis = 100;
+
+    @Value("${threadpool.codel.intervalMillis:1000}")
+    private long codelIntervalMillis = 1000;
+
+    /**
+     * What a full executor does with one task too many: REJECT it (HTTP 429), drop a
+     * queued task (DROP_OLDEST: the oldest under FIFO, the one that would run last under
+     * PRIORITY/SJF) or drop the new one (DROP_NEWEST).
+     */
+    @Value("${threadpool.admission.policy:REJECT}")
+    private OverflowPolicy overflowPolicy = OverflowPolicy.REJECT;
+
+    @Bean(destroyMethod = "shutdown")
+    public GracefulThreadPoolExecutor taskExecutor() {
+        if ("virtual".equalsIgnoreCase(mode)) {
+            return virtualTaskExecutor();
+        }
+        BlockingQueue<Runnable> queue = workQueue(queueCapacity);
+        ThreadFactory threadFactory = platformThreadFactory("image-processor-");
+
+    GracefulThreadPoolExecutor executor = new GracefulThreadPoolExecutor(
+                corePoolSize,
+                maxPoolSize,
+                keepAliveSeconds,
+                TimeUnit.SECONDS,
+                queue,
+                threadFactory,
+                new LoggingRejectedExecutionHandler(overflowPolicy)
+        );
+
+        // allow core threads to time out if desired
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Bulkhead pools defined under {@code threadpool.pools.<name>.*}, each with its own
+     * platform workers ({@code image-processor-<name>-N}), queue (ordered and managed
+     * like the shared one) and overflow policy.
+     * Without such properties the registry is empty and every task uses the shared
+     * executor.
+     */
     @Bean(destroyMethod = "shutdown")
-    public ThreadPoolExecutor taskExecutor() {
-        BlockingQueue<Runnable> queue = new LinkedBlockingQueue<>(queueCapacity);
-        ThreadFactory threadFactory = new ThreadFactory() {
+    public BulkheadRegistry bulkheadRegistry(GracefulThreadPoolExecutor taskExecutor, Environment environment) {
+        Map<String, BulkheadRegistry.Settings> settings = Binder.get(environment)
+                .bind("threadpool.pools", Bindable.mapOf(String.class, BulkheadRegistry.Settings.class))
+                .orElse(Collections.emptyMap());
+        Map<String, BulkheadRegistry.Pool> pools = new LinkedHashMap<>();
+        settings.forEach((name, pool) -> pools.put(name, new BulkheadRegistry.Pool(pool, bulkheadExecutor(name, pool))));
+        return new BulkheadRegistry(taskExecutor, pools);
+    }
+
+    private GracefulThreadPoolExecutor bulkheadExecutor(String name, BulkheadRegistry.Settings settings) {
+        if (BulkheadRegistry.DEFAULT_POOL.equals(name)) {
+            throw new IllegalArgumentException("threadpool.pools." + name + ": the name is reserved for the shared pool");
+        }
+        if (settings.getCorePoolSize() < 1 || settings.getMaxPoolSize() < settings.getCorePoolSize()) {
+            throw new IllegalArgumentException("threadpool.pools." + name + " requires 1 <= corePoolSize <= maxPoolSize");
+        }
+        GracefulThreadPoolExecutor executor = new GracefulThreadPoolExecutor(
+                settings.getCorePoolSize(),
+                settings.getMaxPoolSize(),
+                settings.getKeepAliveSeconds(),
+                TimeUnit.SECONDS,
+                workQueue(settings.getQueueCapacity()),
+                platformThreadFactory("image-processor-" + name + "-"),
+                new LoggingRejectedExecutionHandler(settings.getPolicy())
+        );
+        executor.allowCoreThreadTimeOut(true);
+        executor.setPoolName(name);
+        return executor;
+    }
+
+    private static ThreadFactory platformThreadFactory(String prefix) {
+        return new ThreadFactory() {
             private final ThreadFactory defaultFactory = Executors.defaultThreadFactory();
             private int counter = 0;
 
             @Override
             public Thread newThread(Runnable r) {
                 Thread t = defaultFactory.newThread(r);
-                t.setName("image-processor-" + (++counter));
+                t.setName(prefix + (++counter));
                 t.setDaemon(false);
                 return t;
             }
         };
+    }
 
-    ThreadPoolExecutor executor = new ThreadPoolExecutor(
-                corePoolSize,
-                maxPoolSize,
+    /**
+     * Scheduler that holds failed tasks during their retry backoff and puts them back
+     * into the task executor when it elapses, so no worker sleeps while waiting. It also
+     * fires per-task deadlines. One thread suffices since it only re-enqueues and
+     * cancels. It is deliberately not a bean: a
+     * {@link ScheduledExecutorService} bean would also take over {@code @Scheduled} jobs.
+     */
+    public static ScheduledExecutorService newRetryScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "task-retry-scheduler");
+            t.setDaemon(true);
+            return t;
+        });
+        // cancelled retries must not linger in the delay queue until their deadline
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
+    /**
+     * Bounded queue for the configured scheduling policy. FIFO uses an
+     * {@link IndexedTaskQueue}; the other policies use a {@link SchedulingQueue}. Both
+     * remove a cancelled task without scanning, so it frees its slot right away.
+     * Either is wrapped in a {@link CoDelQueue} when queue delay management is on.
+     */
+    private BlockingQueue<Runnable> workQueue(int capacity) {
+        BlockingQueue<Runnable> queue = schedulingPolicy == SchedulingPolicy.FIFO
+                ? new IndexedTaskQueue(capacity)
+                : new SchedulingQueue(capacity, schedulingPolicy, agingMillis);
+        return codelEnabled ? new CoDelQueue(queue, codelTargetMillis, codelIntervalMillis) : queue;
+    }
+
+    /**
+     * Virtual-thread variant of the executor. Workers are cheap virtual threads, so the
+     * worker limit is no longer a pool of OS threads but a concurrency permit count:
+     * at most {@code threadpool.virtual.maxConcurrency} tasks run at once and the rest
+     * wait in the same bounded queue. Keeping the {@link ThreadPoolExecutor} type means
+     * queue removal, Future cancellation and the monitor work unchanged.
+     */
+    private GracefulThreadPoolExecutor virtualTaskExecutor() {
+        GracefulThreadPoolExecutor executor = new GracefulThreadPoolExecutor(
+                virtualMaxConcurrency,
+                virtualMaxConcurrency,
                 keepAliveSeconds,
                 TimeUnit.SECONDS,
-                queue,
-                threadFactory,
-                new LoggingRejectedExecutionHandler()
+                workQueue(queueCapacity),
+                virtualThreadFactory("image-processor-vt-"),
+                new LoggingRejectedExecutionHandler(overflowPolicy)
         );
-
-        // allow core threads to time out if desired
         executor.allowCoreThreadTimeOut(true);
         return executor;
     }
+
+    /**
+     * Looks up {@code Thread.ofVirtual().name(prefix, 1).factory()} reflectively so the
+     * project still compiles and runs in platform mode on JDK 17.
+     */
+    static ThreadFactory virtualThreadFactory(String prefix) {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 1L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(
+                    "threadpool.mode=virtual requires JDK 21 or newer, running on " + Runtime.version(), e);
+        }
+    }
 }
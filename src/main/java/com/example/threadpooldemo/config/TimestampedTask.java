@@ -0,0 +1,13 @@
+package com.example.threadpooldemo.config;
+
+/**
+ * Work item that knows when it was handed to the executor, so
+ * {@link GracefulThreadPoolExecutor} can measure how long it waited in the queue.
+ */
+public interface TimestampedTask extends Runnable {
+
+    /**
+     * {@link System#nanoTime()} at which the task was enqueued.
+     */
+    long getEnqueuedNanos();
+}
@@ -1,19 +1,49 @@
 package com.example.threadpooldemo.controller;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
-import java.util.Collection;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.example.threadpooldemo.dto.BatchItemResultDto;
+import com.example.threadpooldemo.dto.BulkCancelResultDto;
+import com.example.threadpooldemo.dto.TaskPageDto;
 import com.example.threadpooldemo.dto.TaskStatusDto;
+import com.example.threadpooldemo.model.CancelFilter;
 import com.example.threadpooldemo.model.TaskRequest;
+import com.example.threadpooldemo.model.TaskState;
+import com.example.threadpooldemo.model.TaskStatus;
+import com.example.threadpooldemo.service.AdmissionRejectedException;
 import com.example.threadpooldemo.service.ProcessingService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import jakarta.validation.Valid;
 
@@ -21,26 +51,123 @@ import jakarta.validation.Valid;
 @RequestMapping("/api/tasks")
 public class ProcessingController {
 
+	static final String NDJSON = "application/x-ndjson";
+	/** Names the bulkhead pool a submission runs in, overriding complexity routing. */
+	static final String WORKLOAD_HEADER = "X-Workload-Class";
+	/** Repeating a submission with the same key returns the first task instead of a new one. */
+	static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+	private static final int DEFAULT_PAGE_SIZE = 100;
+	private static final int MAX_PAGE_SIZE = 1000;
+	private static final Duration DEFAULT_WAIT = Duration.ofSeconds(30);
+	private static final Duration MAX_WAIT = Duration.ofMinutes(5);
+
 	private final ProcessingService service;
+	private final ObjectMapper objectMapper;
 
-	public ProcessingController(ProcessingService service) {
+	public ProcessingController(ProcessingService service, ObjectMapper objectMapper) {
 		this.service = service;
+		this.objectMapper = objectMapper;
 	}
 
 	@PostMapping
-	public ResponseEntity<String> submit(@Valid @RequestBody TaskRequest request) {
-		String id = service.submit(request);
+	public ResponseEntity<String> submit(@Valid @RequestBody TaskRequest request,
+			@RequestHeader(name = WORKLOAD_HEADER, required = false) String workload,
+			@RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+		String id = service.submit(withIdempotencyKey(withWorkload(request, workload), idempotencyKey));
 		return ResponseEntity.created(URI.create("/api/tasks/" + id)).body(id);
 	}
 
+	/**
+	 * {@code POST /api/tasks?wait=true}: submits and holds the response until the task
+	 * finishes (201 with the final status) or {@code timeout} expires (202 with the
+	 * current status). No servlet thread is held while waiting.
+	 */
+	@PostMapping(params = "wait=true")
+	public DeferredResult<ResponseEntity<TaskStatusDto>> submitAndWait(@Valid @RequestBody TaskRequest request,
+			@RequestParam(required = false) String timeout,
+			@RequestHeader(name = WORKLOAD_HEADER, required = false) String workload,
+			@RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+		Duration wait = parseTimeout(timeout);
+		String id = service.submit(withIdempotencyKey(withWorkload(request, workload), idempotencyKey));
+		URI location = URI.create("/api/tasks/" + id);
+		return await(id, wait,
+				dto -> ResponseEntity.created(location).body(dto),
+				() -> ResponseEntity.accepted().location(location).body(service.getStatus(id).orElse(null)));
+	}
+
+	@PostMapping("/batch")
+	public List<BatchItemResultDto> submitBatch(@RequestBody List<TaskRequest> requests,
+			@RequestHeader(name = WORKLOAD_HEADER, required = false) String workload) {
+		requests.forEach(request -> withWorkload(request, workload));
+		return service.submitBatch(requests);
+	}
+
 	@GetMapping("/{id}")
 	public ResponseEntity<TaskStatusDto> status(@PathVariable String id) {
 		return service.getStatus(id).map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
 	}
 
+	/**
+	 * {@code GET /api/tasks/{id}?waitFor=terminal&timeout=30s}: long poll that answers as
+	 * soon as the task reaches a terminal state, or with its current status once
+	 * {@code timeout} expires (default 30s, at most 5m).
+	 */
+	@GetMapping(path = "/{id}", params = "waitFor")
+	public DeferredResult<ResponseEntity<TaskStatusDto>> awaitStatus(@PathVariable String id,
+			@RequestParam String waitFor, @RequestParam(required = false) String timeout) {
+		if (!"terminal".equalsIgnoreCase(waitFor)) {
+			throw new IllegalArgumentException("Unsupported waitFor: " + waitFor + " (expected 'terminal')");
+		}
+		Duration wait = parseTimeout(timeout);
+		return await(id, wait,
+				dto -> dto == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(dto),
+				() -> status(id));
+	}
+
+	/**
+	 * Without parameters returns every task as a JSON array, as before. With any of
+	 * {@code after}, {@code limit} or {@code status} returns a single cursor page.
+	 */
 	@GetMapping
-	public Collection<TaskStatusDto> list() {
-		return service.listAll();
+	public ResponseEntity<?> list(@RequestParam(required = false) String after,
+			@RequestParam(required = false) Integer limit,
+			@RequestParam(required = false) String status) {
+		if (after == null && limit == null && status == null) {
+			return ResponseEntity.ok(service.listAll());
+		}
+		int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+		TaskPageDto page = service.listPage(after, pageSize, parseState(status));
+		return ResponseEntity.ok(page);
+	}
+
+	/**
+	 * Streams every task as newline-delimited JSON, writing rows as they are read so the
+	 * response does not buffer the whole collection.
+	 */
+	@GetMapping(produces = NDJSON)
+	public ResponseEntity<StreamingResponseBody> stream(@RequestParam(required = false) String status) {
+		TaskState state = parseState(status);
+		StreamingResponseBody body = out -> service.streamAll(state, dto -> writeLine(out, dto));
+		return ResponseEntity.ok().header("Content-Type", NDJSON).body(body);
+	}
+
+	/**
+	 * Server-Sent Events stream of status transitions, replacing polling of
+	 * {@code GET /api/tasks/{id}}. {@code id} may be repeated or comma-separated;
+	 * {@code status} takes a lifecycle state or a status label, like {@link #list}.
+	 */
+	@GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter events(@RequestParam(required = false) Set<String> id,
+			@RequestParam(required = false) String status) {
+		return service.subscribeEvents(id, parseState(status));
+	}
+
+	/**
+	 * Cancels every task matching the filter at once; see {@link CancelFilter}.
+	 */
+	@PostMapping("/cancel")
+	public BulkCancelResultDto cancelAll(@RequestBody CancelFilter filter) {
+		return service.cancelAll(filter);
 	}
 
 	@PostMapping("/{id}/cancel")
@@ -48,4 +175,105 @@ public class ProcessingController {
 		boolean ok = service.cancel(id);
 		return ok ? ResponseEntity.accepted().build() : ResponseEntity.notFound().build();
 	}
+
+	@ExceptionHandler(IllegalArgumentException.class)
+	public ResponseEntity<String> badRequest(IllegalArgumentException e) {
+		return ResponseEntity.badRequest().body(e.getMessage());
+	}
+
+	/**
+	 * 429 with a {@code Retry-After} hint when admission control turns a task away.
+	 */
+	@ExceptionHandler(AdmissionRejectedException.class)
+	public ResponseEntity<String> tooManyRequests(AdmissionRejectedException e) {
+		return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+				.header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+				.body(e.getMessage());
+	}
+
+	/**
+	 * Any other rejection means the executor is shutting down.
+	 */
+	@ExceptionHandler(RejectedExecutionException.class)
+	public ResponseEntity<String> unavailable(RejectedExecutionException e) {
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+	}
+
+	private DeferredResult<ResponseEntity<TaskStatusDto>> await(String id, Duration timeout,
+			Function<TaskStatusDto, ResponseEntity<TaskStatusDto>> onCompletion,
+			Supplier<ResponseEntity<TaskStatusDto>> onTimeout) {
+		DeferredResult<ResponseEntity<TaskStatusDto>> result = new DeferredResult<>(timeout.toMillis());
+		CompletableFuture<TaskStatusDto> completion = service.awaitCompletion(id);
+		// after a timeout, error or disconnect nobody waits any more; stop a repository poll
+		result.onTimeout(() -> {
+			completion.cancel(false);
+			result.setResult(onTimeout.get());
+		});
+		result.onCompletion(() -> completion.cancel(false));
+		completion.whenComplete((dto, error) -> {
+			if (error instanceof CancellationException) {
+				return;
+			}
+			if (error != null) {
+				result.setErrorResult(error);
+			} else {
+				result.setResult(onCompletion.apply(dto));
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * The header applies to requests that do not name a workload themselves.
+	 */
+	private static TaskRequest withWorkload(TaskRequest request, String workload) {
+		if (request != null && workload != null && request.getWorkload() == null) {
+			request.setWorkload(workload);
+		}
+		return request;
+	}
+
+	/**
+	 * Like the workload, the header applies to requests without a key of their own. It is
+	 * not accepted on batches, whose entries each need their own key.
+	 */
+	private static TaskRequest withIdempotencyKey(TaskRequest request, String idempotencyKey) {
+		if (request != null && idempotencyKey != null && request.getIdempotencyKey() == null) {
+			request.setIdempotencyKey(idempotencyKey);
+		}
+		return request;
+	}
+
+	/**
+	 * Accepts "30s", "500ms", "2m" or a plain number of seconds.
+	 */
+	private static Duration parseTimeout(String timeout) {
+		if (timeout == null) {
+			return DEFAULT_WAIT;
+		}
+		Duration wait = DurationStyle.detectAndParse(timeout, ChronoUnit.SECONDS);
+		// DeferredResult treats 0 as "no timeout", so the wait must be at least 1 ms
+		if (wait.toMillis() < 1) {
+			throw new IllegalArgumentException("timeout must be positive: " + timeout);
+		}
+		return wait.compareTo(MAX_WAIT) > 0 ? MAX_WAIT : wait;
+	}
+
+	/**
+	 * Accepts a state name ("RUNNING") or a full status label ("ATTEMPT_1_OF_3").
+	 */
+	private static TaskState parseState(String status) {
+		return status == null ? null : TaskStatus.parse(status).getState();
+	}
+
+	private void writeLine(OutputStream out, TaskStatusDto dto) {
+		try {
+			out.write(objectMapper.writeValueAsBytes(dto));
+			out.write('\n');
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException("Cannot serialize task " + dto.getId(), e);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
 }
@@ -0,0 +1,49 @@
+package com.example.threadpooldemo.dto;
+
+/**
+ * Outcome of a single entry in a batch submission. {@code index} refers to the
+ * position of the request in the submitted array.
+ */
+public final class BatchItemResultDto {
+    private final int index;
+    private final String id;
+    private final boolean accepted;
+    private final String reason;
+
+    private BatchItemResultDto(int index, String id, boolean accepted, String reason) {
+        this.index = index;
+        this.id = id;
+        this.accepted = accepted;
+        this.reason = reason;
+    }
+
+    public static BatchItemResultDto accepted(int index, String id) {
+        return new BatchItemResultDto(index, id, true, null);
+    }
+
+    public static BatchItemResultDto rejected(int index, String id, String reason) {
+        return new BatchItemResultDto(index, id, false, reason);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public boolean isAccepted() {
+        return accepted;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BatchItemResultDto{index=%d, id='%s', accepted=%s, reason='%s'}",
+            index, id, accepted, reason);
+    }
+}
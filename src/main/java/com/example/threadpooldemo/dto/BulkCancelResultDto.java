@@ -0,0 +1,35 @@
+package com.example.threadpooldemo.dto;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk cancellation: tasks that were waiting are {@code cancelled}
+ * outright, running ones had {@code cancellationRequested} and stop at their next check.
+ */
+public final class BulkCancelResultDto {
+    private final List<String> cancelled;
+    private final List<String> cancellationRequested;
+
+    public BulkCancelResultDto(List<String> cancelled, List<String> cancellationRequested) {
+        this.cancelled = cancelled;
+        this.cancellationRequested = cancellationRequested;
+    }
+
+    public int getMatched() {
+        return cancelled.size() + cancellationRequested.size();
+    }
+
+    public List<String> getCancelled() {
+        return cancelled;
+    }
+
+    public List<String> getCancellationRequested() {
+        return cancellationRequested;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BulkCancelResultDto{cancelled=%d, cancellationRequested=%d}",
+            cancelled.size(), cancellationRequested.size());
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.threadpooldemo.dto;
+
+/**
+ * One status transition pushed to event stream subscribers. {@code sequence} increases
+ * across all events, so a client can tell the order of events for different tasks.
+ */
+public final class TaskEventDto {
+    private final long sequence;
+    private final String id;
+    private final String status;
+    private final String assignedThread;
+    private final long timestamp;
+
+    public TaskEventDto(long sequence, String id, String status, String assignedThread, long timestamp) {
+        this.sequence = sequence;
+        this.id = id;
+        this.status = status;
+        this.assignedThread = assignedThread;
+        this.timestamp = timestamp;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * REST label of the new status, e.g. "COMPLETED" or "ATTEMPT_2_OF_3".
+     */
+    public String getStatus() {
+        return status;
+    }
+
+    public String getAssignedThread() {
+        return assignedThread;
+    }
+
+    /**
+     * Wall-clock time of the transition in epoch milliseconds.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TaskEventDto{seq=%d, id='%s', status='%s', thread='%s'}",
+            sequence, id, status, assignedThread);
+    }
+}
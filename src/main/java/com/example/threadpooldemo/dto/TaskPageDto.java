@@ -0,0 +1,25 @@
+package com.example.threadpooldemo.dto;
+
+import java.util.List;
+
+/**
+ * One page of a cursor-paginated task listing. {@code nextAfter} is the cursor for the
+ * following page, or null when this page is the last one.
+ */
+public final class TaskPageDto {
+    private final List<TaskStatusDto> items;
+    private final String nextAfter;
+
+    public TaskPageDto(List<TaskStatusDto> items, String nextAfter) {
+        this.items = items;
+        this.nextAfter = nextAfter;
+    }
+
+    public List<TaskStatusDto> getItems() {
+        return items;
+    }
+
+    public String getNextAfter() {
+        return nextAfter;
+    }
+}
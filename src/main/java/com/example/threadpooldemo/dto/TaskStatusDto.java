@@ -1,16 +1,34 @@
 package com.example.threadpooldemo.dto;
 
+import com.example.threadpooldemo.model.TaskSpec;
+import com.example.threadpooldemo.model.TaskState;
+import com.example.threadpooldemo.model.TaskStatus;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 public final class TaskStatusDto {
     private final String id;
     private final String fileName;
-    private final String status;
+    private final TaskStatus status;
     private final String assignedThread;
+    private final TaskSpec spec; // parameters to re-enqueue the task with after a restart; optional
+
+    public TaskStatusDto(String id, String fileName, TaskStatus status, String assignedThread) {
+        this(id, fileName, status, assignedThread, null);
+    }
 
-    public TaskStatusDto(String id, String fileName, String status, String assignedThread) {
+    public TaskStatusDto(String id, String fileName, TaskStatus status, String assignedThread, TaskSpec spec) {
         this.id = id;
         this.fileName = fileName;
         this.status = status;
         this.assignedThread = assignedThread;
+        this.spec = spec;
+    }
+
+    /**
+     * Column-wise constructor used by JPQL constructor expressions.
+     */
+    public TaskStatusDto(String id, String fileName, TaskState state, Short attempt, Short maxAttempts, String assignedThread) {
+        this(id, fileName, TaskStatus.of(state, attempt, maxAttempts), assignedThread);
     }
 
     public String getId() {
@@ -21,29 +39,50 @@ public final class TaskStatusDto {
         return fileName;
     }
 
+    /**
+     * REST label of the status, e.g. "QUEUED" or "ATTEMPT_2_OF_3".
+     */
     public String getStatus() {
+        return status.toString();
+    }
+
+    @JsonIgnore
+    public TaskStatus getTaskStatus() {
         return status;
     }
 
+    @JsonIgnore
+    public TaskState getState() {
+        return status.getState();
+    }
+
     public String getAssignedThread() {
         return assignedThread;
     }
 
-    public TaskStatusDto withStatus(String newStatus) {
-        return new TaskStatusDto(this.id, this.fileName, newStatus, this.assignedThread);
+    /**
+     * Parameters the task was submitted with, or null if they were not recorded.
+     */
+    @JsonIgnore
+    public TaskSpec getSpec() {
+        return spec;
+    }
+
+    public TaskStatusDto withStatus(TaskStatus newStatus) {
+        return new TaskStatusDto(this.id, this.fileName, newStatus, this.assignedThread, this.spec);
     }
 
     public TaskStatusDto withThread(String newThread) {
-        return new TaskStatusDto(this.id, this.fileName, this.status, newThread);
+        return new TaskStatusDto(this.id, this.fileName, this.status, newThread, this.spec);
     }
 
-    public TaskStatusDto withStatusAndThread(String newStatus, String newThread) {
-        return new TaskStatusDto(this.id, this.fileName, newStatus, newThread);
+    public TaskStatusDto withStatusAndThread(TaskStatus newStatus, String newThread) {
+        return new TaskStatusDto(this.id, this.fileName, newStatus, newThread, this.spec);
     }
 
     @Override
     public String toString() {
-        return String.format("TaskStatusDto{id='%s', fileName='%s', status='%s', thread='%s'}", 
+        return String.format("TaskStatusDto{id='%s', fileName='%s', status='%s', thread='%s'}",
             id, fileName, status, assignedThread);
     }
 }
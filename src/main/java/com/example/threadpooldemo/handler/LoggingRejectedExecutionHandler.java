@@ -1,29 +1,94 @@
 package com.example.threadpooldemo.handler;
 
+import com.example.threadpooldemo.config.CoDelQueue;
+import com.example.threadpooldemo.config.DroppableTask;
+import com.example.threadpooldemo.config.SchedulingQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadPoolExecutor;
 
+/**
+ * Handles a full executor according to an {@link OverflowPolicy}. Whatever task ends up
+ * discarded is told so through {@link DroppableTask#onDropped()}, so its owner can
+ * record it instead of leaving it QUEUED forever.
+ */
 public class LoggingRejectedExecutionHandler implements RejectedExecutionHandler {
     private static final Logger logger = LoggerFactory.getLogger(LoggingRejectedExecutionHandler.class);
 
+    public enum OverflowPolicy {
+        /** Throw {@link RejectedExecutionException} and leave the queue untouched. */
+        REJECT,
+        /**
+         * Drop a queued task to make room for the new one: the oldest, next to run, from
+         * a FIFO queue, the task that would run last from a {@link SchedulingQueue}.
+         */
+        DROP_OLDEST,
+        /** Keep the queue and drop the incoming task. */
+        DROP_NEWEST
+    }
+
+    private final OverflowPolicy policy;
+
+    public LoggingRejectedExecutionHandler() {
+        this(OverflowPolicy.DROP_OLDEST);
+    }
+
+    public LoggingRejectedExecutionHandler(OverflowPolicy policy) {
+        this.policy = policy;
+    }
+
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+
     @Override
     public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
-        logger.warn("Task rejected: {} | active: {} | queue: {}",
-                r, executor.getActiveCount(), executor.getQueue().size());
+        logger.warn("Task rejected: {} | active: {} | queue: {} | policy: {}",
+                r, executor.getActiveCount(), executor.getQueue().size(), policy);
+        if (policy == OverflowPolicy.REJECT || executor.isShutdown()) {
+            throw new RejectedExecutionException("Task " + r + " rejected from " + executor);
+        }
+        if (policy == OverflowPolicy.DROP_NEWEST) {
+            drop(r);
+            return;
+        }
         try {
-            Runnable polled = executor.getQueue().poll();
+            Runnable polled = dropVictim(executor.getQueue());
             if (polled != null) {
-                logger.info("Dropped oldest queued task: {} to accept new task: {}", polled, r);
+                logger.info("Dropped queued task: {} to accept new task: {}", polled, r);
+                drop(polled);
             }
             boolean offered = executor.getQueue().offer(r);
             if (!offered) {
                 logger.error("Could not enqueue task after dropping oldest. Dropping new task: {}", r);
+                drop(r);
             }
         } catch (Exception e) {
             logger.error("Error handling rejected execution", e);
         }
     }
+
+    private static void drop(Runnable task) {
+        if (task instanceof DroppableTask) {
+            ((DroppableTask) task).onDropped();
+        }
+    }
+
+    /**
+     * Drops the oldest task from a FIFO queue. A {@link SchedulingQueue} gives up the
+     * task that would run last instead, so the most urgent work is never the victim.
+     */
+    private Runnable dropVictim(BlockingQueue<Runnable> queue) {
+        if (queue instanceof CoDelQueue) {
+            queue = ((CoDelQueue) queue).getDelegate();
+        }
+        if (queue instanceof SchedulingQueue) {
+            return ((SchedulingQueue) queue).pollLast();
+        }
+        return queue.poll();
+    }
 }
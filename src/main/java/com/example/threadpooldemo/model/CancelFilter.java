@@ -0,0 +1,67 @@
+package com.example.threadpooldemo.model;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Selects the tasks cancelled by {@code POST /api/tasks/cancel}. A task matches when it
+ * satisfies every criterion that is set; at least one must be.
+ */
+public class CancelFilter {
+
+    private List<String> ids; // any of these ids
+
+    private String status; // lifecycle state or status label, e.g. QUEUED or ATTEMPT_1_OF_3
+
+    private String fileNamePrefix;
+
+    private Instant submittedBefore;
+
+    public CancelFilter() {}
+
+    public List<String> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<String> ids) {
+        this.ids = ids;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getFileNamePrefix() {
+        return fileNamePrefix;
+    }
+
+    public void setFileNamePrefix(String fileNamePrefix) {
+        this.fileNamePrefix = fileNamePrefix;
+    }
+
+    public Instant getSubmittedBefore() {
+        return submittedBefore;
+    }
+
+    public void setSubmittedBefore(Instant submittedBefore) {
+        this.submittedBefore = submittedBefore;
+    }
+
+    public boolean isEmpty() {
+        return ids == null && status == null && fileNamePrefix == null && submittedBefore == null;
+    }
+
+    @Override
+    public String toString() {
+        return "CancelFilter{" +
+                "ids=" + (ids == null ? null : ids.size() + " ids") +
+                ", status=" + status +
+                ", fileNamePrefix='" + fileNamePrefix + '\'' +
+                ", submittedBefore=" + submittedBefore +
+                '}';
+    }
+}
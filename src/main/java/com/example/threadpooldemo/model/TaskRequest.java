@@ -1,14 +1,36 @@
 package com.example.threadpooldemo.model;
 
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+
+import java.time.Duration;
+import java.time.Instant;
 
 public class TaskRequest {
 
+    public static final int MIN_PRIORITY = -10;
+    public static final int MAX_PRIORITY = 10;
+
     @NotBlank
     private String fileName;
 
     private int complexity; // 1..10 - how heavy the simulated processing is
 
+    @Min(MIN_PRIORITY)
+    @Max(MAX_PRIORITY)
+    private int priority; // -10..10, higher runs first under threadpool.scheduling.policy=PRIORITY
+
+    @Positive
+    private Long timeoutMillis; // budget from submission, optional
+
+    private Instant deadline; // absolute deadline, optional; the earlier of the two applies
+
+    private String workload; // bulkhead pool to run in, see threadpool.pools; optional
+
+    private String idempotencyKey; // repeated submissions with the same key return the first task's id
+
     public TaskRequest() {}
 
     public TaskRequest(String fileName, int complexity) {
@@ -16,6 +38,11 @@ public class TaskRequest {
         this.complexity = complexity;
     }
 
+    public TaskRequest(String fileName, int complexity, int priority) {
+        this(fileName, complexity);
+        this.priority = priority;
+    }
+
     public String getFileName() {
         return fileName;
     }
@@ -32,11 +59,69 @@ public class TaskRequest {
         this.complexity = complexity;
     }
 
+    public int getPriority() {
+        return priority;
+    }
+
+    public void setPriority(int priority) {
+        this.priority = priority;
+    }
+
+    public Long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public void setTimeoutMillis(Long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public Instant getDeadline() {
+        return deadline;
+    }
+
+    public void setDeadline(Instant deadline) {
+        this.deadline = deadline;
+    }
+
+    public String getWorkload() {
+        return workload;
+    }
+
+    public void setWorkload(String workload) {
+        this.workload = workload;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    /**
+     * Time left at {@code now} until the effective deadline, or null without one.
+     * Negative once the deadline has passed.
+     */
+    public Duration remainingBudget(Instant now) {
+        Duration remaining = timeoutMillis == null ? null : Duration.ofMillis(timeoutMillis);
+        if (deadline != null) {
+            Duration untilDeadline = Duration.between(now, deadline);
+            remaining = remaining == null || untilDeadline.compareTo(remaining) < 0 ? untilDeadline : remaining;
+        }
+        return remaining;
+    }
+
     @Override
     public String toString() {
         return "TaskRequest{" +
                 "fileName='" + fileName + '\'' +
                 ", complexity=" + complexity +
+                ", priority=" + priority +
+                ", timeoutMillis=" + timeoutMillis +
+                ", deadline=" + deadline +
+                ", workload=" + workload +
+                ", idempotencyKey=" + idempotencyKey +
                 '}';
     }
 }
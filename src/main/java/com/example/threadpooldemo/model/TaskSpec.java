@@ -0,0 +1,69 @@
+package com.example.threadpooldemo.model;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * The parameters a task runs with, stored with its row so that a task left unfinished
+ * by a crash can be enqueued again after a restart. A relative timeout is turned into
+ * an absolute deadline at submission, so a recovered task keeps its original budget.
+ */
+public final class TaskSpec {
+    private final int complexity;
+    private final int priority;
+    private final String workload;
+    private final Instant deadline;
+
+    public TaskSpec(int complexity, int priority, String workload, Instant deadline) {
+        this.complexity = complexity;
+        this.priority = priority;
+        this.workload = workload;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Captures the request as submitted at {@code now}.
+     */
+    public static TaskSpec of(TaskRequest request, Instant now) {
+        Duration budget = request.remainingBudget(now);
+        return new TaskSpec(request.getComplexity(), request.getPriority(), request.getWorkload(),
+                budget == null ? null : now.plus(budget));
+    }
+
+    public int getComplexity() {
+        return complexity;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public String getWorkload() {
+        return workload;
+    }
+
+    public Instant getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Rebuilds the request for the given file name; the idempotency key is not part of
+     * it because the key already maps to this task.
+     */
+    public TaskRequest toRequest(String fileName) {
+        TaskRequest request = new TaskRequest(fileName, complexity, priority);
+        request.setWorkload(workload);
+        request.setDeadline(deadline);
+        return request;
+    }
+
+    @Override
+    public String toString() {
+        return "TaskSpec{" +
+                "complexity=" + complexity +
+                ", priority=" + priority +
+                ", workload=" + workload +
+                ", deadline=" + deadline +
+                '}';
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.threadpooldemo.model;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Lifecycle states of a task. Each state carries a stable numeric code used for storage
+ * and the set of states it may be entered from; re-entering the current state (for
+ * example a new attempt number while RUNNING) is always allowed.
+ */
+public enum TaskState {
+    QUEUED(0, false),
+    RUNNING(1, false),
+    RETRYING(2, false),
+    CANCELLATION_REQUESTED(3, false),
+    COMPLETED(10, true),
+    FAILED_PERMANENTLY(11, true),
+    CANCELLED(12, true),
+    INTERRUPTED(13, true),
+    REJECTED(14, true),
+    DROPPED(15, true),
+    EXPIRED(16, true),
+    TIMED_OUT(17, true);
+
+    private static final TaskState[] BY_CODE;
+
+    static {
+        QUEUED.allow();
+        RUNNING.allow(QUEUED, RETRYING);
+        RETRYING.allow(RUNNING);
+        CANCELLATION_REQUESTED.allow(QUEUED, RUNNING, RETRYING);
+        COMPLETED.allow(RUNNING);
+        FAILED_PERMANENTLY.allow(QUEUED, RUNNING, RETRYING);
+        CANCELLED.allow(QUEUED, RUNNING, RETRYING, CANCELLATION_REQUESTED);
+        INTERRUPTED.allow(RUNNING, RETRYING, CANCELLATION_REQUESTED);
+        REJECTED.allow(QUEUED);
+        DROPPED.allow(QUEUED, RETRYING);
+        EXPIRED.allow(QUEUED, RETRYING);
+        TIMED_OUT.allow(QUEUED, RUNNING, RETRYING, CANCELLATION_REQUESTED);
+
+        int max = 0;
+        for (TaskState state : values()) {
+            max = Math.max(max, state.code);
+        }
+        BY_CODE = new TaskState[max + 1];
+        for (TaskState state : values()) {
+            BY_CODE[state.code] = state;
+        }
+    }
+
+    private final short code;
+    private final boolean terminal;
+    private Set<TaskState> predecessors;
+
+    TaskState(int code, boolean terminal) {
+        this.code = (short) code;
+        this.terminal = terminal;
+    }
+
+    private void allow(TaskState... from) {
+        EnumSet<TaskState> set = EnumSet.of(this, from);
+        this.predecessors = Collections.unmodifiableSet(set);
+    }
+
+    public short getCode() {
+        return code;
+    }
+
+    /**
+     * Returns true if a task in this state will not transition any further.
+     */
+    public boolean isTerminal() {
+        return terminal;
+    }
+
+    /**
+     * States from which this state may be entered, including itself.
+     */
+    public Set<TaskState> getPredecessors() {
+        return predecessors;
+    }
+
+    public boolean canTransitionTo(TaskState next) {
+        return next.predecessors.contains(this);
+    }
+
+    public static TaskState fromCode(short code) {
+        TaskState state = code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+        if (state == null) {
+            throw new IllegalArgumentException("Unknown task state code: " + code);
+        }
+        return state;
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.threadpooldemo.model;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Immutable task status: a {@link TaskState} plus the attempt counters that apply to it.
+ *
+ * The textual label exposed over REST ("QUEUED", "ATTEMPT_2_OF_3",
+ * "FAILED_ATTEMPT_1_RETRYING", ...) is built once per instance, and instances for the
+ * usual attempt counts are shared, so transitions do not format or allocate strings.
+ */
+public final class TaskStatus {
+
+    private static final int CACHED_MAX_ATTEMPTS = 16;
+    private static final Map<TaskState, TaskStatus> PLAIN = new EnumMap<>(TaskState.class);
+    private static final TaskStatus[][] RUNNING_CACHE = new TaskStatus[CACHED_MAX_ATTEMPTS + 1][];
+    private static final TaskStatus[][] RETRYING_CACHE = new TaskStatus[CACHED_MAX_ATTEMPTS + 1][];
+
+    static {
+        for (TaskState state : TaskState.values()) {
+            PLAIN.put(state, new TaskStatus(state, 0, 0));
+        }
+        for (int max = 1; max <= CACHED_MAX_ATTEMPTS; max++) {
+            RUNNING_CACHE[max] = new TaskStatus[max + 1];
+            RETRYING_CACHE[max] = new TaskStatus[max + 1];
+            for (int attempt = 1; attempt <= max; attempt++) {
+                RUNNING_CACHE[max][attempt] = new TaskStatus(TaskState.RUNNING, attempt, max);
+                RETRYING_CACHE[max][attempt] = new TaskStatus(TaskState.RETRYING, attempt, max);
+            }
+        }
+    }
+
+    public static final TaskStatus QUEUED = of(TaskState.QUEUED);
+    public static final TaskStatus CANCELLATION_REQUESTED = of(TaskState.CANCELLATION_REQUESTED);
+    public static final TaskStatus COMPLETED = of(TaskState.COMPLETED);
+    public static final TaskStatus FAILED_PERMANENTLY = of(TaskState.FAILED_PERMANENTLY);
+    public static final TaskStatus CANCELLED = of(TaskState.CANCELLED);
+    public static final TaskStatus INTERRUPTED = of(TaskState.INTERRUPTED);
+    public static final TaskStatus REJECTED = of(TaskState.REJECTED);
+    public static final TaskStatus DROPPED = of(TaskState.DROPPED);
+    public static final TaskStatus EXPIRED = of(TaskState.EXPIRED);
+    public static final TaskStatus TIMED_OUT = of(TaskState.TIMED_OUT);
+
+    private final TaskState state;
+    private final int attempt;
+    private final int maxAttempts;
+    private final String label;
+
+    private TaskStatus(TaskState state, int attempt, int maxAttempts) {
+        this.state = state;
+        this.attempt = attempt;
+        this.maxAttempts = maxAttempts;
+        this.label = label(state, attempt, maxAttempts);
+    }
+
+    /**
+     * Status for a state without attempt information.
+     */
+    public static TaskStatus of(TaskState state) {
+        return PLAIN.get(state);
+    }
+
+    /**
+     * Status for the given state and counters, reusing the shared instance when possible.
+     */
+    public static TaskStatus of(TaskState state, int attempt, int maxAttempts) {
+        if (state == TaskState.RUNNING) {
+            return running(attempt, maxAttempts);
+        }
+        if (state == TaskState.RETRYING) {
+            return retrying(attempt, maxAttempts);
+        }
+        return attempt == 0 && maxAttempts == 0 ? of(state) : new TaskStatus(state, attempt, maxAttempts);
+    }
+
+    public static TaskStatus running(int attempt, int maxAttempts) {
+        if (isCached(attempt, maxAttempts)) {
+            return RUNNING_CACHE[maxAttempts][attempt];
+        }
+        return new TaskStatus(TaskState.RUNNING, attempt, maxAttempts);
+    }
+
+    public static TaskStatus retrying(int failedAttempt, int maxAttempts) {
+        if (isCached(failedAttempt, maxAttempts)) {
+            return RETRYING_CACHE[maxAttempts][failedAttempt];
+        }
+        return new TaskStatus(TaskState.RETRYING, failedAttempt, maxAttempts);
+    }
+
+    /**
+     * Parses a REST label or a plain state name. Labels of retrying tasks do not carry
+     * the maximum attempt count, so it is reported as 0 for them.
+     */
+    public static TaskStatus parse(String label) {
+        if (label == null) {
+            throw new IllegalArgumentException("Task status must not be null");
+        }
+        try {
+            if (label.startsWith("ATTEMPT_")) {
+                int of = label.indexOf("_OF_");
+                return running(Integer.parseInt(label.substring(8, of)), Integer.parseInt(label.substring(of + 4)));
+            }
+            if (label.startsWith("FAILED_ATTEMPT_") && label.endsWith("_RETRYING")) {
+                return retrying(Integer.parseInt(label.substring(15, label.length() - 9)), 0);
+            }
+            return of(TaskState.valueOf(label));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Unknown task status: " + label, e);
+        }
+    }
+
+    public TaskState getState() {
+        return state;
+    }
+
+    public int getAttempt() {
+        return attempt;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public boolean isTerminal() {
+        return state.isTerminal();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TaskStatus)) {
+            return false;
+        }
+        TaskStatus other = (TaskStatus) o;
+        return state == other.state && attempt == other.attempt && maxAttempts == other.maxAttempts;
+    }
+
+    @Override
+    public int hashCode() {
+        return (state.ordinal() * 31 + attempt) * 31 + maxAttempts;
+    }
+
+    /**
+     * Returns the REST label.
+     */
+    @Override
+    public String toString() {
+        return label;
+    }
+
+    private static boolean isCached(int attempt, int maxAttempts) {
+        return maxAttempts >= 1 && maxAttempts <= CACHED_MAX_ATTEMPTS && attempt >= 1 && attempt <= maxAttempts;
+    }
+
+    private static String label(TaskState state, int attempt, int maxAttempts) {
+        switch (state) {
+            case RUNNING:
+                return "ATTEMPT_" + attempt + "_OF_" + maxAttempts;
+            case RETRYING:
+                return "FAILED_ATTEMPT_" + attempt + "_RETRYING";
+            default:
+                return state.name();
+        }
+    }
+}
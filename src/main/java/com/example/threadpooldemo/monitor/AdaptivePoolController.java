@@ -0,0 +1,223 @@
+package com.example.threadpooldemo.monitor;
+
+import com.example.threadpooldemo.config.GracefulThreadPoolExecutor;
+import com.example.threadpooldemo.config.TimestampedTask;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feedback controller that resizes the task executor to track load (AIMD).
+ *
+ * Every interval it samples the average queue wait of the tasks started since the last
+ * sample (or the age of the queue head, if larger), worker utilization and throughput. When tasks wait longer than the target
+ * while all workers are busy, the concurrency limit grows by {@code increaseStep}; when
+ * waits are well below target and workers are mostly idle, it shrinks by
+ * {@code decreaseFactor}. A direction must hold for {@code hysteresisSamples}
+ * consecutive samples before it is acted on, and the streak restarts after every
+ * change, so the pool does not oscillate around the target.
+ *
+ * The limit becomes the core size; the maximum keeps the configured headroom above it
+ * for bursts that overflow the queue.
+ *
+ * In {@code threadpool.mode=virtual} the executor's size is a concurrency cap
+ * ({@code threadpool.virtual.maxConcurrency}), not a thread count worth tuning, and its
+ * bounds have nothing to do with the platform pool's; the controller then leaves the
+ * executor alone and only reports its size as the limit.
+ */
+@Component
+@ConditionalOnProperty(prefix = "threadpool.adaptive", name = "enabled", havingValue = "true")
+public class AdaptivePoolController {
+    private static final Logger logger = LoggerFactory.getLogger(AdaptivePoolController.class);
+
+    /** Below this fraction of the target wait, with low utilization, the pool may shrink. */
+    private static final double LOW_WAIT_RATIO = 0.5;
+    private static final double HIGH_UTILIZATION = 0.9;
+    private static final double LOW_UTILIZATION = 0.5;
+
+    enum Decision { INCREASE, DECREASE, HOLD }
+
+    private final GracefulThreadPoolExecutor executor;
+    private final int minPoolSize;
+    private final int maxPoolSize;
+    private final long targetQueueWaitNanos;
+    private final int hysteresisSamples;
+    private final int increaseStep;
+    private final double decreaseFactor;
+    private final int headroom;
+    private final boolean active;
+
+    private final Counter increases;
+    private final Counter decreases;
+
+    private long lastWaitNanos;
+    private long lastTimedCount;
+    private long lastCompleted;
+    private long lastSampleNanos;
+    private int pressureStreak;
+    private int idleStreak;
+
+    private volatile int limit;
+    private volatile double lastAvgWaitMillis;
+    private volatile double lastUtilization;
+    private volatile double lastThroughput;
+
+    public AdaptivePoolController(GracefulThreadPoolExecutor executor, MeterRegistry registry,
+                                  @Value("${threadpool.adaptive.minPoolSize:1}") int minPoolSize,
+                                  @Value("${threadpool.adaptive.maxPoolSize:24}") int maxPoolSize,
+                                  @Value("${threadpool.adaptive.targetQueueWaitMillis:200}") long targetQueueWaitMillis,
+                                  @Value("${threadpool.adaptive.hysteresisSamples:3}") int hysteresisSamples,
+                                  @Value("${threadpool.adaptive.increaseStep:1}") int increaseStep,
+                                  @Value("${threadpool.adaptive.decreaseFactor:0.75}") double decreaseFactor) {
+        this(executor, registry, minPoolSize, maxPoolSize, targetQueueWaitMillis, hysteresisSamples, increaseStep,
+                decreaseFactor, "platform");
+    }
+
+    @Autowired
+    public AdaptivePoolController(GracefulThreadPoolExecutor executor, MeterRegistry registry,
+                                  @Value("${threadpool.adaptive.minPoolSize:1}") int minPoolSize,
+                                  @Value("${threadpool.adaptive.maxPoolSize:24}") int maxPoolSize,
+                                  @Value("${threadpool.adaptive.targetQueueWaitMillis:200}") long targetQueueWaitMillis,
+                                  @Value("${threadpool.adaptive.hysteresisSamples:3}") int hysteresisSamples,
+                                  @Value("${threadpool.adaptive.increaseStep:1}") int increaseStep,
+                                  @Value("${threadpool.adaptive.decreaseFactor:0.75}") double decreaseFactor,
+                                  @Value("${threadpool.mode:platform}") String mode) {
+        if (minPoolSize < 1 || maxPoolSize < minPoolSize) {
+            throw new IllegalArgumentException("threadpool.adaptive requires 1 <= minPoolSize <= maxPoolSize");
+        }
+        if (decreaseFactor <= 0 || decreaseFactor >= 1) {
+            throw new IllegalArgumentException("threadpool.adaptive.decreaseFactor must be in (0, 1)");
+        }
+        this.executor = executor;
+        this.minPoolSize = minPoolSize;
+        this.maxPoolSize = maxPoolSize;
+        this.targetQueueWaitNanos = TimeUnit.MILLISECONDS.toNanos(targetQueueWaitMillis);
+        this.hysteresisSamples = Math.max(1, hysteresisSamples);
+        this.increaseStep = Math.max(1, increaseStep);
+        this.decreaseFactor = decreaseFactor;
+        this.headroom = Math.max(0, executor.getMaximumPoolSize() - executor.getCorePoolSize());
+        this.active = !"virtual".equalsIgnoreCase(mode);
+        this.limit = active ? clamp(executor.getCorePoolSize()) : executor.getCorePoolSize();
+
+        this.lastWaitNanos = executor.getTotalQueueWaitNanos();
+        this.lastTimedCount = executor.getTimedTaskCount();
+        this.lastCompleted = executor.getCompletedTaskCount();
+        this.lastSampleNanos = System.nanoTime();
+
+        Gauge.builder("threadpool.adaptive.limit", this, c -> c.limit)
+                .description("Concurrency limit chosen by the adaptive controller").register(registry);
+        Gauge.builder("threadpool.adaptive.queue.wait", this, c -> c.lastAvgWaitMillis)
+                .baseUnit("milliseconds").description("Average queue wait in the last sample").register(registry);
+        Gauge.builder("threadpool.adaptive.utilization", this, c -> c.lastUtilization)
+                .description("Busy workers / limit in the last sample").register(registry);
+        Gauge.builder("threadpool.adaptive.throughput", this, c -> c.lastThroughput)
+                .baseUnit("tasks/s").description("Completed tasks per second in the last sample").register(registry);
+        increases = Counter.builder("threadpool.adaptive.decisions").tag("action", "increase").register(registry);
+        decreases = Counter.builder("threadpool.adaptive.decisions").tag("action", "decrease").register(registry);
+
+        if (!active) {
+            logger.info("Adaptive pool sizing disabled in virtual mode, concurrency stays at {}", limit);
+            return;
+        }
+        apply(limit);
+        logger.info("Adaptive pool sizing enabled: limit={} bounds=[{}, {}] targetWait={}ms",
+                limit, minPoolSize, maxPoolSize, targetQueueWaitMillis);
+    }
+
+    @Scheduled(fixedDelayString = "${threadpool.adaptive.intervalMillis:1000}")
+    public synchronized void adjust() {
+        if (!active) {
+            return;
+        }
+        long now = System.nanoTime();
+        long waitNanos = executor.getTotalQueueWaitNanos();
+        long timedCount = executor.getTimedTaskCount();
+        long completed = executor.getCompletedTaskCount();
+
+        long started = timedCount - lastTimedCount;
+        long avgWaitNanos = started > 0 ? (waitNanos - lastWaitNanos) / started : 0;
+        // a saturated pool may start nothing in an interval; the head of the queue
+        // still shows how long work is waiting
+        Runnable head = executor.getQueue().peek();
+        if (head instanceof TimestampedTask) {
+            avgWaitNanos = Math.max(avgWaitNanos, now - ((TimestampedTask) head).getEnqueuedNanos());
+        }
+        double utilization = (double) executor.getActiveCount() / limit;
+        double elapsedSeconds = Math.max(1, now - lastSampleNanos) / 1e9;
+
+        lastAvgWaitMillis = avgWaitNanos / 1e6;
+        lastUtilization = utilization;
+        lastThroughput = (completed - lastCompleted) / elapsedSeconds;
+        lastWaitNanos = waitNanos;
+        lastTimedCount = timedCount;
+        lastCompleted = completed;
+        lastSampleNanos = now;
+
+        Decision decision = decide(avgWaitNanos, utilization, executor.getQueue().size());
+        if (decision == Decision.HOLD) {
+            return;
+        }
+        int previous = limit;
+        int next = decision == Decision.INCREASE
+                ? clamp(previous + increaseStep)
+                : clamp((int) Math.floor(previous * decreaseFactor));
+        if (next == previous) {
+            return;
+        }
+        limit = next;
+        apply(next);
+        (decision == Decision.INCREASE ? increases : decreases).increment();
+        logger.info("Adaptive pool {} limit {} -> {} (avgWait={}ms utilization={} throughput={}/s)",
+                decision, previous, next, String.format("%.1f", lastAvgWaitMillis),
+                String.format("%.2f", utilization), String.format("%.1f", lastThroughput));
+    }
+
+    /**
+     * Hysteresis: returns a direction only after it has been observed for
+     * {@code hysteresisSamples} consecutive samples, then starts counting again.
+     */
+    Decision decide(long avgWaitNanos, double utilization, int queued) {
+        boolean pressure = avgWaitNanos > targetQueueWaitNanos && utilization >= HIGH_UTILIZATION && queued > 0;
+        boolean idle = avgWaitNanos < targetQueueWaitNanos * LOW_WAIT_RATIO && utilization < LOW_UTILIZATION;
+        pressureStreak = pressure ? pressureStreak + 1 : 0;
+        idleStreak = idle ? idleStreak + 1 : 0;
+        if (pressureStreak >= hysteresisSamples) {
+            pressureStreak = 0;
+            return Decision.INCREASE;
+        }
+        if (idleStreak >= hysteresisSamples) {
+            idleStreak = 0;
+            return Decision.DECREASE;
+        }
+        return Decision.HOLD;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    private void apply(int newLimit) {
+        int newMax = newLimit + headroom;
+        // keep core <= max at every step, whichever direction we move in
+        if (newLimit > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(newMax);
+            executor.setCorePoolSize(newLimit);
+        } else {
+            executor.setCorePoolSize(newLimit);
+            executor.setMaximumPoolSize(newMax);
+        }
+    }
+
+    private int clamp(int value) {
+        return Math.max(minPoolSize, Math.min(maxPoolSize, value));
+    }
+}
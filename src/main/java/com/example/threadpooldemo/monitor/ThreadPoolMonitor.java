@@ -1,33 +1,43 @@
 package com.example.threadpooldemo.monitor;
 
+import com.example.threadpooldemo.config.BulkheadRegistry;
+import com.example.threadpooldemo.config.GracefulThreadPoolExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.util.concurrent.ThreadPoolExecutor;
-
+import java.util.Map;
 @Component
 public class ThreadPoolMonitor {
     private static final Logger logger = LoggerFactory.getLogger(ThreadPoolMonitor.class);
 
-    private final ThreadPoolExecutor executor;
+    private final BulkheadRegistry bulkheads;
     private final int monitorIntervalSeconds;
 
-    public ThreadPoolMonitor(ThreadPoolExecutor executor,
+    public ThreadPoolMonitor(BulkheadRegistry bulkheads,
                              @Value("${threadpool.monitorIntervalSeconds:5}") int monitorIntervalSeconds) {
-        this.executor = executor;
+        this.bulkheads = bulkheads;
         this.monitorIntervalSeconds = monitorIntervalSeconds;
     }
 
+    /**
+     * Logs one line per pool: the shared executor as {@code default}, then every
+     * bulkhead pool with its rejection count.
+     */
     @Scheduled(fixedDelayString = "${threadpool.monitorIntervalSeconds:5}000")
     public void report() {
-        logger.info("ThreadPool stats - core={}, active={}, max={}, completed={}, queued={}",
-                executor.getCorePoolSize(),
-                executor.getActiveCount(),
-                executor.getMaximumPoolSize(),
-                executor.getCompletedTaskCount(),
-                executor.getQueue().size());
+        for (Map.Entry<String, GracefulThreadPoolExecutor> pool : bulkheads.getExecutors().entrySet()) {
+            GracefulThreadPoolExecutor executor = pool.getValue();
+            logger.info("ThreadPool stats [{}] - core={}, active={}, max={}, completed={}, queued={}, rejected={}",
+                    pool.getKey(),
+                    executor.getCorePoolSize(),
+                    executor.getActiveCount(),
+                    executor.getMaximumPoolSize(),
+                    executor.getCompletedTaskCount(),
+                    executor.getQueue().size(),
+                    executor.getRejectedCount());
+        }
     }
 }
@@ -0,0 +1,151 @@
+package com.example.threadpooldemo.processor;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Splits the iterations of a large task into chunks (tiles) and runs them on a
+ * work-stealing {@link ForkJoinPool}. The calling worker waits for all chunks, so the
+ * task still runs, retries and reports its status as one logical task; only its wall
+ * clock time shrinks when cores are idle.
+ *
+ * Tasks with a complexity above {@code threadpool.split.threshold} are split into
+ * chunks of at most {@code threadpool.split.chunkSize} iterations, on a pool of
+ * {@code threadpool.split.parallelism} threads (0 = number of processors).
+ */
+@Component
+@ConditionalOnProperty(prefix = "threadpool.split", name = "enabled", havingValue = "true")
+public class ChunkedExecution {
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedExecution.class);
+
+    /**
+     * One unit of work of a task, identified by its index in {@code [0, complexity)}.
+     */
+    @FunctionalInterface
+    public interface Iteration {
+        void run(int index) throws InterruptedException;
+    }
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+    private final int chunkSize;
+
+    @Autowired
+    public ChunkedExecution(@Value("${threadpool.split.threshold:4}") int threshold,
+                            @Value("${threadpool.split.chunkSize:1}") int chunkSize,
+                            @Value("${threadpool.split.parallelism:0}") int parallelism) {
+        this(new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(),
+                ChunkedExecution::newWorker, null, false), threshold, chunkSize);
+    }
+
+    public ChunkedExecution(ForkJoinPool pool, int threshold, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("threadpool.split.chunkSize must be at least 1");
+        }
+        this.pool = pool;
+        this.threshold = threshold;
+        this.chunkSize = chunkSize;
+        logger.info("Chunked execution enabled: threshold={} chunkSize={} parallelism={}",
+                threshold, chunkSize, pool.getParallelism());
+    }
+
+    public boolean shouldSplit(int complexity) {
+        return complexity > threshold;
+    }
+
+    /**
+     * Runs {@code iteration} for every index in {@code [0, complexity)} and waits for all
+     * of them. Chunks stop starting new iterations once {@code cancelled} returns true,
+     * when one of them fails, or when the calling thread is interrupted; in the last case
+     * the {@link InterruptedException} is rethrown to the caller. A failed iteration is
+     * rethrown as it was (unchecked) or wrapped in an {@link IllegalStateException}.
+     */
+    public void run(int complexity, Iteration iteration, BooleanSupplier cancelled) throws InterruptedException {
+        AtomicBoolean abort = new AtomicBoolean();
+        BooleanSupplier stop = () -> abort.get() || cancelled.getAsBoolean();
+        ForkJoinTask<Void> root = pool.submit(new Chunk(0, complexity, iteration, stop));
+        try {
+            root.get();
+        } catch (InterruptedException e) {
+            abort.set(true);
+            root.cancel(false);
+            throw e;
+        } catch (ExecutionException e) {
+            abort.set(true);
+            Throwable cause = e.getCause();
+            // ForkJoinTask rethrows a failure from another thread as a copy of the same
+            // type that wraps the original, once per join it crosses; report the original
+            while (cause != null && cause.getCause() != null && cause.getCause().getClass() == cause.getClass()) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Chunk failed", cause);
+        }
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private static ForkJoinWorkerThread newWorker(ForkJoinPool pool) {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("task-split-" + thread.getPoolIndex());
+        return thread;
+    }
+
+    /**
+     * Halves its range until it is at most one chunk long, then runs it.
+     */
+    private final class Chunk extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final Iteration iteration;
+        private final BooleanSupplier stop;
+
+        Chunk(int from, int to, Iteration iteration, BooleanSupplier stop) {
+            this.from = from;
+            this.to = to;
+            this.iteration = iteration;
+            this.stop = stop;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                for (int i = from; i < to && !stop.getAsBoolean(); i++) {
+                    try {
+                        iteration.run(i);
+                    } catch (InterruptedException e) {
+                        // only happens when the pool itself is shut down
+                        Thread.currentThread().interrupt();
+                        throw new CancellationException("Chunk interrupted");
+                    }
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Chunk(from, mid, iteration, stop), new Chunk(mid, to, iteration, stop));
+        }
+    }
+}
@@ -1,9 +1,13 @@
 package com.example.threadpooldemo.processor;
 
+import com.example.threadpooldemo.model.TaskState;
+import com.example.threadpooldemo.model.TaskStatus;
 import com.example.threadpooldemo.repository.TaskRepositoryPort;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.CompletableFuture;
+
 public class ImageProcessorTask implements Runnable {
     private static final Logger logger = LoggerFactory.getLogger(ImageProcessorTask.class);
 
@@ -13,21 +17,66 @@ public class ImageProcessorTask implements Runnable {
     private final TaskRepositoryPort repository;
     private final int maxRetryAttempts;
     private final long retryDelayMillis;
+    private final ChunkedExecution chunked;
+    private final ResultCache results;
     private volatile boolean cancelled = false;
+    private volatile boolean timedOut = false;
+    private volatile TaskState lastState = TaskState.QUEUED;
+    private volatile CompletableFuture<String> awaited;
     private int currentAttempt = 1;
 
     public ImageProcessorTask(String id, String fileName, int complexity, TaskRepositoryPort repository, 
                             int maxRetryAttempts, long retryDelayMillis) {
+        this(id, fileName, complexity, repository, maxRetryAttempts, retryDelayMillis, null);
+    }
+
+    /**
+     * With a non-null {@code chunked}, large tasks spread their iterations over its
+     * fork/join pool instead of running them one after another on this thread.
+     */
+    public ImageProcessorTask(String id, String fileName, int complexity, TaskRepositoryPort repository,
+                            int maxRetryAttempts, long retryDelayMillis, ChunkedExecution chunked) {
+        this(id, fileName, complexity, repository, maxRetryAttempts, retryDelayMillis, chunked, null);
+    }
+
+    /**
+     * With a non-null {@code results}, a task reuses the result of an earlier or
+     * concurrent task with the same file name and complexity instead of processing it
+     * again.
+     */
+    public ImageProcessorTask(String id, String fileName, int complexity, TaskRepositoryPort repository,
+                            int maxRetryAttempts, long retryDelayMillis, ChunkedExecution chunked,
+                            ResultCache results) {
         this.id = id;
         this.fileName = fileName;
         this.complexity = complexity;
         this.repository = repository;
         this.maxRetryAttempts = maxRetryAttempts;
         this.retryDelayMillis = retryDelayMillis;
+        this.chunked = chunked;
+        this.results = results;
     }
 
     public void cancel() {
         cancelled = true;
+        release();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Like {@link #cancel()}, but the attempt reports TIMED_OUT when it stops.
+     */
+    public void timeOut() {
+        timedOut = true;
+        cancelled = true;
+        release();
+    }
+
+    public boolean isTimedOut() {
+        return timedOut;
     }
 
     public boolean shouldRetry() {
@@ -42,10 +91,50 @@ public class ImageProcessorTask implements Runnable {
         return currentAttempt;
     }
 
+    /**
+     * Set when the last attempt found an identical execution in flight and returned
+     * without a result, so its worker is free while it waits. Completes with the id of
+     * the task that produced the result, or null if that execution stopped without one
+     * or this task was stopped meanwhile; the caller then calls {@link #settle}.
+     */
+    public CompletableFuture<String> getAwaited() {
+        return awaited;
+    }
+
+    /**
+     * Ends an attempt that waited for an identical execution: COMPLETED if it produced
+     * the result, CANCELLED or TIMED_OUT if this task was stopped meanwhile. Returns
+     * false if the execution stopped without a result and the attempt has to run again.
+     */
+    public boolean settle(String producer) {
+        awaited = null;
+        if (cancelled) {
+            setStatus(timedOut ? TaskStatus.TIMED_OUT : TaskStatus.CANCELLED, null);
+            return true;
+        }
+        if (producer == null) {
+            return false;
+        }
+        setStatus(TaskStatus.COMPLETED, null);
+        logger.info("Task {} completed with the result of task {}", id, producer);
+        return true;
+    }
+
+    /**
+     * State this task last reported, used to attribute the outcome of an attempt.
+     */
+    public TaskState getLastState() {
+        return lastState;
+    }
+
     public String getId() {
         return id;
     }
 
+    public String getFileName() {
+        return fileName;
+    }
+
     public int getMaxRetryAttempts() {
         return maxRetryAttempts;
     }
@@ -54,7 +143,7 @@ public class ImageProcessorTask implements Runnable {
     public void run() {
         String threadName = Thread.currentThread().getName();
         try {
-            repository.updateStatus(id, String.format("ATTEMPT_%d_OF_%d", currentAttempt, maxRetryAttempts), threadName);
+            setStatus(TaskStatus.running(currentAttempt, maxRetryAttempts), threadName);
             logger.info("Started processing {} (id={}) on {} attempt {}/{}", fileName, id, threadName, currentAttempt, maxRetryAttempts);
 
             // Even invalid complexity should trigger retry mechanism
@@ -62,21 +151,30 @@ public class ImageProcessorTask implements Runnable {
                 throw new IllegalArgumentException("Invalid complexity value: " + complexity);
             }
 
-            for (int i = 0; i < complexity; i++) {
-                if (Thread.currentThread().isInterrupted() || cancelled) {
-                    repository.updateStatus(id, "CANCELLED", threadName);
-                    logger.warn("Task {} cancelled/interrupted on attempt {}", id, currentAttempt);
+            boolean produced;
+            if (results == null) {
+                produced = process();
+            } else {
+                CompletableFuture<String> flight = results.compute(new ResultCache.Key(fileName, complexity), id, this::process);
+                if (!flight.isDone()) {
+                    await(flight);
+                    logger.info("Task {} waits for an identical execution in flight, releasing {}", id, threadName);
                     return;
                 }
-                Thread.sleep(200L + (long) (Math.random() * 200));
+                produced = flight.join() != null;
+            }
+            if (!produced) {
+                setStatus(timedOut ? TaskStatus.TIMED_OUT : TaskStatus.CANCELLED, threadName);
+                logger.warn("Task {} cancelled/interrupted on attempt {}", id, currentAttempt);
+                return;
             }
 
-            repository.updateStatus(id, "COMPLETED", threadName);
+            setStatus(TaskStatus.COMPLETED, threadName);
             logger.info("Task {} completed successfully after attempt {}", id, currentAttempt);
 
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            repository.updateStatus(id, "INTERRUPTED", threadName);
+            setStatus(timedOut ? TaskStatus.TIMED_OUT : TaskStatus.INTERRUPTED, threadName);
             throw new RuntimeException("Task interrupted", e);
         } catch (Exception e) {
             handleTaskFailure(e, threadName);
@@ -84,19 +182,68 @@ public class ImageProcessorTask implements Runnable {
         }
     }
 
+    private void await(CompletableFuture<String> flight) {
+        CompletableFuture<String> waiting = new CompletableFuture<>();
+        flight.whenComplete((producer, error) -> waiting.complete(error == null ? producer : null));
+        awaited = waiting;
+        if (cancelled) {
+            waiting.complete(null);
+        }
+    }
+
+    /**
+     * Stops waiting for an execution in flight; {@link #settle} then reports the stop.
+     */
+    private void release() {
+        CompletableFuture<String> waiting = awaited;
+        if (waiting != null) {
+            waiting.complete(null);
+        }
+    }
+
+    /**
+     * Processes all iterations, split into chunks if configured. Returns false if
+     * cancellation stopped it first.
+     */
+    private boolean process() throws InterruptedException {
+        if (chunked != null && chunked.shouldSplit(complexity)) {
+            chunked.run(complexity, i -> processTile(), () -> cancelled);
+            return !cancelled;
+        }
+        for (int i = 0; i < complexity; i++) {
+            if (Thread.currentThread().isInterrupted() || cancelled) {
+                return false;
+            }
+            processTile();
+        }
+        return true;
+    }
+
+    /**
+     * Simulated work for one unit of complexity.
+     */
+    private static void processTile() throws InterruptedException {
+        Thread.sleep(200L + (long) (Math.random() * 200));
+    }
+
     private void handleTaskFailure(Exception e, String threadName) {
         boolean canRetry = currentAttempt < maxRetryAttempts;
         if (canRetry) {
-            repository.updateStatus(id, String.format("FAILED_ATTEMPT_%d_RETRYING", currentAttempt), threadName);
+            setStatus(TaskStatus.retrying(currentAttempt, maxRetryAttempts), threadName);
             logger.warn("Task {} failed on attempt {} with error: {}. Retrying...", id, currentAttempt, e.getMessage());
             currentAttempt++;
         } else {
-            repository.updateStatus(id, "FAILED_PERMANENTLY", threadName);
+            setStatus(TaskStatus.FAILED_PERMANENTLY, threadName);
             logger.error("Task {} failed permanently after {} attempts. Error: {}", id, currentAttempt, e.getMessage());
         }
     }
 
 
+    private void setStatus(TaskStatus status, String threadName) {
+        lastState = status.getState();
+        repository.updateStatus(id, status, threadName);
+    }
+
     @Override
     public String toString() {
         return "ImageProcessorTask{" + id + ":" + fileName + "}";
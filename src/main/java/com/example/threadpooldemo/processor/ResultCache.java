@@ -0,0 +1,170 @@
+package com.example.threadpooldemo.processor;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shares processing results between tasks with the same input: the file name and the
+ * processing parameters. A task whose result is cached completes without doing the
+ * work again, and a task whose input is being processed by another task right now
+ * gets that execution's future (single flight) instead of starting its own, and
+ * continues when it completes without holding a worker in the meantime. Every task
+ * still has its own id and reports its own status; only the work is shared.
+ *
+ * At most {@code app.resultCache.maxEntries} results are kept, evicting the least
+ * recently used. Lookups are counted in {@code threadpool.result.cache} by
+ * {@code result=hit|miss|coalesced}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.resultCache", name = "enabled", havingValue = "true")
+public class ResultCache {
+
+    /**
+     * Identity of a task's input. Processing is simulated and no file content is read,
+     * so the file name stands in for the content.
+     */
+    public static final class Key {
+        private final String fileName;
+        private final int complexity;
+
+        public Key(String fileName, int complexity) {
+            this.fileName = fileName;
+            this.complexity = complexity;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return complexity == other.complexity && Objects.equals(fileName, other.fileName);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Objects.hashCode(fileName) + complexity;
+        }
+
+        @Override
+        public String toString() {
+            return fileName + "@" + complexity;
+        }
+    }
+
+    /**
+     * The work that produces a result. Returns false if it stopped without one, for
+     * example because its task was cancelled.
+     */
+    @FunctionalInterface
+    public interface Computation {
+        boolean run() throws InterruptedException;
+    }
+
+    // id of the task that produced each result, in access order for LRU eviction
+    private final LinkedHashMap<Key, String> results;
+    private final Map<Key, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalesced;
+
+    @Autowired
+    public ResultCache(MeterRegistry registry, @Value("${app.resultCache.maxEntries:1000}") int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("app.resultCache.maxEntries must be at least 1");
+        }
+        this.results = new LinkedHashMap<Key, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, String> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.hits = counter(registry, "hit");
+        this.misses = counter(registry, "miss");
+        this.coalesced = counter(registry, "coalesced");
+        Gauge.builder("threadpool.result.cache.size", this, ResultCache::size)
+                .description("Processing results held by the result cache").register(registry);
+    }
+
+    /**
+     * Makes the result for {@code key} available to the calling task and returns the
+     * id of the task that produced it. The future is already complete for a cached
+     * result, and when the caller ran {@code work} itself and cached what it produced
+     * (null if the work stopped without a result). For an identical execution in flight
+     * it is that execution's outcome: the caller should continue once it completes,
+     * not block a thread on it, and call this again if it completes with null because
+     * the execution stopped without a result.
+     */
+    public CompletableFuture<String> compute(Key key, String taskId, Computation work) throws InterruptedException {
+        while (true) {
+            String cached = get(key);
+            if (cached != null) {
+                hits.increment();
+                return CompletableFuture.completedFuture(cached);
+            }
+            CompletableFuture<String> flight = new CompletableFuture<>();
+            CompletableFuture<String> existing = inFlight.putIfAbsent(key, flight);
+            if (existing == null) {
+                misses.increment();
+                return CompletableFuture.completedFuture(lead(key, taskId, flight, work) ? taskId : null);
+            }
+            if (!existing.isDone()) {
+                coalesced.increment();
+                // a copy, so the caller cannot complete the shared flight
+                return existing.copy();
+            }
+            // the execution finished between the two lookups; look again
+        }
+    }
+
+    public synchronized String get(Key key) {
+        return results.get(key);
+    }
+
+    public synchronized int size() {
+        return results.size();
+    }
+
+    public synchronized void clear() {
+        results.clear();
+    }
+
+    private boolean lead(Key key, String taskId, CompletableFuture<String> flight, Computation work)
+            throws InterruptedException {
+        boolean produced = false;
+        try {
+            produced = work.run();
+            return produced;
+        } finally {
+            if (produced) {
+                put(key, taskId);
+            }
+            inFlight.remove(key, flight);
+            // waiting tasks retry on their own when this one produced nothing
+            flight.complete(produced ? taskId : null);
+        }
+    }
+
+    private synchronized void put(Key key, String taskId) {
+        results.put(key, taskId);
+    }
+
+    private static Counter counter(MeterRegistry registry, String result) {
+        return Counter.builder("threadpool.result.cache").tag("result", result)
+                .description("Result cache lookups of started tasks").register(registry);
+    }
+}
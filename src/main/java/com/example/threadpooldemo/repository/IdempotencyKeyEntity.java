@@ -0,0 +1,48 @@
+package com.example.threadpooldemo.repository;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+import java.time.Instant;
+
+/**
+ * Maps a client-supplied idempotency key to the task first submitted with it. Rows are
+ * written with a single conditional insert, so the entity is only read and purged
+ * through JPA; creation time is indexed for the expiry sweep.
+ */
+@Entity
+@Table(name = "idempotency_keys", indexes = @Index(name = "idx_idempotency_keys_created_at", columnList = "created_at"))
+public class IdempotencyKeyEntity {
+    @Id
+    @Column(name = "idempotency_key")
+    private String key;
+
+    @Column(name = "task_id", nullable = false)
+    private String taskId;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    public IdempotencyKeyEntity() { }
+
+    public IdempotencyKeyEntity(String key, String taskId, Instant createdAt) {
+        this.key = key;
+        this.taskId = taskId;
+        this.createdAt = createdAt;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getTaskId() {
+        return taskId;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+}
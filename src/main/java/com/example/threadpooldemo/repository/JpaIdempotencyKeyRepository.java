@@ -0,0 +1,45 @@
+package com.example.threadpooldemo.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+public interface JpaIdempotencyKeyRepository extends JpaRepository<IdempotencyKeyEntity, String> {
+
+    @Query("SELECT k.taskId FROM IdempotencyKeyEntity k WHERE k.key = :key AND k.createdAt >= :notBefore")
+    Optional<String> findTaskId(@Param("key") String key, @Param("notBefore") Instant notBefore);
+
+    /**
+     * Claims the key for the task unless a row for it already exists, in one statement.
+     * Returns the number of inserted rows (0 or 1). The check is not atomic with the
+     * insert: losing a race with a concurrent insert of the key throws a
+     * {@link org.springframework.dao.DataIntegrityViolationException} instead.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "INSERT INTO idempotency_keys (idempotency_key, task_id, created_at) "
+            + "SELECT :key, :taskId, :createdAt "
+            + "WHERE NOT EXISTS (SELECT 1 FROM idempotency_keys WHERE idempotency_key = :key)", nativeQuery = true)
+    int insertIfAbsent(@Param("key") String key, @Param("taskId") String taskId, @Param("createdAt") Instant createdAt);
+
+    /**
+     * Deletes the key's row if it was recorded before the cutoff, so an expired key can
+     * be claimed again before the sweep gets to it.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM IdempotencyKeyEntity k WHERE k.key = :key AND k.createdAt < :cutoff")
+    int deleteIfCreatedBefore(@Param("key") String key, @Param("cutoff") Instant cutoff);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM IdempotencyKeyEntity k WHERE k.createdAt < :cutoff")
+    int deleteAllCreatedBefore(@Param("cutoff") Instant cutoff);
+}
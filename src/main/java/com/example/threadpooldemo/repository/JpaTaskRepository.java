@@ -1,9 +1,122 @@
 package com.example.threadpooldemo.repository;
 
+import com.example.threadpooldemo.dto.TaskStatusDto;
+import com.example.threadpooldemo.model.TaskState;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface JpaTaskRepository extends JpaRepository<TaskEntity, String> {
 
+    /**
+     * Inserts the row only if no row with the same id exists, in one statement.
+     * Returns the number of inserted rows (0 or 1). The check is not atomic with the
+     * insert: losing a race with a concurrent insert of the id throws a
+     * {@link org.springframework.dao.DataIntegrityViolationException} instead.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "INSERT INTO tasks (id, file_name, state, attempt, max_attempts, assigned_thread, "
+            + "complexity, priority, workload, deadline) "
+            + "SELECT :id, :fileName, :state, :attempt, :maxAttempts, CAST(:thread AS VARCHAR(255)), "
+            + "CAST(:complexity AS INTEGER), CAST(:priority AS INTEGER), CAST(:workload AS VARCHAR(255)), "
+            + "CAST(:deadline AS TIMESTAMP(6) WITH TIME ZONE) "
+            + "WHERE NOT EXISTS (SELECT 1 FROM tasks WHERE id = :id)", nativeQuery = true)
+    int insertIfAbsent(@Param("id") String id, @Param("fileName") String fileName, @Param("state") short state,
+                       @Param("attempt") short attempt, @Param("maxAttempts") short maxAttempts,
+                       @Param("thread") String thread, @Param("complexity") Integer complexity,
+                       @Param("priority") Integer priority, @Param("workload") String workload,
+                       @Param("deadline") Instant deadline);
+
+    /**
+     * Moves the task to the new status if its current state is one of {@code allowed},
+     * which makes transition validation part of the same statement.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE TaskEntity t SET t.state = :state, t.attempt = :attempt, t.maxAttempts = :maxAttempts, "
+            + "t.assignedThread = :thread WHERE t.id = :id AND t.state IN :allowed")
+    int updateStatus(@Param("id") String id, @Param("state") TaskState state, @Param("attempt") short attempt,
+                     @Param("maxAttempts") short maxAttempts, @Param("thread") String thread,
+                     @Param("allowed") Collection<TaskState> allowed);
+
+    /**
+     * Conditional update used as a compare-and-set: the row only changes if its status
+     * still equals the expected one. The affected-row count tells whether it won.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE TaskEntity t SET t.state = :state, t.attempt = :attempt, t.maxAttempts = :maxAttempts, "
+            + "t.assignedThread = :thread WHERE t.id = :id AND t.state = :expectedState "
+            + "AND t.attempt = :expectedAttempt AND t.maxAttempts = :expectedMaxAttempts")
+    int compareAndUpdateStatus(@Param("id") String id, @Param("expectedState") TaskState expectedState,
+                               @Param("expectedAttempt") short expectedAttempt,
+                               @Param("expectedMaxAttempts") short expectedMaxAttempts,
+                               @Param("state") TaskState state, @Param("attempt") short attempt,
+                               @Param("maxAttempts") short maxAttempts, @Param("thread") String thread);
+
+    /**
+     * Returns the rows among {@code ids} whose state is one of {@code states}, locked
+     * until the surrounding transaction ends.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM TaskEntity t WHERE t.id IN :ids AND t.state IN :states")
+    List<TaskEntity> lockInStates(@Param("ids") Collection<String> ids, @Param("states") Collection<TaskState> states);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE TaskEntity t SET t.state = :state, t.attempt = :attempt, t.maxAttempts = :maxAttempts, "
+            + "t.assignedThread = :thread WHERE t.id IN :ids")
+    int updateStatusAll(@Param("ids") Collection<String> ids, @Param("state") TaskState state,
+                        @Param("attempt") short attempt, @Param("maxAttempts") short maxAttempts,
+                        @Param("thread") String thread);
+
+    /**
+     * Keyset page of the rows in one of the given states, ordered by id, loaded as
+     * entities so their submission parameters come along.
+     */
+    @Query("SELECT t FROM TaskEntity t WHERE (:after IS NULL OR t.id > :after) AND t.state IN :states ORDER BY t.id")
+    List<TaskEntity> findPageInStates(@Param("after") String after, @Param("states") Collection<TaskState> states,
+                                      Pageable pageable);
+
+    /**
+     * Highest id in numeric order for the decimal ids the service assigns: the
+     * lexicographically greatest among the longest ids.
+     */
+    @Query("SELECT MAX(t.id) FROM TaskEntity t WHERE LENGTH(t.id) = (SELECT MAX(LENGTH(u.id)) FROM TaskEntity u)")
+    String findLastId();
+
+    /**
+     * Keyset page ordered by id. Rows are projected straight into DTOs so nothing is
+     * added to the persistence context.
+     */
+    @Query("SELECT new com.example.threadpooldemo.dto.TaskStatusDto(t.id, t.fileName, t.state, t.attempt, "
+            + "t.maxAttempts, t.assignedThread) "
+            + "FROM TaskEntity t WHERE (:after IS NULL OR t.id > :after) "
+            + "AND (:state IS NULL OR t.state = :state) ORDER BY t.id")
+    List<TaskStatusDto> findPage(@Param("after") String after, @Param("state") TaskState state, Pageable pageable);
+
+    /**
+     * Streams DTO projections with a bounded JDBC fetch size. Must be consumed and
+     * closed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.example.threadpooldemo.dto.TaskStatusDto(t.id, t.fileName, t.state, t.attempt, "
+            + "t.maxAttempts, t.assignedThread) "
+            + "FROM TaskEntity t WHERE (:state IS NULL OR t.state = :state) ORDER BY t.id")
+    Stream<TaskStatusDto> streamAll(@Param("state") TaskState state);
 }
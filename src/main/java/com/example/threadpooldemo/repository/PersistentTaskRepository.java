@@ -1,35 +1,116 @@
 package com.example.threadpooldemo.repository;
 
 import com.example.threadpooldemo.dto.TaskStatusDto;
+import com.example.threadpooldemo.model.TaskSpec;
+import com.example.threadpooldemo.model.TaskState;
+import com.example.threadpooldemo.model.TaskStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Repository
 @ConditionalOnProperty(prefix = "app.persistence", name = "enabled", havingValue = "true")
 public class PersistentTaskRepository implements TaskRepositoryPort {
     private static final Logger logger = LoggerFactory.getLogger(PersistentTaskRepository.class);
 
+    /** Ids per IN list in bulk statements. */
+    private static final int IN_CHUNK = 500;
+
+    private static final Set<TaskState> UNFINISHED = EnumSet.of(
+            TaskState.QUEUED, TaskState.RUNNING, TaskState.RETRYING, TaskState.CANCELLATION_REQUESTED);
+
     private final JpaTaskRepository jpa;
+    private final JpaIdempotencyKeyRepository keys;
 
-    public PersistentTaskRepository(JpaTaskRepository jpa) {
+    public PersistentTaskRepository(JpaTaskRepository jpa, JpaIdempotencyKeyRepository keys) {
         this.jpa = jpa;
+        this.keys = keys;
     }
 
     @Override
     public void save(TaskStatusDto dto) {
-        logger.info("PersistentTaskRepository.save() called for id={}", dto.getId());
-        if (jpa.existsById(dto.getId())) {
+        TaskStatus status = dto.getTaskStatus();
+        TaskSpec spec = dto.getSpec();
+        int inserted;
+        try {
+            inserted = jpa.insertIfAbsent(dto.getId(), dto.getFileName(), status.getState().getCode(),
+                    (short) status.getAttempt(), (short) status.getMaxAttempts(), dto.getAssignedThread(),
+                    spec == null ? null : spec.getComplexity(), spec == null ? null : spec.getPriority(),
+                    spec == null ? null : spec.getWorkload(), spec == null ? null : spec.getDeadline());
+        } catch (DataIntegrityViolationException e) {
+            // NOT EXISTS is checked before the insert: a concurrent insert of the same id
+            // can still win in between and the primary key rejects this one
+            inserted = 0;
+        }
+        if (inserted == 0) {
             logger.warn("Task {} already exists, not overwriting", dto.getId());
+        }
+    }
+
+    /**
+     * Inserts all new rows in a single transaction. Existing ids are looked up with one
+     * query up front so the remaining entities can be persisted as a JDBC batch.
+     */
+    @Override
+    public void saveAll(Collection<TaskStatusDto> dtos) {
+        if (dtos.isEmpty()) {
+            return;
+        }
+        List<String> ids = dtos.stream().map(TaskStatusDto::getId).collect(Collectors.toList());
+        Set<String> existing = jpa.findAllById(ids).stream().map(TaskEntity::getId).collect(Collectors.toSet());
+        List<TaskEntity> entities = dtos.stream()
+                .filter(dto -> {
+                    if (existing.contains(dto.getId())) {
+                        logger.warn("Task {} already exists, not overwriting", dto.getId());
+                        return false;
+                    }
+                    return true;
+                })
+                .map(PersistentTaskRepository::toEntity)
+                .collect(Collectors.toList());
+        jpa.saveAllAndFlush(entities);
+        logger.info("PersistentTaskRepository.saveAll() flushed {} tasks", entities.size());
+    }
+
+    /**
+     * Writes the given states in one transaction, updating rows that exist and inserting
+     * the rest. Used by {@link WriteBehindTaskRepository} to flush coalesced transitions.
+     */
+    @Transactional
+    public void upsertAll(Collection<TaskStatusDto> dtos) {
+        if (dtos.isEmpty()) {
             return;
         }
-        TaskEntity e = new TaskEntity(dto.getId(), dto.getFileName(), dto.getStatus(), dto.getAssignedThread());
-        jpa.saveAndFlush(e);
-        logger.info("PersistentTaskRepository.save() flushed id={}", dto.getId());
+        List<String> ids = dtos.stream().map(TaskStatusDto::getId).collect(Collectors.toList());
+        Map<String, TaskEntity> existing = jpa.findAllById(ids).stream()
+                .collect(Collectors.toMap(TaskEntity::getId, Function.identity()));
+        List<TaskEntity> entities = dtos.stream().map(dto -> {
+            TaskEntity e = existing.get(dto.getId());
+            if (e == null) {
+                return toEntity(dto);
+            }
+            e.setStatus(dto.getTaskStatus());
+            e.setAssignedThread(dto.getAssignedThread());
+            return e;
+        }).collect(Collectors.toList());
+        jpa.saveAllAndFlush(entities);
     }
 
     @Override
@@ -45,23 +126,107 @@ public class PersistentTaskRepository implements TaskRepositoryPort {
     }
 
     @Override
-    public boolean updateStatus(String id, String status, String threadName) {
-        return jpa.findById(id).map(e -> {
-            e.setStatus(status);
-            e.setAssignedThread(threadName);
-            jpa.saveAndFlush(e);
-            return true;
-        }).orElse(false);
+    public List<TaskStatusDto> findPage(String afterId, int limit, TaskState state) {
+        return jpa.findPage(afterId, state, PageRequest.of(0, limit));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEach(TaskState state, Consumer<TaskStatusDto> consumer) {
+        try (Stream<TaskStatusDto> rows = jpa.streamAll(state)) {
+            rows.forEach(consumer);
+        }
+    }
+
+    @Override
+    public boolean updateStatus(String id, TaskStatus status, String threadName) {
+        return jpa.updateStatus(id, status.getState(), (short) status.getAttempt(), (short) status.getMaxAttempts(),
+                threadName, status.getState().getPredecessors()) > 0;
+    }
+
+    @Override
+    public boolean compareAndUpdateStatus(String id, TaskStatus expectedStatus, TaskStatus newStatus, String threadName) {
+        // the row must be in the expected state, so that state decides whether the move is legal
+        if (!expectedStatus.getState().canTransitionTo(newStatus.getState())) {
+            return false;
+        }
+        return jpa.compareAndUpdateStatus(id, expectedStatus.getState(), (short) expectedStatus.getAttempt(),
+                (short) expectedStatus.getMaxAttempts(), newStatus.getState(), (short) newStatus.getAttempt(),
+                (short) newStatus.getMaxAttempts(), threadName) > 0;
+    }
+
+    /**
+     * Locks the matching rows, then updates them with one statement per chunk, all in
+     * one transaction, so the returned ids are exactly the rows that changed.
+     */
+    @Override
+    @Transactional
+    public Set<String> updateStatusAll(Collection<String> ids, Set<TaskState> from, TaskStatus status, String threadName) {
+        EnumSet<TaskState> allowed = EnumSet.noneOf(TaskState.class);
+        allowed.addAll(from);
+        allowed.retainAll(status.getState().getPredecessors());
+        Set<String> updated = new LinkedHashSet<>();
+        if (allowed.isEmpty()) {
+            return updated;
+        }
+        List<String> all = new ArrayList<>(ids);
+        for (int start = 0; start < all.size(); start += IN_CHUNK) {
+            List<String> locked = jpa.lockInStates(all.subList(start, Math.min(all.size(), start + IN_CHUNK)), allowed)
+                    .stream().map(TaskEntity::getId).collect(Collectors.toList());
+            if (!locked.isEmpty()) {
+                jpa.updateStatusAll(locked, status.getState(), (short) status.getAttempt(),
+                        (short) status.getMaxAttempts(), threadName);
+                updated.addAll(locked);
+            }
+        }
+        return updated;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<TaskStatusDto> findUnfinished(String afterId, int limit) {
+        return jpa.findPageInStates(afterId, UNFINISHED, PageRequest.of(0, limit)).stream()
+                .map(e -> new TaskStatusDto(e.getId(), e.getFileName(), e.getStatus(), e.getAssignedThread(), e.getSpec()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public String findLastId() {
+        return jpa.findLastId();
+    }
+
+    @Override
+    public String findIdempotencyKey(String key, Instant notBefore) {
+        return keys.findTaskId(key, notBefore).orElse(null);
     }
 
+    /**
+     * An expired row for the key is deleted first; the conditional insert, or the primary
+     * key when two inserts race, then decides between concurrent claims and the
+     * surviving row is read back.
+     */
     @Override
-    public boolean compareAndUpdateStatus(String id, String expectedStatus, String newStatus, String threadName) {
-        return jpa.findById(id).map(e -> {
-            if (!expectedStatus.equals(e.getStatus())) return false;
-            e.setStatus(newStatus);
-            e.setAssignedThread(threadName);
-            jpa.saveAndFlush(e);
-            return true;
-        }).orElse(false);
+    public String saveIdempotencyKey(String key, String taskId, Instant createdAt, Instant notBefore) {
+        keys.deleteIfCreatedBefore(key, notBefore);
+        try {
+            if (keys.insertIfAbsent(key, taskId, createdAt) > 0) {
+                return taskId;
+            }
+        } catch (DataIntegrityViolationException e) {
+            // a concurrent claim inserted the key after the NOT EXISTS check; it won
+            logger.debug("Idempotency key {} was inserted concurrently", key);
+        }
+        return keys.findTaskId(key, notBefore).orElse(taskId);
+    }
+
+    @Override
+    public int deleteIdempotencyKeysBefore(Instant cutoff) {
+        return keys.deleteAllCreatedBefore(cutoff);
+    }
+
+    private static TaskEntity toEntity(TaskStatusDto dto) {
+        TaskEntity entity = new TaskEntity(dto.getId(), dto.getFileName(), dto.getTaskStatus(), dto.getAssignedThread());
+        entity.setSpec(dto.getSpec());
+        return entity;
     }
 }
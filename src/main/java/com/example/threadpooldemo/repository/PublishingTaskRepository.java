@@ -0,0 +1,109 @@
+package com.example.threadpooldemo.repository;
+
+import com.example.threadpooldemo.dto.TaskStatusDto;
+import com.example.threadpooldemo.model.TaskState;
+import com.example.threadpooldemo.model.TaskStatus;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Decorator that reports every successful {@link #updateStatus} and
+ * {@link #compareAndUpdateStatus} to a {@link TaskTransitionListener}. Updates that were
+ * refused (unknown task, illegal transition, lost compare) are not reported. Adds no
+ * locking of its own; ordering per task follows the delegate's.
+ */
+public class PublishingTaskRepository implements TaskRepositoryPort {
+    private final TaskRepositoryPort delegate;
+    private final TaskTransitionListener listener;
+
+    public PublishingTaskRepository(TaskRepositoryPort delegate, TaskTransitionListener listener) {
+        this.delegate = delegate;
+        this.listener = listener;
+    }
+
+    @Override
+    public void save(TaskStatusDto dto) {
+        delegate.save(dto);
+    }
+
+    @Override
+    public void saveAll(Collection<TaskStatusDto> dtos) {
+        delegate.saveAll(dtos);
+    }
+
+    @Override
+    public TaskStatusDto find(String id) {
+        return delegate.find(id);
+    }
+
+    @Override
+    public Collection<TaskStatusDto> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<TaskStatusDto> findPage(String afterId, int limit, TaskState state) {
+        return delegate.findPage(afterId, limit, state);
+    }
+
+    @Override
+    public void forEach(TaskState state, Consumer<TaskStatusDto> consumer) {
+        delegate.forEach(state, consumer);
+    }
+
+    @Override
+    public boolean updateStatus(String id, TaskStatus status, String threadName) {
+        if (!delegate.updateStatus(id, status, threadName)) {
+            return false;
+        }
+        listener.onTransition(id, status, threadName);
+        return true;
+    }
+
+    @Override
+    public boolean compareAndUpdateStatus(String id, TaskStatus expectedStatus, TaskStatus newStatus, String threadName) {
+        if (!delegate.compareAndUpdateStatus(id, expectedStatus, newStatus, threadName)) {
+            return false;
+        }
+        listener.onTransition(id, newStatus, threadName);
+        return true;
+    }
+
+    @Override
+    public Set<String> updateStatusAll(Collection<String> ids, Set<TaskState> from, TaskStatus status, String threadName) {
+        Set<String> updated = delegate.updateStatusAll(ids, from, status, threadName);
+        for (String id : updated) {
+            listener.onTransition(id, status, threadName);
+        }
+        return updated;
+    }
+
+    @Override
+    public List<TaskStatusDto> findUnfinished(String afterId, int limit) {
+        return delegate.findUnfinished(afterId, limit);
+    }
+
+    @Override
+    public String findLastId() {
+        return delegate.findLastId();
+    }
+
+    @Override
+    public String findIdempotencyKey(String key, Instant notBefore) {
+        return delegate.findIdempotencyKey(key, notBefore);
+    }
+
+    @Override
+    public String saveIdempotencyKey(String key, String taskId, Instant createdAt, Instant notBefore) {
+        return delegate.saveIdempotencyKey(key, taskId, createdAt, notBefore);
+    }
+
+    @Override
+    public int deleteIdempotencyKeysBefore(Instant cutoff) {
+        return delegate.deleteIdempotencyKeysBefore(cutoff);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.threadpooldemo.repository;
+
+import com.example.threadpooldemo.dto.TaskStatusDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Append-only, gzip-compressed archive of evicted task statuses. Each entry is one
+ * tab-separated line: id, fileName, status, assignedThread. Backslashes, tabs and line
+ * breaks inside a field are written as {@code \\}, {@code \t}, {@code \n} and
+ * {@code \r}. Every open appends a new gzip member, which standard gzip readers
+ * concatenate transparently.
+ */
+class TaskArchive implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(TaskArchive.class);
+
+    private final Path path;
+    private final BufferedWriter writer;
+
+    TaskArchive(Path path) throws IOException {
+        this.path = path;
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        GZIPOutputStream out = new GZIPOutputStream(
+                Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND), true);
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    synchronized void append(TaskStatusDto dto) {
+        try {
+            writeField(dto.getId());
+            writer.write('\t');
+            writeField(String.valueOf(dto.getFileName()));
+            writer.write('\t');
+            writeField(dto.getStatus());
+            writer.write('\t');
+            writeField(dto.getAssignedThread() != null ? dto.getAssignedThread() : "");
+            writer.write('\n');
+        } catch (IOException e) {
+            logger.error("Failed to archive task {} to {}: {}", dto.getId(), path, e.getMessage());
+        }
+    }
+
+    private void writeField(String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                default:
+                    writer.write(c);
+            }
+        }
+    }
+
+    synchronized void flush() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            logger.error("Failed to flush task archive {}: {}", path, e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            logger.error("Failed to close task archive {}: {}", path, e.getMessage());
+        }
+    }
+}
@@ -1,13 +1,34 @@
 package com.example.threadpooldemo.repository;
 
+import com.example.threadpooldemo.model.TaskSpec;
+import com.example.threadpooldemo.model.TaskState;
+import com.example.threadpooldemo.model.TaskStatus;
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import org.springframework.data.domain.Persistable;
 
+import java.time.Instant;
+
+/**
+ * Ids are assigned by the application, so the entity tracks whether it is new itself.
+ * Without this, Spring Data would treat every entity with an id as existing and issue
+ * a SELECT per row through merge() before inserting it.
+ *
+ * The status is stored as three small integer columns (state code, attempt, max
+ * attempts); the state column is indexed for status filtering. The submission
+ * parameters ({@link TaskSpec}) are kept in nullable columns so unfinished tasks can be
+ * enqueued again after a restart.
+ */
 @Entity
-@Table(name = "tasks")
-public class TaskEntity {
+@Table(name = "tasks", indexes = @Index(name = "idx_tasks_state", columnList = "state"))
+public class TaskEntity implements Persistable<String> {
     @Id
     private String id;
 
@@ -15,24 +36,58 @@ public class TaskEntity {
     private String fileName;
 
     @Column(nullable = false)
-    private String status;
+    @Convert(converter = TaskStateConverter.class)
+    private TaskState state;
+
+    @Column(nullable = false)
+    private short attempt;
+
+    @Column(nullable = false)
+    private short maxAttempts;
 
     @Column
     private String assignedThread;
 
+    @Column
+    private Integer complexity;
+
+    @Column
+    private Integer priority;
+
+    @Column
+    private String workload;
+
+    @Column
+    private Instant deadline;
+
+    @Transient
+    private boolean isNew = true;
+
     public TaskEntity() { }
 
-    public TaskEntity(String id, String fileName, String status, String assignedThread) {
+    public TaskEntity(String id, String fileName, TaskStatus status, String assignedThread) {
         this.id = id;
         this.fileName = fileName;
-        this.status = status;
         this.assignedThread = assignedThread;
+        setStatus(status);
     }
 
+    @Override
     public String getId() {
         return id;
     }
 
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
     public void setId(String id) {
         this.id = id;
     }
@@ -45,12 +100,14 @@ public class TaskEntity {
         this.fileName = fileName;
     }
 
-    public String getStatus() {
-        return status;
+    public TaskStatus getStatus() {
+        return TaskStatus.of(state, attempt, maxAttempts);
     }
 
-    public void setStatus(String status) {
-        this.status = status;
+    public void setStatus(TaskStatus status) {
+        this.state = status.getState();
+        this.attempt = (short) status.getAttempt();
+        this.maxAttempts = (short) status.getMaxAttempts();
     }
 
     public String getAssignedThread() {
@@ -60,4 +117,19 @@ public class TaskEntity {
     public void setAssignedThread(String assignedThread) {
         this.assignedThread = assignedThread;
     }
+
+    /**
+     * Returns the recorded submission parameters, or null for a row stored without them.
+     */
+    public TaskSpec getSpec() {
+        return complexity == null ? null
+                : new TaskSpec(complexity, priority == null ? 0 : priority, workload, deadline);
+    }
+
+    public void setSpec(TaskSpec spec) {
+        this.complexity = spec == null ? null : spec.getComplexity();
+        this.priority = spec == null ? null : spec.getPriority();
+        this.workload = spec == null ? null : spec.getWorkload();
+        this.deadline = spec == null ? null : spec.getDeadline();
+    }
 }
@@ -1,24 +1,80 @@
 package com.example.threadpooldemo.repository;
 
 import com.example.threadpooldemo.dto.TaskStatusDto;
+import com.example.threadpooldemo.model.TaskState;
+import com.example.threadpooldemo.model.TaskStatus;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Repository;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * In-memory repository implementation.
  * This bean is active when property app.persistence.enabled is not true (default false).
+ *
+ * Tasks that reached a terminal status are subject to the retention policy:
+ * app.retention.ttlSeconds evicts them once they have been terminal for that long,
+ * app.retention.maxEntries evicts the oldest terminal tasks whenever the store grows
+ * beyond that size, and app.retention.archivePath optionally appends evicted entries to
+ * a compressed archive. Active tasks are never evicted. A value of 0 disables a limit.
+ * Evictions and archived entries are exported as the counters
+ * {@code threadpool.retention.evictions} (tagged by reason) and
+ * {@code threadpool.retention.archived}.
  */
 @Repository
 @ConditionalOnProperty(prefix = "app.persistence", name = "enabled", havingValue = "false", matchIfMissing = true)
-public class TaskRepository implements TaskRepositoryPort {
+public class TaskRepository implements TaskRepositoryPort, MeterBinder {
     private static final Logger logger = LoggerFactory.getLogger(TaskRepository.class);
     private final Map<String, TaskStatusDto> store = new ConcurrentHashMap<>();
+    // Sorted id index for cursor pagination; only touched on insert and eviction, not on status updates.
+    private final NavigableSet<String> ids = new ConcurrentSkipListSet<>();
+
+    // Terminal transitions in the order they happened; the head is the oldest candidate for eviction.
+    private final Queue<TerminalEntry> terminalOrder = new ConcurrentLinkedQueue<>();
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final TaskArchive archive;
+    private final AtomicLong expiredEvictions = new AtomicLong();
+    private final AtomicLong capacityEvictions = new AtomicLong();
+    private final AtomicLong archivedCount = new AtomicLong();
+
+    public TaskRepository() {
+        this(0, 0, "");
+    }
+
+    @Autowired
+    public TaskRepository(@Value("${app.retention.ttlSeconds:0}") long ttlSeconds,
+                          @Value("${app.retention.maxEntries:0}") int maxEntries,
+                          @Value("${app.retention.archivePath:}") String archivePath) {
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.maxEntries = maxEntries;
+        this.archive = openArchive(archivePath);
+    }
 
     /**
      * Atomically saves a new task status.
@@ -27,8 +83,21 @@ public class TaskRepository implements TaskRepositoryPort {
     public void save(TaskStatusDto dto) {
         TaskStatusDto existing = store.putIfAbsent(dto.getId(), dto);
         if (existing != null) {
-            logger.warn("Task {} already exists with status {}, not overwriting with status {}", 
+            logger.warn("Task {} already exists with status {}, not overwriting with status {}",
                 dto.getId(), existing.getStatus(), dto.getStatus());
+            return;
+        }
+        ids.add(dto.getId());
+        afterWrite(dto);
+    }
+
+    /**
+     * Saves all task statuses, skipping ids that are already present.
+     */
+    @Override
+    public void saveAll(Collection<TaskStatusDto> dtos) {
+        for (TaskStatusDto dto : dtos) {
+            save(dto);
         }
     }
 
@@ -48,20 +117,62 @@ public class TaskRepository implements TaskRepositoryPort {
         return store.values();
     }
 
+    @Override
+    public List<TaskStatusDto> findPage(String afterId, int limit, TaskState state) {
+        List<TaskStatusDto> page = new ArrayList<>(Math.min(limit, 1024));
+        for (String id : afterId == null ? ids : ids.tailSet(afterId, false)) {
+            if (page.size() >= limit) {
+                break;
+            }
+            TaskStatusDto dto = store.get(id);
+            if (dto != null && (state == null || state == dto.getState())) {
+                page.add(dto);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Walks the sorted id index, so memory use does not depend on the number of tasks.
+     */
+    @Override
+    public void forEach(TaskState state, Consumer<TaskStatusDto> consumer) {
+        for (String id : ids) {
+            TaskStatusDto dto = store.get(id);
+            if (dto != null && (state == null || state == dto.getState())) {
+                consumer.accept(dto);
+            }
+        }
+    }
+
     /**
      * Atomically updates task status. Uses compute() to ensure atomic read-modify-write.
-     * Returns true if the status was updated, false if the task was not found.
+     * Returns true if the status was updated, false if the task was not found or the
+     * transition is not allowed from its current state.
      */
     @Override
-    public boolean updateStatus(String id, String status, String threadName) {
+    public boolean updateStatus(String id, TaskStatus status, String threadName) {
+        TaskStatusDto[] previous = new TaskStatusDto[1];
         TaskStatusDto updated = store.compute(id, (key, existing) -> {
+            previous[0] = existing;
             if (existing == null) {
                 logger.warn("Attempted to update non-existent task {}", id);
                 return null;
             }
+            if (!existing.getState().canTransitionTo(status.getState())) {
+                return existing;
+            }
             return existing.withStatusAndThread(status, threadName);
         });
-        return updated != null;
+        if (updated == null) {
+            return false;
+        }
+        if (updated == previous[0]) {
+            logger.debug("Ignoring illegal transition of task {} from {} to {}", id, updated.getStatus(), status);
+            return false;
+        }
+        afterWrite(updated);
+        return true;
     }
 
     /**
@@ -70,12 +181,199 @@ public class TaskRepository implements TaskRepositoryPort {
      * or the expected status did not match.
      */
     @Override
-    public boolean compareAndUpdateStatus(String id, String expectedStatus, String newStatus, String threadName) {
+    public boolean compareAndUpdateStatus(String id, TaskStatus expectedStatus, TaskStatus newStatus, String threadName) {
         TaskStatusDto current = find(id);
-        if (current == null || !expectedStatus.equals(current.getStatus())) {
+        if (current == null || !expectedStatus.equals(current.getTaskStatus())
+                || !current.getState().canTransitionTo(newStatus.getState())) {
             return false;
         }
-        TaskStatusDto updated = new TaskStatusDto(id, current.getFileName(), newStatus, threadName);
-        return store.replace(id, current, updated);
+        TaskStatusDto updated = current.withStatusAndThread(newStatus, threadName);
+        if (!store.replace(id, current, updated)) {
+            return false;
+        }
+        afterWrite(updated);
+        return true;
+    }
+
+    @Override
+    public Set<String> updateStatusAll(Collection<String> ids, Set<TaskState> from, TaskStatus status, String threadName) {
+        Set<String> updated = new LinkedHashSet<>();
+        for (String id : ids) {
+            TaskStatusDto[] applied = new TaskStatusDto[1];
+            store.computeIfPresent(id, (key, existing) -> {
+                if (!from.contains(existing.getState()) || !existing.getState().canTransitionTo(status.getState())) {
+                    return existing;
+                }
+                applied[0] = existing.withStatusAndThread(status, threadName);
+                return applied[0];
+            });
+            if (applied[0] != null && updated.add(id)) {
+                afterWrite(applied[0]);
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * In-memory tasks do not survive a restart, so only tasks of the running process
+     * are found here.
+     */
+    @Override
+    public List<TaskStatusDto> findUnfinished(String afterId, int limit) {
+        List<TaskStatusDto> page = new ArrayList<>(Math.min(limit, 1024));
+        for (String id : afterId == null ? ids : ids.tailSet(afterId, false)) {
+            if (page.size() >= limit) {
+                break;
+            }
+            TaskStatusDto dto = store.get(id);
+            if (dto != null && !dto.getState().isTerminal()) {
+                page.add(dto);
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public String findLastId() {
+        String last = null;
+        for (String id : ids) {
+            if (last == null || id.length() > last.length() || (id.length() == last.length() && id.compareTo(last) > 0)) {
+                last = id;
+            }
+        }
+        return last;
+    }
+
+    /**
+     * In-memory tasks do not outlive the process, so idempotency keys are kept only in
+     * the service's own cache; the repository does not store them.
+     */
+    @Override
+    public String findIdempotencyKey(String key, Instant notBefore) {
+        return null;
+    }
+
+    @Override
+    public String saveIdempotencyKey(String key, String taskId, Instant createdAt, Instant notBefore) {
+        return taskId;
+    }
+
+    @Override
+    public int deleteIdempotencyKeysBefore(Instant cutoff) {
+        return 0;
+    }
+
+    /**
+     * Evicts terminal tasks whose time-to-live has expired, then flushes the archive.
+     */
+    @Scheduled(fixedDelayString = "${app.retention.sweepIntervalMillis:10000}")
+    public void evictExpired() {
+        if (ttlNanos > 0) {
+            long now = System.nanoTime();
+            long evicted = 0;
+            TerminalEntry head;
+            while ((head = terminalOrder.peek()) != null && now - head.terminalSince >= ttlNanos) {
+                if (terminalOrder.remove(head) && evict(head)) {
+                    evicted++;
+                }
+            }
+            if (evicted > 0) {
+                expiredEvictions.addAndGet(evicted);
+                logger.info("Evicted {} expired terminal tasks, {} tasks retained", evicted, store.size());
+            }
+        }
+        // capacity evictions are archived without a TTL too
+        if (archive != null) {
+            archive.flush();
+        }
+    }
+
+    public long getExpiredEvictions() {
+        return expiredEvictions.get();
+    }
+
+    public long getCapacityEvictions() {
+        return capacityEvictions.get();
+    }
+
+    public long getArchivedCount() {
+        return archivedCount.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("threadpool.retention.evictions", expiredEvictions, AtomicLong::get)
+                .tag("reason", "expired").description("Terminal tasks evicted after their time-to-live")
+                .register(registry);
+        FunctionCounter.builder("threadpool.retention.evictions", capacityEvictions, AtomicLong::get)
+                .tag("reason", "capacity").description("Terminal tasks evicted to stay within maxEntries")
+                .register(registry);
+        FunctionCounter.builder("threadpool.retention.archived", archivedCount, AtomicLong::get)
+                .description("Evicted tasks appended to the retention archive").register(registry);
+    }
+
+    @PreDestroy
+    public void closeArchive() {
+        if (archive != null) {
+            archive.close();
+        }
+    }
+
+    private void afterWrite(TaskStatusDto dto) {
+        if (ttlNanos <= 0 && maxEntries <= 0) {
+            return;
+        }
+        if (dto.getState().isTerminal()) {
+            terminalOrder.add(new TerminalEntry(dto, System.nanoTime()));
+        }
+        if (maxEntries > 0) {
+            while (store.size() > maxEntries) {
+                TerminalEntry oldest = terminalOrder.poll();
+                if (oldest == null) {
+                    // only active tasks left, which are never evicted
+                    break;
+                }
+                if (evict(oldest)) {
+                    capacityEvictions.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the entry only if it still holds the exact terminal status that was
+     * recorded; a task that was updated again in the meantime is left alone.
+     */
+    private boolean evict(TerminalEntry entry) {
+        if (!store.remove(entry.dto.getId(), entry.dto)) {
+            return false;
+        }
+        ids.remove(entry.dto.getId());
+        if (archive != null) {
+            archive.append(entry.dto);
+            archivedCount.incrementAndGet();
+        }
+        return true;
+    }
+
+    private static TaskArchive openArchive(String archivePath) {
+        if (archivePath == null || archivePath.isBlank()) {
+            return null;
+        }
+        try {
+            return new TaskArchive(Path.of(archivePath));
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open task archive " + archivePath, e);
+        }
+    }
+
+    private static final class TerminalEntry {
+        private final TaskStatusDto dto;
+        private final long terminalSince;
+
+        TerminalEntry(TaskStatusDto dto, long terminalSince) {
+            this.dto = dto;
+            this.terminalSince = terminalSince;
+        }
     }
 }
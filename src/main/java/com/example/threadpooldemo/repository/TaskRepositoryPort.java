@@ -1,13 +1,86 @@
 package com.example.threadpooldemo.repository;
 
 import com.example.threadpooldemo.dto.TaskStatusDto;
+import com.example.threadpooldemo.model.TaskState;
+import com.example.threadpooldemo.model.TaskStatus;
 
+import java.time.Instant;
 import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface TaskRepositoryPort {
     void save(TaskStatusDto dto);
+
+    /**
+     * Saves all given task statuses in one bulk write. Entries whose id already
+     * exists are skipped, mirroring {@link #save(TaskStatusDto)}.
+     */
+    void saveAll(Collection<TaskStatusDto> dtos);
     TaskStatusDto find(String id);
     Collection<TaskStatusDto> findAll();
-    boolean updateStatus(String id, String status, String threadName);
-    boolean compareAndUpdateStatus(String id, String expectedStatus, String newStatus, String threadName);
+
+    /**
+     * Returns up to {@code limit} tasks whose id sorts after {@code afterId} (in natural
+     * string order), optionally restricted to one state. A null afterId starts from
+     * the beginning and a null state matches every task.
+     */
+    List<TaskStatusDto> findPage(String afterId, int limit, TaskState state);
+
+    /**
+     * Passes every task, in id order and optionally restricted to one state, to the
+     * consumer as it is read, without materializing the whole collection.
+     */
+    void forEach(TaskState state, Consumer<TaskStatusDto> consumer);
+
+    /**
+     * Moves the task to the given status. Returns false if the task does not exist or
+     * its current state may not transition to the new one (see {@link TaskState}).
+     */
+    boolean updateStatus(String id, TaskStatus status, String threadName);
+
+    /**
+     * Moves the task to the new status only if its current status equals the expected one
+     * and may transition to the new one (see {@link TaskState}).
+     */
+    boolean compareAndUpdateStatus(String id, TaskStatus expectedStatus, TaskStatus newStatus, String threadName);
+
+    /**
+     * Moves every listed task whose current state is one of {@code from} to the given
+     * status as one batch, and returns the ids that changed. Transitions the new state
+     * does not allow are skipped, as in {@link #updateStatus}; unknown ids are ignored.
+     */
+    Set<String> updateStatusAll(Collection<String> ids, Set<TaskState> from, TaskStatus status, String threadName);
+
+    /**
+     * Returns up to {@code limit} tasks that have not reached a terminal state and whose
+     * id sorts after {@code afterId}, in id order and with the {@link TaskStatusDto#getSpec()
+     * parameters} they were submitted with. Used to enqueue them again after a restart.
+     */
+    List<TaskStatusDto> findUnfinished(String afterId, int limit);
+
+    /**
+     * Returns the highest stored id in numeric order, or null if there are no tasks, so
+     * that ids assigned after a restart do not collide with stored ones.
+     */
+    String findLastId();
+
+    /**
+     * Returns the id of the task submitted under the idempotency key, or null if the key
+     * is unknown or was recorded before {@code notBefore}.
+     */
+    String findIdempotencyKey(String key, Instant notBefore);
+
+    /**
+     * Records the key for the task unless a key recorded at or after {@code notBefore}
+     * already exists, and returns the id the key now maps to: {@code taskId}, or the
+     * task that claimed the key first.
+     */
+    String saveIdempotencyKey(String key, String taskId, Instant createdAt, Instant notBefore);
+
+    /**
+     * Deletes idempotency keys recorded before the cutoff and returns how many were removed.
+     */
+    int deleteIdempotencyKeysBefore(Instant cutoff);
 }
@@ -0,0 +1,22 @@
+package com.example.threadpooldemo.repository;
+
+import com.example.threadpooldemo.model.TaskState;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores {@link TaskState} as its small integer code rather than its name.
+ */
+@Converter(autoApply = true)
+public class TaskStateConverter implements AttributeConverter<TaskState, Short> {
+
+    @Override
+    public Short convertToDatabaseColumn(TaskState state) {
+        return state == null ? null : state.getCode();
+    }
+
+    @Override
+    public TaskState convertToEntityAttribute(Short code) {
+        return code == null ? null : TaskState.fromCode(code);
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.threadpooldemo.repository;
+
+import com.example.threadpooldemo.model.TaskStatus;
+
+/**
+ * Notified by {@link PublishingTaskRepository} after a status update was applied.
+ * Called on the thread that made the update, usually a worker, so implementations
+ * must return quickly and must not block.
+ */
+@FunctionalInterface
+public interface TaskTransitionListener {
+    void onTransition(String id, TaskStatus status, String threadName);
+}
@@ -0,0 +1,365 @@
+package com.example.threadpooldemo.repository;
+
+import com.example.threadpooldemo.dto.TaskStatusDto;
+import com.example.threadpooldemo.model.TaskState;
+import com.example.threadpooldemo.model.TaskStatus;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Tiered repository: the hot state of every active task lives in a concurrent map that
+ * serves reads and compare-and-set, while transitions are written to the database by a
+ * background flusher. Several transitions of the same task between two flushes are
+ * coalesced into a single row write, and each flush is one JDBC batch per
+ * {@code batchSize} tasks.
+ *
+ * Active when both app.persistence.enabled and app.persistence.writeBehind.enabled are
+ * true; it then takes precedence over {@link PersistentTaskRepository}, which it uses
+ * as the durable tier.
+ */
+@Repository
+@Primary
+@ConditionalOnProperty(prefix = "app.persistence", name = {"enabled", "write-behind.enabled"}, havingValue = "true")
+public class WriteBehindTaskRepository implements TaskRepositoryPort {
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindTaskRepository.class);
+
+    /**
+     * ASYNC defers every write to the flusher. TERMINAL_SYNC additionally writes terminal
+     * states through before the update call returns, so finished results survive a crash.
+     */
+    public enum Durability { ASYNC, TERMINAL_SYNC }
+
+    private final PersistentTaskRepository delegate;
+    private final int batchSize;
+    private final Durability durability;
+    private final Map<String, TaskStatusDto> hot = new ConcurrentHashMap<>();
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    // Serializes database writes so a synchronous terminal write can never be
+    // overtaken by an older state that the background flusher is still writing.
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ScheduledExecutorService flusher;
+
+    public WriteBehindTaskRepository(PersistentTaskRepository delegate,
+                                     @Value("${app.persistence.writeBehind.flushIntervalMillis:200}") long flushIntervalMillis,
+                                     @Value("${app.persistence.writeBehind.batchSize:500}") int batchSize,
+                                     @Value("${app.persistence.writeBehind.durability:TERMINAL_SYNC}") Durability durability) {
+        this.delegate = delegate;
+        this.batchSize = batchSize;
+        this.durability = durability;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "task-write-behind");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void save(TaskStatusDto dto) {
+        TaskStatusDto existing = hot.putIfAbsent(dto.getId(), dto);
+        if (existing != null) {
+            logger.warn("Task {} already exists with status {}, not overwriting with status {}",
+                dto.getId(), existing.getStatus(), dto.getStatus());
+            return;
+        }
+        dirty.add(dto.getId());
+    }
+
+    @Override
+    public void saveAll(Collection<TaskStatusDto> dtos) {
+        for (TaskStatusDto dto : dtos) {
+            save(dto);
+        }
+    }
+
+    @Override
+    public TaskStatusDto find(String id) {
+        TaskStatusDto dto = hot.get(id);
+        return dto != null ? dto : delegate.find(id);
+    }
+
+    /**
+     * Returns the durable rows overlaid with the newer in-memory states.
+     */
+    @Override
+    public Collection<TaskStatusDto> findAll() {
+        Map<String, TaskStatusDto> merged = new LinkedHashMap<>();
+        for (TaskStatusDto dto : delegate.findAll()) {
+            merged.put(dto.getId(), dto);
+        }
+        merged.putAll(hot);
+        return merged.values();
+    }
+
+    /**
+     * Pages and streams are served by the durable tier after flushing pending
+     * transitions, so they observe everything written before the call.
+     */
+    @Override
+    public List<TaskStatusDto> findPage(String afterId, int limit, TaskState state) {
+        flush();
+        return delegate.findPage(afterId, limit, state);
+    }
+
+    @Override
+    public void forEach(TaskState state, Consumer<TaskStatusDto> consumer) {
+        flush();
+        delegate.forEach(state, consumer);
+    }
+
+    @Override
+    public List<TaskStatusDto> findUnfinished(String afterId, int limit) {
+        flush();
+        return delegate.findUnfinished(afterId, limit);
+    }
+
+    /**
+     * Ids are assigned before their rows are flushed, so the hot tier is consulted too.
+     */
+    @Override
+    public String findLastId() {
+        String last = delegate.findLastId();
+        for (String id : hot.keySet()) {
+            if (last == null || id.length() > last.length() || (id.length() == last.length() && id.compareTo(last) > 0)) {
+                last = id;
+            }
+        }
+        return last;
+    }
+
+    @Override
+    public boolean updateStatus(String id, TaskStatus status, String threadName) {
+        TaskStatusDto current = load(id);
+        if (current == null) {
+            logger.warn("Attempted to update non-existent task {}", id);
+            return false;
+        }
+        boolean[] applied = new boolean[1];
+        hot.compute(id, (key, existing) -> {
+            TaskStatusDto base = existing != null ? existing : current;
+            if (!base.getState().canTransitionTo(status.getState())) {
+                // leave the map as it was: nothing new to write, and nothing to evict later
+                return existing;
+            }
+            applied[0] = true;
+            return base.withStatusAndThread(status, threadName);
+        });
+        if (!applied[0]) {
+            logger.debug("Ignoring illegal transition of task {} to {}", id, status);
+            return false;
+        }
+        afterUpdate(id, status);
+        return true;
+    }
+
+    @Override
+    public boolean compareAndUpdateStatus(String id, TaskStatus expectedStatus, TaskStatus newStatus, String threadName) {
+        TaskStatusDto current = load(id);
+        if (current == null || !expectedStatus.equals(current.getTaskStatus())
+                || !current.getState().canTransitionTo(newStatus.getState())) {
+            return false;
+        }
+        if (!hot.replace(id, current, current.withStatusAndThread(newStatus, threadName))) {
+            return false;
+        }
+        afterUpdate(id, newStatus);
+        return true;
+    }
+
+    /**
+     * Applies the transitions to the hot tier; with TERMINAL_SYNC durability terminal
+     * ones are then written in one batch instead of one write per task.
+     */
+    @Override
+    public Set<String> updateStatusAll(Collection<String> ids, Set<TaskState> from, TaskStatus status, String threadName) {
+        Set<String> updated = new LinkedHashSet<>();
+        for (String id : ids) {
+            TaskStatusDto current = load(id);
+            if (current == null) {
+                continue;
+            }
+            boolean[] applied = new boolean[1];
+            hot.computeIfPresent(id, (key, existing) -> {
+                if (!from.contains(existing.getState()) || !existing.getState().canTransitionTo(status.getState())) {
+                    return existing;
+                }
+                applied[0] = true;
+                return existing.withStatusAndThread(status, threadName);
+            });
+            if (applied[0]) {
+                updated.add(id);
+                dirty.add(id);
+            }
+        }
+        if (durability == Durability.TERMINAL_SYNC && status.isTerminal() && !updated.isEmpty()) {
+            flushLock.lock();
+            try {
+                List<TaskStatusDto> batch = new ArrayList<>(updated.size());
+                for (String id : updated) {
+                    // skip those the background flusher already picked up
+                    TaskStatusDto dto = dirty.remove(id) ? hot.get(id) : null;
+                    if (dto != null) {
+                        batch.add(dto);
+                    }
+                }
+                write(batch);
+            } finally {
+                flushLock.unlock();
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Idempotency keys are written through: a key must be durable before its task is
+     * acknowledged, or a client retry after a crash would run the task twice.
+     */
+    @Override
+    public String findIdempotencyKey(String key, Instant notBefore) {
+        return delegate.findIdempotencyKey(key, notBefore);
+    }
+
+    @Override
+    public String saveIdempotencyKey(String key, String taskId, Instant createdAt, Instant notBefore) {
+        return delegate.saveIdempotencyKey(key, taskId, createdAt, notBefore);
+    }
+
+    @Override
+    public int deleteIdempotencyKeysBefore(Instant cutoff) {
+        return delegate.deleteIdempotencyKeysBefore(cutoff);
+    }
+
+    /**
+     * Writes all pending transitions to the durable tier. Runs periodically on the
+     * flusher thread and once more on shutdown.
+     */
+    public void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            List<TaskStatusDto> batch = new ArrayList<>(Math.min(batchSize, dirty.size()));
+            for (String id : dirty) {
+                if (!dirty.remove(id)) {
+                    continue;
+                }
+                TaskStatusDto dto = hot.get(id);
+                if (dto != null) {
+                    batch.add(dto);
+                }
+                if (batch.size() >= batchSize) {
+                    write(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            write(batch);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Number of tasks with transitions that have not been flushed yet.
+     */
+    public int getPendingCount() {
+        return dirty.size();
+    }
+
+    /**
+     * Number of tasks held in the hot tier.
+     */
+    public int getCachedCount() {
+        return hot.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        logger.info("WriteBehindTaskRepository flushed pending transitions on shutdown");
+    }
+
+    /**
+     * Returns the hot state of the task, pulling it from the durable tier on a miss. A
+     * terminal row is returned without caching it: it will not change again, and only a
+     * write evicts entries from the hot tier.
+     */
+    private TaskStatusDto load(String id) {
+        TaskStatusDto dto = hot.get(id);
+        if (dto != null) {
+            return dto;
+        }
+        TaskStatusDto stored = delegate.find(id);
+        if (stored == null || stored.getState().isTerminal()) {
+            return stored;
+        }
+        TaskStatusDto raced = hot.putIfAbsent(id, stored);
+        return raced != null ? raced : stored;
+    }
+
+    private void afterUpdate(String id, TaskStatus status) {
+        dirty.add(id);
+        if (durability == Durability.TERMINAL_SYNC && status.isTerminal()) {
+            flushLock.lock();
+            try {
+                // skip if the background flusher already picked it up
+                if (dirty.remove(id)) {
+                    TaskStatusDto dto = hot.get(id);
+                    if (dto != null) {
+                        write(List.of(dto));
+                    }
+                }
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Caller must hold flushLock. On failure the ids are marked dirty again so the next
+     * flush retries them. Terminal entries are dropped from the hot map once durable.
+     */
+    private void write(List<TaskStatusDto> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            delegate.upsertAll(batch);
+        } catch (RuntimeException e) {
+            logger.error("Failed to flush {} task transitions, will retry: {}", batch.size(), e.getMessage());
+            batch.forEach(dto -> dirty.add(dto.getId()));
+            return;
+        }
+        for (TaskStatusDto dto : batch) {
+            if (dto.getState().isTerminal() && !dirty.contains(dto.getId())) {
+                hot.remove(dto.getId(), dto);
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.threadpooldemo.service;
+
+import com.example.threadpooldemo.config.GracefulThreadPoolExecutor;
+import com.example.threadpooldemo.handler.LoggingRejectedExecutionHandler;
+import com.example.threadpooldemo.handler.LoggingRejectedExecutionHandler.OverflowPolicy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission check in front of the task executor. It keeps a moving estimate of how
+ * fast the queue drains (tasks started per second while work was waiting) and turns a
+ * submission away before anything is stored when
+ * <ul>
+ *   <li>the predicted queue wait exceeds {@code threadpool.admission.maxQueueWaitMillis}
+ *       (0 disables this), or</li>
+ *   <li>the executor's overflow policy is REJECT and it is already saturated.</li>
+ * </ul>
+ * The overflow policy is the one of the executor's {@link LoggingRejectedExecutionHandler},
+ * so a bulkhead configured with {@code threadpool.pools.<name>.policy=DROP_OLDEST} drops
+ * a queued task rather than answering 429; executors with another handler fall back to
+ * {@code threadpool.admission.policy}.
+ * Rejections carry a {@code Retry-After} of the time the current backlog needs to
+ * drain, bounded by {@code threadpool.admission.maxRetryAfterSeconds}.
+ *
+ * Each executor a task can be routed to (the shared one and every bulkhead pool) has a
+ * drain estimate of its own, created on its first check; the
+ * {@code threadpool.admission.drain.rate} gauge reports the shared executor's.
+ */
+@Component
+public class AdmissionController {
+
+    /** Minimum time between two drain rate samples. */
+    private static final long SAMPLE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+    /** Longer gaps say nothing about whether the queue was busy throughout and are skipped. */
+    private static final long MAX_SAMPLE_GAP_NANOS = 20 * SAMPLE_INTERVAL_NANOS;
+    /** Weight of the newest sample in the moving average. */
+    private static final double ALPHA = 0.3;
+
+    private final long maxQueueWaitMillis;
+    private final long maxRetryAfterSeconds;
+    private final OverflowPolicy policy;
+    private final Counter rejected;
+    private final Map<ThreadPoolExecutor, DrainEstimate> estimates = new ConcurrentHashMap<>();
+    private final DrainEstimate shared;
+
+    @Autowired
+    public AdmissionController(GracefulThreadPoolExecutor executor, MeterRegistry registry,
+                               @Value("${threadpool.admission.maxQueueWaitMillis:0}") long maxQueueWaitMillis,
+                               @Value("${threadpool.admission.maxRetryAfterSeconds:30}") long maxRetryAfterSeconds,
+                               @Value("${threadpool.admission.policy:REJECT}") OverflowPolicy policy) {
+        this((ThreadPoolExecutor) executor, registry, maxQueueWaitMillis, maxRetryAfterSeconds, policy);
+    }
+
+    public AdmissionController(ThreadPoolExecutor executor, MeterRegistry registry, long maxQueueWaitMillis,
+                               long maxRetryAfterSeconds, OverflowPolicy policy) {
+        this.maxQueueWaitMillis = maxQueueWaitMillis;
+        this.maxRetryAfterSeconds = Math.max(1, maxRetryAfterSeconds);
+        this.policy = policy;
+        this.shared = estimate(executor);
+        this.rejected = Counter.builder("threadpool.admission.rejected")
+                .description("Submissions turned away with 429 before reaching the executor").register(registry);
+        Gauge.builder("threadpool.admission.drain.rate", this, AdmissionController::getDrainRate)
+                .baseUnit("tasks/s").description("Estimated rate at which queued tasks are started").register(registry);
+    }
+
+    /**
+     * Throws {@link AdmissionRejectedException} when a new task for the given executor
+     * should not be accepted.
+     */
+    public void check(ThreadPoolExecutor target) {
+        DrainEstimate estimate = estimate(target);
+        estimate.sample();
+        double drainRate = estimate.drainRate;
+        int queued = target.getQueue().size();
+        if (maxQueueWaitMillis > 0 && drainRate > 0 && queued / drainRate * 1000 > maxQueueWaitMillis) {
+            throw reject(estimate, String.format("Predicted queue wait %.0f ms exceeds %d ms",
+                    queued / drainRate * 1000, maxQueueWaitMillis));
+        }
+        if (policyOf(target) == OverflowPolicy.REJECT && target.getQueue().remainingCapacity() == 0
+                && target.getPoolSize() >= target.getMaximumPoolSize()) {
+            throw reject(estimate, "Executor saturated: " + queued + " tasks queued");
+        }
+    }
+
+    /**
+     * Wraps a rejection raised by the given executor, adding its retry hint.
+     */
+    public AdmissionRejectedException rejected(ThreadPoolExecutor target, RuntimeException cause) {
+        AdmissionRejectedException e = reject(estimate(target), cause.getMessage());
+        e.initCause(cause);
+        return e;
+    }
+
+    public double getDrainRate() {
+        return shared.drainRate;
+    }
+
+    double getDrainRate(ThreadPoolExecutor target) {
+        return estimate(target).drainRate;
+    }
+
+    private AdmissionRejectedException reject(DrainEstimate estimate, String message) {
+        rejected.increment();
+        return new AdmissionRejectedException(message, estimate.retryAfterSeconds());
+    }
+
+    private OverflowPolicy policyOf(ThreadPoolExecutor target) {
+        RejectedExecutionHandler handler = target instanceof GracefulThreadPoolExecutor
+                ? ((GracefulThreadPoolExecutor) target).getOverflowHandler()
+                : target.getRejectedExecutionHandler();
+        if (handler instanceof LoggingRejectedExecutionHandler) {
+            return ((LoggingRejectedExecutionHandler) handler).getPolicy();
+        }
+        return policy;
+    }
+
+    private DrainEstimate estimate(ThreadPoolExecutor target) {
+        return estimates.computeIfAbsent(target, DrainEstimate::new);
+    }
+
+    void sample(ThreadPoolExecutor target) {
+        estimate(target).sample();
+    }
+
+    /**
+     * Moving estimate of how fast one executor's queue drains.
+     */
+    private final class DrainEstimate {
+        private final ThreadPoolExecutor executor;
+        private final AtomicLong lastSampleNanos = new AtomicLong(System.nanoTime());
+        private volatile long lastStartedCount;
+        private volatile double drainRate;
+
+        DrainEstimate(ThreadPoolExecutor executor) {
+            this.executor = executor;
+            this.lastStartedCount = startedCount();
+        }
+
+        long retryAfterSeconds() {
+            double rate = drainRate;
+            int queued = executor.getQueue().size();
+            if (rate <= 0) {
+                return 1;
+            }
+            return Math.max(1, Math.min(maxRetryAfterSeconds, (long) Math.ceil(queued / rate)));
+        }
+
+        /**
+         * Folds the tasks started since the last sample into the drain rate. Only one caller
+         * per interval gets to sample, and only intervals that end with work still queued
+         * count: an idle queue says how fast tasks arrive, not how fast they can be served.
+         */
+        void sample() {
+            long now = System.nanoTime();
+            long last = lastSampleNanos.get();
+            long elapsed = now - last;
+            if (elapsed < SAMPLE_INTERVAL_NANOS || !lastSampleNanos.compareAndSet(last, now)) {
+                return;
+            }
+            long started = startedCount();
+            long delta = started - lastStartedCount;
+            lastStartedCount = started;
+            if (elapsed > MAX_SAMPLE_GAP_NANOS || executor.getQueue().isEmpty()) {
+                return;
+            }
+            double rate = delta / (elapsed / 1e9);
+            double current = drainRate;
+            drainRate = current == 0 ? rate : ALPHA * rate + (1 - ALPHA) * current;
+        }
+
+        private long startedCount() {
+            if (executor instanceof GracefulThreadPoolExecutor) {
+                return ((GracefulThreadPoolExecutor) executor).getTimedTaskCount();
+            }
+            return executor.getCompletedTaskCount() + executor.getActiveCount();
+        }
+    }
+}
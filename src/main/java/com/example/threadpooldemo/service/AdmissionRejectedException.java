@@ -0,0 +1,21 @@
+package com.example.threadpooldemo.service;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A submission turned away because the executor cannot take it in time. Carries the
+ * number of seconds after which a retry is expected to be admitted.
+ */
+public class AdmissionRejectedException extends RejectedExecutionException {
+
+    private final long retryAfterSeconds;
+
+    public AdmissionRejectedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,310 @@
+package com.example.threadpooldemo.service;
+
+import com.example.threadpooldemo.repository.TaskRepositoryPort;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, time-expiring map from client-supplied idempotency keys to the id of the
+ * task first submitted with them, so a client retrying a submission gets the original
+ * task back instead of starting the work again.
+ *
+ * Keys expire {@code app.idempotency.ttlSeconds} after they were first used; at most
+ * {@code app.idempotency.maxEntries} are held in memory (0 = unbounded), evicting the
+ * oldest first. Every key is also recorded through {@link TaskRepositoryPort}, which
+ * keeps it in the database when persistence is enabled, so keys evicted from memory or
+ * used before a restart are still honoured; expired rows are purged every
+ * {@code app.idempotency.sweepIntervalMillis}.
+ *
+ * Concurrent submissions with the same key are serialized in this instance: the first
+ * one submits, the others wait for its id. If it fails, nothing is recorded and the next
+ * waiter submits instead.
+ */
+@Component
+public class IdempotencyCache {
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyCache.class);
+    static final int MAX_KEY_LENGTH = 255;
+
+    private final TaskRepositoryPort repository;
+    private final Duration ttl;
+    private final int maxEntries;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Recorded entries in the order they were created; the head is the oldest.
+    private final Queue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicLong replays = new AtomicLong();
+
+    @Autowired
+    public IdempotencyCache(TaskRepositoryPort repository,
+                            @Value("${app.idempotency.ttlSeconds:86400}") long ttlSeconds,
+                            @Value("${app.idempotency.maxEntries:10000}") int maxEntries) {
+        this(repository, Duration.ofSeconds(ttlSeconds), maxEntries);
+    }
+
+    public IdempotencyCache(TaskRepositoryPort repository, Duration ttl, int maxEntries) {
+        this.repository = repository;
+        this.ttl = ttl;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns the id of the task already submitted under the key, or runs
+     * {@code submit} and records the id it returns. Exceptions from {@code submit} are
+     * rethrown and leave the key unused.
+     */
+    public String submitOnce(String key, Supplier<String> submit) {
+        Claim claim = claim(key);
+        if (!claim.isOwner()) {
+            return claim.getTaskId();
+        }
+        String id;
+        try {
+            id = submit.get();
+        } catch (RuntimeException e) {
+            claim.abandon(e);
+            throw e;
+        }
+        return claim.complete(id);
+    }
+
+    /**
+     * Claims the key for a submission the caller makes itself, such as a batch entry.
+     * Returns either the id already recorded for the key, waiting for a submission in
+     * flight, or ownership of the key, which the caller must end with
+     * {@link Claim#complete} or {@link Claim#abandon}; until then other submissions with
+     * the key wait. A caller claiming several keys must claim them in a consistent
+     * order, such as sorted, so two such callers cannot wait for each other.
+     */
+    public Claim claim(String key) {
+        validate(key);
+        while (true) {
+            long now = System.nanoTime();
+            Entry entry = entries.get(key);
+            if (entry != null && entry.isExpired(now, ttl)) {
+                entries.remove(key, entry);
+                entry = null;
+            }
+            if (entry == null) {
+                Entry created = new Entry(key, now);
+                entry = entries.putIfAbsent(key, created);
+                if (entry == null) {
+                    return own(created);
+                }
+            }
+            String id = await(entry);
+            if (id != null) {
+                replays.incrementAndGet();
+                return new Claim(null, id);
+            }
+        }
+    }
+
+    /**
+     * Returns the id recorded for the key, waiting for a submission in flight, or null
+     * if the key is unused or expired.
+     */
+    public String find(String key) {
+        validate(key);
+        Entry entry = entries.get(key);
+        String id = entry == null || entry.isExpired(System.nanoTime(), ttl) ? null : await(entry);
+        if (id == null) {
+            id = repository.findIdempotencyKey(key, Instant.now().minus(ttl));
+        }
+        if (id != null) {
+            replays.incrementAndGet();
+        }
+        return id;
+    }
+
+    /**
+     * Drops expired keys from memory and from the repository.
+     */
+    @Scheduled(fixedDelayString = "${app.idempotency.sweepIntervalMillis:60000}")
+    public void purgeExpired() {
+        long now = System.nanoTime();
+        Entry head;
+        while ((head = insertionOrder.peek()) != null && head.isExpired(now, ttl)) {
+            if (insertionOrder.remove(head)) {
+                entries.remove(head.key, head);
+            }
+        }
+        try {
+            int deleted = repository.deleteIdempotencyKeysBefore(Instant.now().minus(ttl));
+            if (deleted > 0) {
+                logger.info("Purged {} expired idempotency keys", deleted);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to purge expired idempotency keys: {}", e.getMessage());
+        }
+    }
+
+    /** Submissions answered with an earlier task's id instead of new work. */
+    public long getReplayCount() {
+        return replays.get();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Takes ownership of a fresh entry. A key found in the repository (from before a
+     * restart or evicted from memory) is answered with the stored id instead.
+     */
+    private Claim own(Entry entry) {
+        String id;
+        try {
+            id = repository.findIdempotencyKey(entry.key, Instant.now().minus(ttl));
+        } catch (RuntimeException e) {
+            release(entry, e);
+            throw e;
+        }
+        if (id == null) {
+            return new Claim(entry, null);
+        }
+        replays.incrementAndGet();
+        publish(entry, id);
+        return new Claim(null, id);
+    }
+
+    private void publish(Entry entry, String id) {
+        entry.taskId.complete(id);
+        insertionOrder.add(entry);
+        evictOverflow();
+    }
+
+    private void release(Entry entry, RuntimeException cause) {
+        entries.remove(entry.key, entry);
+        entry.taskId.completeExceptionally(cause);
+    }
+
+    private String save(String key, String taskId, Instant createdAt, Instant notBefore) {
+        try {
+            String owner = repository.saveIdempotencyKey(key, taskId, createdAt, notBefore);
+            if (!taskId.equals(owner)) {
+                logger.warn("Idempotency key {} was already claimed by task {}; task {} was submitted as well",
+                        key, owner, taskId);
+            }
+            return owner;
+        } catch (RuntimeException e) {
+            logger.warn("Failed to record idempotency key {} for task {}: {}", key, taskId, e.getMessage());
+            return taskId;
+        }
+    }
+
+    private void evictOverflow() {
+        while (maxEntries > 0 && entries.size() > maxEntries) {
+            Entry oldest = insertionOrder.poll();
+            if (oldest == null) {
+                return;
+            }
+            entries.remove(oldest.key, oldest);
+        }
+    }
+
+    /**
+     * Waits for the entry's submission. Returns null if it failed, after removing the
+     * entry so the caller can claim the key itself.
+     */
+    private String await(Entry entry) {
+        try {
+            return entry.taskId.join();
+        } catch (CompletionException | CancellationException e) {
+            entries.remove(entry.key, entry);
+            return null;
+        }
+    }
+
+    private static void validate(String key) {
+        if (key.isBlank()) {
+            throw new IllegalArgumentException("Idempotency key must not be blank");
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency key must not be longer than " + MAX_KEY_LENGTH + " characters");
+        }
+    }
+
+    /**
+     * Result of {@link #claim}: the id already recorded for the key, or ownership of it.
+     */
+    public final class Claim {
+        private final Entry entry;
+        private final String taskId;
+        private boolean settled;
+
+        private Claim(Entry entry, String taskId) {
+            this.entry = entry;
+            this.taskId = taskId;
+        }
+
+        /** True if the caller owns the key and must submit the task itself. */
+        public boolean isOwner() {
+            return entry != null;
+        }
+
+        /** Id of the task already submitted under the key; null for an owner. */
+        public String getTaskId() {
+            return taskId;
+        }
+
+        /**
+         * Records the key for the submitted task. Returns the id the key maps to, which
+         * is another task's if a different instance claimed the key in the meantime;
+         * the caller should then withdraw its own task. The key is recorded after the
+         * task is accepted; if recording fails the task still stands and only
+         * durability of the key is lost.
+         */
+        public String complete(String submittedId) {
+            settle();
+            Instant now = Instant.now();
+            String id = save(entry.key, submittedId, now, now.minus(ttl));
+            publish(entry, id);
+            return id;
+        }
+
+        /**
+         * Gives the key up after the submission failed, leaving it unused.
+         */
+        public void abandon(RuntimeException cause) {
+            settle();
+            release(entry, cause);
+        }
+
+        private void settle() {
+            if (entry == null || settled) {
+                throw new IllegalStateException("Idempotency key is not owned by this claim");
+            }
+            settled = true;
+        }
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final long createdNanos;
+        private final CompletableFuture<String> taskId = new CompletableFuture<>();
+
+        Entry(String key, long createdNanos) {
+            this.key = key;
+            this.createdNanos = createdNanos;
+        }
+
+        boolean isExpired(long nowNanos, Duration ttl) {
+            return nowNanos - createdNanos >= ttl.toNanos();
+        }
+    }
+}
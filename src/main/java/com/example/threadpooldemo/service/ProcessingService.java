@@ -1,52 +1,478 @@
 package com.example.threadpooldemo.service;
 
+import com.example.threadpooldemo.config.BulkheadRegistry;
+import com.example.threadpooldemo.config.DroppableTask;
+import com.example.threadpooldemo.config.ExpirableTask;
+import com.example.threadpooldemo.config.GracefulThreadPoolExecutor;
+import com.example.threadpooldemo.config.PrioritizedTask;
+import com.example.threadpooldemo.config.RecoveryConfig;
 import com.example.threadpooldemo.config.RetryConfig;
+import com.example.threadpooldemo.config.ThreadPoolConfig;
+import com.example.threadpooldemo.dto.BatchItemResultDto;
+import com.example.threadpooldemo.dto.BulkCancelResultDto;
+import com.example.threadpooldemo.dto.TaskPageDto;
 import com.example.threadpooldemo.dto.TaskStatusDto;
+import com.example.threadpooldemo.model.CancelFilter;
 import com.example.threadpooldemo.model.TaskRequest;
+import com.example.threadpooldemo.model.TaskSpec;
+import com.example.threadpooldemo.model.TaskState;
+import com.example.threadpooldemo.model.TaskStatus;
+import com.example.threadpooldemo.processor.ChunkedExecution;
 import com.example.threadpooldemo.processor.ImageProcessorTask;
+import com.example.threadpooldemo.processor.ResultCache;
+import com.example.threadpooldemo.repository.PublishingTaskRepository;
 import com.example.threadpooldemo.repository.TaskRepositoryPort;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class ProcessingService {
     private static final Logger logger = LoggerFactory.getLogger(ProcessingService.class);
+    /** Longer budgets are capped so deadlines stay comparable on the nanoTime scale. */
+    private static final Duration MAX_BUDGET = Duration.ofNanos(Long.MAX_VALUE / 4);
+    /** Polling interval and bound for awaiting a task this instance does not track. */
+    private static final long AWAIT_POLL_MILLIS = 250;
+    private static final Duration MAX_AWAIT_POLL = Duration.ofMinutes(5);
+    private static final String PRIORITY_RANGE =
+            "priority must be between " + TaskRequest.MIN_PRIORITY + " and " + TaskRequest.MAX_PRIORITY;
 
     private final ThreadPoolExecutor executor;
     private final TaskRepositoryPort repository;
     private final RetryConfig retryConfig;
+    private final ScheduledExecutorService retryScheduler;
+    private final boolean ownsRetryScheduler;
+    private final TaskEventBroadcaster events;
+    private volatile ChunkedExecution chunkedExecution;
+    private volatile ResultCache resultCache;
+    private volatile AdmissionController admission;
+    private volatile BulkheadRegistry bulkheads;
+    private volatile IdempotencyCache idempotency;
+    private volatile RecoveryConfig recoveryConfig;
     private final Map<String, TaskHandle> runningTasks = new ConcurrentHashMap<>();
     private final AtomicInteger idGenerator = new AtomicInteger(0);
 
+    /**
+     * Uses a caller-owned scheduler for retry backoff; it is not shut down by this service.
+     */
+    public ProcessingService(ThreadPoolExecutor executor, TaskRepositoryPort repository, RetryConfig retryConfig,
+                             ScheduledExecutorService retryScheduler) {
+        this(executor, repository, retryConfig, retryScheduler, false, null);
+    }
+
+    /**
+     * Creates the service with its own single-thread retry scheduler, shut down together
+     * with the executor.
+     */
     public ProcessingService(ThreadPoolExecutor executor, TaskRepositoryPort repository, RetryConfig retryConfig) {
+        this(executor, repository, retryConfig, ThreadPoolConfig.newRetryScheduler(), true, null);
+    }
+
+    /**
+     * Like the three-argument constructor, and additionally publishes every status
+     * transition to the given broadcaster.
+     */
+    @Autowired
+    public ProcessingService(ThreadPoolExecutor executor, TaskRepositoryPort repository, RetryConfig retryConfig,
+                             TaskEventBroadcaster events) {
+        this(executor, repository, retryConfig, ThreadPoolConfig.newRetryScheduler(), true, events);
+    }
+
+    private ProcessingService(ThreadPoolExecutor executor, TaskRepositoryPort repository, RetryConfig retryConfig,
+                              ScheduledExecutorService retryScheduler, boolean ownsRetryScheduler,
+                              TaskEventBroadcaster events) {
         this.executor = executor;
-        this.repository = repository;
+        this.repository = events == null ? repository : new PublishingTaskRepository(repository, events);
         this.retryConfig = retryConfig;
+        this.retryScheduler = retryScheduler;
+        this.ownsRetryScheduler = ownsRetryScheduler;
+        this.events = events;
+    }
+
+    /**
+     * Enables splitting of large tasks; present only with threadpool.split.enabled=true.
+     */
+    @Autowired(required = false)
+    public void setChunkedExecution(ChunkedExecution chunkedExecution) {
+        this.chunkedExecution = chunkedExecution;
+    }
+
+    /**
+     * Shares results between tasks with identical input; present only with
+     * app.resultCache.enabled=true.
+     */
+    @Autowired(required = false)
+    public void setResultCache(ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    /**
+     * Turns submissions away early, with a retry hint, when the executor cannot keep up.
+     */
+    @Autowired(required = false)
+    public void setAdmissionController(AdmissionController admission) {
+        this.admission = admission;
+    }
+
+    /**
+     * Routes tasks to bulkhead pools; without it every task runs on the shared executor.
+     */
+    @Autowired(required = false)
+    public void setBulkheadRegistry(BulkheadRegistry bulkheads) {
+        this.bulkheads = bulkheads;
+    }
+
+    /**
+     * Deduplicates submissions carrying an idempotency key; without it keys are ignored.
+     */
+    @Autowired(required = false)
+    public void setIdempotencyCache(IdempotencyCache idempotency) {
+        this.idempotency = idempotency;
+    }
+
+    /**
+     * Enables replay of tasks left unfinished by a previous run on startup.
+     */
+    @Autowired(required = false)
+    public void setRecoveryConfig(RecoveryConfig recoveryConfig) {
+        this.recoveryConfig = recoveryConfig;
     }
 
     @PostConstruct
     public void init() {
         logger.info("ProcessingService initialized with core={} max={} queue={}",
                 executor.getCorePoolSize(), executor.getMaximumPoolSize(), executor.getQueue().size());
+        RecoveryConfig recovery = this.recoveryConfig;
+        if (recovery != null && recovery.isEnabled()) {
+            recoverUnfinished(recovery.getBatchSize(), recovery.getIntervalMillis());
+        } else {
+            seedIds();
+        }
     }
 
+    /**
+     * Stores the task as QUEUED and hands it to the executor it is routed to. Throws
+     * {@link AdmissionRejectedException} when admission control turns it away, before
+     * anything is stored. A request whose idempotency key was already used returns the
+     * id of the task submitted with it and submits nothing.
+     */
     public String submit(TaskRequest request) {
+        if (request.getTimeoutMillis() != null && request.getTimeoutMillis() <= 0) {
+            throw new IllegalArgumentException("timeoutMillis must be positive");
+        }
+        if (request.getPriority() < TaskRequest.MIN_PRIORITY || request.getPriority() > TaskRequest.MAX_PRIORITY) {
+            throw new IllegalArgumentException(PRIORITY_RANGE);
+        }
+        ThreadPoolExecutor target = route(request);
+        IdempotencyCache idempotency = this.idempotency;
+        if (idempotency != null && request.getIdempotencyKey() != null) {
+            String[] submitted = new String[1];
+            String owner = idempotency.submitOnce(request.getIdempotencyKey(),
+                    () -> submitted[0] = submitNew(request, target));
+            withdrawDuplicate(submitted[0], owner);
+            return owner;
+        }
+        return submitNew(request, target);
+    }
+
+    /**
+     * Cancels a task submitted under an idempotency key that another instance claimed
+     * first, so the work runs only once.
+     */
+    private void withdrawDuplicate(String submitted, String owner) {
+        if (submitted != null && !submitted.equals(owner)) {
+            logger.warn("Task {} duplicates task {} submitted with the same idempotency key, cancelling it",
+                    submitted, owner);
+            cancel(submitted);
+        }
+    }
+
+    private String submitNew(TaskRequest request, ThreadPoolExecutor target) {
+        AdmissionController admission = this.admission;
+        if (admission != null) {
+            admission.check(target);
+        }
         String id = String.valueOf(idGenerator.incrementAndGet());
-        TaskStatusDto dto = new TaskStatusDto(id, request.getFileName(), "QUEUED", null);
+        TaskStatusDto dto = new TaskStatusDto(id, request.getFileName(), TaskStatus.QUEUED, null,
+                TaskSpec.of(request, Instant.now()));
         repository.save(dto);
+        enqueue(id, request, target, false);
+        return id;
+    }
+
+    /**
+     * Submits a batch of requests. All valid entries are persisted as QUEUED with a
+     * single bulk repository write and then handed to the executor. Each request gets
+     * its own result so callers can tell which entries were accepted.
+     */
+    public List<BatchItemResultDto> submitBatch(List<TaskRequest> requests) {
+        BatchItemResultDto[] results = new BatchItemResultDto[requests.size()];
+        Map<Integer, String> ids = new LinkedHashMap<>();
+        Map<Integer, ThreadPoolExecutor> targets = new HashMap<>();
+        List<TaskStatusDto> queued = new ArrayList<>(requests.size());
+        IdempotencyCache idempotency = this.idempotency;
+        Instant now = Instant.now();
+        // index of the first entry with each idempotency key, sorted by key so keys are
+        // claimed in a consistent order; later entries repeat its result
+        SortedMap<String, Integer> firstWithKey = new TreeMap<>();
+        Map<Integer, Integer> repeats = new HashMap<>();
+        Map<Integer, IdempotencyCache.Claim> claims = new HashMap<>();
+
+        for (int i = 0; i < requests.size(); i++) {
+            TaskRequest request = requests.get(i);
+            if (request == null || request.getFileName() == null || request.getFileName().isBlank()) {
+                results[i] = BatchItemResultDto.rejected(i, null, "fileName must not be blank");
+                continue;
+            }
+            if (request.getTimeoutMillis() != null && request.getTimeoutMillis() <= 0) {
+                results[i] = BatchItemResultDto.rejected(i, null, "timeoutMillis must be positive");
+                continue;
+            }
+            if (request.getPriority() < TaskRequest.MIN_PRIORITY || request.getPriority() > TaskRequest.MAX_PRIORITY) {
+                results[i] = BatchItemResultDto.rejected(i, null, PRIORITY_RANGE);
+                continue;
+            }
+            String key = idempotency == null ? null : request.getIdempotencyKey();
+            try {
+                targets.put(i, route(request));
+                if (key != null) {
+                    Integer first = firstWithKey.putIfAbsent(key, i);
+                    if (first != null) {
+                        repeats.put(i, first);
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                results[i] = BatchItemResultDto.rejected(i, null, e.getMessage());
+            }
+        }
+        // claim the keys before anything is stored, like submitOnce, so a concurrent
+        // submission with the same key waits for this batch instead of running twice
+        for (Map.Entry<String, Integer> entry : firstWithKey.entrySet()) {
+            int index = entry.getValue();
+            try {
+                IdempotencyCache.Claim claim = idempotency.claim(entry.getKey());
+                if (claim.isOwner()) {
+                    claims.put(index, claim);
+                } else {
+                    results[index] = BatchItemResultDto.accepted(index, claim.getTaskId());
+                }
+            } catch (RuntimeException e) {
+                results[index] = BatchItemResultDto.rejected(index, null, e.getMessage());
+            }
+        }
+        for (int i = 0; i < requests.size(); i++) {
+            if (results[i] != null || repeats.containsKey(i) || !targets.containsKey(i)) {
+                continue;
+            }
+            TaskRequest request = requests.get(i);
+            String id = String.valueOf(idGenerator.incrementAndGet());
+            ids.put(i, id);
+            queued.add(new TaskStatusDto(id, request.getFileName(), TaskStatus.QUEUED, null, TaskSpec.of(request, now)));
+        }
+
+        try {
+            repository.saveAll(queued);
+        } catch (RuntimeException e) {
+            for (IdempotencyCache.Claim claim : claims.values()) {
+                claim.abandon(e);
+            }
+            throw e;
+        }
+
+        for (Map.Entry<Integer, String> entry : ids.entrySet()) {
+            int index = entry.getKey();
+            String id = entry.getValue();
+            IdempotencyCache.Claim claim = claims.get(index);
+            try {
+                enqueue(id, requests.get(index), targets.get(index), false);
+            } catch (RuntimeException e) {
+                if (claim != null) {
+                    claim.abandon(e);
+                }
+                results[index] = BatchItemResultDto.rejected(index, id, e.getMessage());
+                continue;
+            }
+            String owner = claim == null ? id : claim.complete(id);
+            withdrawDuplicate(id, owner);
+            results[index] = BatchItemResultDto.accepted(index, owner);
+        }
+        for (Map.Entry<Integer, Integer> repeat : repeats.entrySet()) {
+            BatchItemResultDto first = results[repeat.getValue()];
+            int index = repeat.getKey();
+            results[index] = first.isAccepted()
+                    ? BatchItemResultDto.accepted(index, first.getId())
+                    : BatchItemResultDto.rejected(index, null, first.getReason());
+        }
+        logger.info("Batch submission of {} tasks: {} queued", requests.size(), ids.size());
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Enqueues the tasks a previous run left unfinished again, reading them from the
+     * repository in id order. At most {@code batchSize} are replayed every
+     * {@code intervalMillis}, and never more than the target executor's queue has room
+     * for, so recovery does not swamp the pool or crowd out new submissions.
+     *
+     * QUEUED and RETRYING tasks are enqueued as they are and a RUNNING one, whose attempt
+     * died with the process, as RETRYING; attempts count from 1 again. A task whose
+     * cancellation was requested is CANCELLED, and one stored without its submission
+     * parameters FAILED_PERMANENTLY. Tasks of this run are left alone. Returns a future
+     * that completes with the number of tasks enqueued once all were handled.
+     */
+    public CompletableFuture<Integer> recoverUnfinished(int batchSize, long intervalMillis) {
+        if (batchSize < 1 || intervalMillis < 1) {
+            throw new IllegalArgumentException("batchSize and intervalMillis must be positive");
+        }
+        Recovery recovery = new Recovery(seedIds(), batchSize);
+        ScheduledFuture<?> timer = retryScheduler.scheduleWithFixedDelay(
+                recovery, 0, intervalMillis, TimeUnit.MILLISECONDS);
+        recovery.done.whenComplete((count, error) -> timer.cancel(false));
+        return recovery.done;
+    }
+
+    /**
+     * Moves the id generator past the highest stored id and returns that id, or 0.
+     */
+    private int seedIds() {
+        String last = repository.findLastId();
+        int seed = 0;
+        if (last != null) {
+            try {
+                seed = Integer.parseInt(last);
+            } catch (NumberFormatException e) {
+                logger.warn("Highest stored task id {} is not numeric, not seeding the id generator", last);
+            }
+        }
+        idGenerator.accumulateAndGet(seed, Math::max);
+        return seed;
+    }
+
+    /**
+     * One replay pass over the unfinished tasks, resumed on every tick from the last id
+     * it handled.
+     */
+    private final class Recovery implements Runnable {
+        private final int lastStoredId;
+        private final int batchSize;
+        private final CompletableFuture<Integer> done = new CompletableFuture<>();
+        private String cursor;
+        private int recovered;
 
+        Recovery(int lastStoredId, int batchSize) {
+            this.lastStoredId = lastStoredId;
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public void run() {
+            if (done.isDone()) {
+                return;
+            }
+            try {
+                List<TaskStatusDto> page = repository.findUnfinished(cursor, batchSize);
+                if (page.isEmpty()) {
+                    if (recovered > 0) {
+                        logger.info("Recovered {} unfinished tasks", recovered);
+                    }
+                    done.complete(recovered);
+                    return;
+                }
+                for (TaskStatusDto dto : page) {
+                    if (!replay(dto)) {
+                        // the target queue is full; continue from this task on the next tick
+                        return;
+                    }
+                    cursor = dto.getId();
+                }
+            } catch (RuntimeException e) {
+                logger.error("Task recovery failed after {}, retrying: {}", cursor, e.getMessage());
+            }
+        }
+
+        /**
+         * Returns false if the task could not be enqueued now and should be tried again.
+         */
+        private boolean replay(TaskStatusDto dto) {
+            String id = dto.getId();
+            if (runningTasks.containsKey(id) || isNewerThanSeed(id)) {
+                return true;
+            }
+            if (dto.getState() == TaskState.CANCELLATION_REQUESTED) {
+                repository.updateStatus(id, TaskStatus.CANCELLED, null);
+                return true;
+            }
+            TaskSpec spec = dto.getSpec();
+            if (spec == null) {
+                repository.updateStatus(id, TaskStatus.FAILED_PERMANENTLY, null);
+                logger.warn("Task {} was stored without its submission parameters and cannot be recovered", id);
+                return true;
+            }
+            TaskRequest request = spec.toRequest(dto.getFileName());
+            ThreadPoolExecutor target;
+            try {
+                target = route(request);
+            } catch (IllegalArgumentException e) {
+                repository.updateStatus(id, TaskStatus.FAILED_PERMANENTLY, null);
+                logger.warn("Task {} cannot be recovered: {}", id, e.getMessage());
+                return true;
+            }
+            if (target.getQueue().remainingCapacity() == 0) {
+                return false;
+            }
+            TaskStatus status = dto.getTaskStatus();
+            if (status.getState() == TaskState.RUNNING && !repository.compareAndUpdateStatus(id, status,
+                    TaskStatus.retrying(status.getAttempt(), status.getMaxAttempts()), null)) {
+                return true;
+            }
+            try {
+                enqueue(id, request, target, true);
+            } catch (RuntimeException e) {
+                logger.warn("Could not enqueue recovered task {} yet: {}", id, e.getMessage());
+                return false;
+            }
+            recovered++;
+            return true;
+        }
+
+        private boolean isNewerThanSeed(String id) {
+            try {
+                return Integer.parseInt(id) > lastStoredId;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Creates the logical task and its retry wrapper for an already persisted QUEUED
+     * entry and hands it to the executor. On failure the entry is marked REJECTED and
+     * the exception is rethrown, with a retry hint if the executor was merely full. A
+     * task the rejection handler drops instead is marked DROPPED, one the queue sheds
+     * for waiting too long EXPIRED, by {@link #discard}. A {@code recovered} entry is
+     * left unchanged on failure so recovery can try it again.
+     */
+    private void enqueue(String id, TaskRequest request, ThreadPoolExecutor target, boolean recovered) {
         ImageProcessorTask task = new ImageProcessorTask(id, request.getFileName(), 
             request.getComplexity(), repository, 
-            retryConfig.getMaxRetryAttempts(), retryConfig.getRetryDelayMillis());
+            retryConfig.getMaxRetryAttempts(), retryConfig.getRetryDelayMillis(), chunkedExecution, resultCache);
         // Add to running tasks only if initial save was successful.
         if (runningTasks.containsKey(id)) {
             logger.error("Task ID collision detected for {}", id);
@@ -54,66 +480,260 @@ public class ProcessingService {
         }
 
         // Create a TaskHandle placeholder so cancel() can see the task immediately.
-        TaskHandle handle = new TaskHandle(task);
+        TaskHandle handle = new TaskHandle(task, target);
         runningTasks.put(id, handle);
+        Duration budget = request.remainingBudget(Instant.now());
+        if (budget != null && budget.compareTo(MAX_BUDGET) > 0) {
+            budget = MAX_BUDGET;
+        }
 
-        // Build the wrapper runnable that performs the retry loop and ensures cleanup.
-        Runnable wrapper = () -> {
-            String threadName = Thread.currentThread().getName();
-            try {
-                while (true) {
-                    try {
-                        task.run();
-                        return; // success
-                    } catch (RuntimeException e) {
-                        if (task.getCurrentAttempt() < task.getMaxRetryAttempts()) {
-                            logger.warn("Retrying task {} after failure (attempt {}/{})", 
-                                    task.getId(), task.getCurrentAttempt(), task.getMaxRetryAttempts());
-                            try {
-                                TimeUnit.MILLISECONDS.sleep(task.getRetryDelay());
-                            } catch (InterruptedException ie) {
-                                Thread.currentThread().interrupt();
-                                repository.updateStatus(task.getId(), "INTERRUPTED", threadName);
-                                return;
-                            }
-                            continue;
-                        } else {
-                            repository.updateStatus(task.getId(), "FAILED_PERMANENTLY", threadName);
-                            logger.error("Task {} exhausted retries and failed permanently", task.getId());
-                            return;
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                logger.error("Unexpected error in retry loop for {}: {}", task.getId(), e.getMessage());
-                repository.updateStatus(task.getId(), "FAILED_PERMANENTLY", threadName);
-            } finally {
-                // Ensure we don't leak memory by removing the handle when done
-                runningTasks.remove(task.getId());
-            }
-        };
-
-        // Store wrapper in handle (useful for removal from queue if needed)
-        handle.setWrapper(wrapper);
+        // The queued element doubles as the Future: cancel() removes exactly this
+        // instance from the executor queue, and a SchedulingQueue reads its hints.
+        QueuedTask queued = new QueuedTask(() -> runAttempt(handle), state -> discard(handle, state),
+                request.getPriority(), request.getComplexity());
+        handle.setWrapper(queued);
+        handle.setFuture(queued);
 
         try {
-            // submit returns a Future; keep it so cancel() can cancel queued or running tasks
-            java.util.concurrent.Future<?> f = executor.submit(wrapper);
-            handle.setFuture(f);
+            if (budget != null) {
+                handle.setDeadline(System.nanoTime() + budget.toNanos(), retryScheduler.schedule(
+                        () -> timeOut(handle), Math.max(0, budget.toMillis()), TimeUnit.MILLISECONDS));
+            }
+            target.execute(queued);
             logger.info("Submitted task id={} file={} to executor", id, request.getFileName());
         } catch (RuntimeException e) {
+            if (recovered) {
+                finish(handle);
+                throw e;
+            }
             // Submission failed - remove placeholder and mark as rejected
-            runningTasks.remove(id);
-            if (repository.compareAndUpdateStatus(id, "QUEUED", "REJECTED", null)) {
+            if (repository.compareAndUpdateStatus(id, TaskStatus.QUEUED, TaskStatus.REJECTED, null)) {
+                recordOutcome(handle, TaskState.REJECTED);
                 logger.error("Failed to submit task {}: {}", id, e.getMessage(), e);
             }
+            finish(handle);
+            if (e instanceof RejectedExecutionException && !(e instanceof AdmissionRejectedException)
+                    && !target.isShutdown()) {
+                AdmissionController admission = this.admission;
+                throw admission != null
+                        ? admission.rejected(target, e)
+                        : (AdmissionRejectedException) new AdmissionRejectedException(e.getMessage(), 1).initCause(e);
+            }
             throw e;
         }
-        return id;
     }
 
+    /**
+     * Called when the task's queued element is thrown away instead of run: DROPPED by
+     * the rejection handler to relieve a full executor, EXPIRED by the queue for having
+     * waited too long. The task never ran (again), so it ends in that state unless a
+     * concurrent cancel() got there first.
+     */
+    private void discard(TaskHandle handle, TaskStatus status) {
+        String id = handle.getTask().getId();
+        TaskStatusDto current = repository.find(id);
+        boolean waiting = current != null
+                && (current.getState() == TaskState.QUEUED || current.getState() == TaskState.RETRYING);
+        if (waiting && repository.compareAndUpdateStatus(id, current.getTaskStatus(), status, null)) {
+            recordOutcome(handle, status.getState());
+            logger.warn("Task {} discarded from the executor queue as {}", id, status);
+        }
+        java.util.concurrent.Future<?> f = handle.getFuture();
+        if (f != null) {
+            f.cancel(false);
+        }
+        finish(handle);
+    }
+
+    /**
+     * Runs one attempt of the task on a worker thread. A failed attempt that may be
+     * retried is handed to the retry scheduler, so the worker is free again during the
+     * backoff instead of sleeping; the handle stays registered for cancel().
+     */
+    private void runAttempt(TaskHandle handle) {
+        ImageProcessorTask task = handle.getTask();
+        if (handle.isPastDeadline(System.nanoTime())) {
+            // dequeued after its deadline, before the watchdog got to it: skip it
+            expireWaiting(handle);
+            finish(handle);
+            return;
+        }
+        String threadName = Thread.currentThread().getName();
+        boolean retryScheduled = false;
+        boolean waiting = false;
+        try {
+            task.run();
+            CompletableFuture<String> awaited = task.getAwaited();
+            if (awaited != null) {
+                // an identical execution is in flight; continue when it ends, off this worker
+                waiting = true;
+                awaited.whenComplete((producer, error) -> settle(handle, producer));
+            } else {
+                recordOutcome(handle, task.getLastState());
+            }
+        } catch (RuntimeException e) {
+            if (Thread.currentThread().isInterrupted() || task.isCancelled()) {
+                // the task has already recorded CANCELLED or INTERRUPTED
+                logger.info("Task {} stopped by cancellation, not retrying", task.getId());
+                recordOutcome(handle, task.getLastState());
+            } else if (task.getCurrentAttempt() < task.getMaxRetryAttempts()) {
+                retryScheduled = scheduleRetry(handle);
+            } else {
+                repository.updateStatus(task.getId(), TaskStatus.FAILED_PERMANENTLY, threadName);
+                recordOutcome(handle, TaskState.FAILED_PERMANENTLY);
+                logger.error("Task {} exhausted retries and failed permanently", task.getId());
+            }
+        } finally {
+            // Ensure we don't leak memory by removing the handle when done
+            if (!retryScheduled && !waiting) {
+                finish(handle);
+            }
+        }
+    }
+
+    /**
+     * Continues a task that waited for an identical execution: it ends with that
+     * execution's result or its own stop, or goes back into the queue to do the work
+     * itself if the execution stopped without a result.
+     */
+    private void settle(TaskHandle handle, String producer) {
+        ImageProcessorTask task = handle.getTask();
+        try {
+            if (!task.settle(producer)) {
+                resubmit(handle);
+                return;
+            }
+            recordOutcome(handle, task.getLastState());
+        } catch (RuntimeException e) {
+            logger.error("Could not complete task {} after waiting for its input: {}", task.getId(), e.getMessage(), e);
+        }
+        finish(handle);
+    }
 
+    private boolean scheduleRetry(TaskHandle handle) {
+        ImageProcessorTask task = handle.getTask();
+        int failedAttempt = task.getCurrentAttempt() - 1;
+        long delay = retryConfig.backoffDelayMillis(failedAttempt);
+        if (handle.isPastDeadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay))) {
+            logger.warn("Task {} would retry after its deadline, timing out instead", task.getId());
+            expireWaiting(handle);
+            return false;
+        }
+        try {
+            handle.setRetry(retryScheduler.schedule(() -> resubmit(handle), delay, TimeUnit.MILLISECONDS));
+            if (handle.getExecutor() instanceof GracefulThreadPoolExecutor) {
+                ((GracefulThreadPoolExecutor) handle.getExecutor()).recordRetry();
+            }
+            logger.warn("Retrying task {} in {} ms (attempt {}/{})",
+                    task.getId(), delay, task.getCurrentAttempt(), task.getMaxRetryAttempts());
+            return true;
+        } catch (RejectedExecutionException e) {
+            repository.updateStatus(task.getId(), TaskStatus.FAILED_PERMANENTLY, null);
+            recordOutcome(handle, TaskState.FAILED_PERMANENTLY);
+            logger.error("Could not schedule retry for task {}: {}", task.getId(), e.getMessage());
+            return false;
+        }
+    }
 
+    /**
+     * Puts a task whose backoff has elapsed back into the executor queue.
+     */
+    private void resubmit(TaskHandle handle) {
+        ImageProcessorTask task = handle.getTask();
+        if (task.isCancelled()) {
+            finish(handle);
+            return;
+        }
+        QueuedTask queued = ((QueuedTask) handle.getWrapper()).copy();
+        handle.setWrapper(queued);
+        handle.setFuture(queued);
+        try {
+            handle.getExecutor().execute(queued);
+        } catch (RuntimeException e) {
+            repository.updateStatus(task.getId(), TaskStatus.FAILED_PERMANENTLY, null);
+            recordOutcome(handle, TaskState.FAILED_PERMANENTLY);
+            finish(handle);
+            logger.error("Failed to resubmit task {} for retry: {}", task.getId(), e.getMessage());
+            return;
+        }
+        // a cancel() that raced with the lines above may have missed the new element
+        if (task.isCancelled()) {
+            handle.getExecutor().remove(queued);
+            queued.cancel(false);
+        }
+    }
+
+    /**
+     * Fired by the deadline watchdog. Works like cancel(): a task that is waiting in
+     * the queue or for a retry is marked TIMED_OUT and released here, a running one is
+     * interrupted through its Future and reports TIMED_OUT itself.
+     */
+    private void timeOut(TaskHandle handle) {
+        ImageProcessorTask task = handle.getTask();
+        task.timeOut();
+        ScheduledFuture<?> retry = handle.getRetry();
+        if (retry != null) {
+            retry.cancel(false);
+        }
+        Runnable wrapper = handle.getWrapper();
+        if (wrapper != null) {
+            handle.getExecutor().remove(wrapper);
+        }
+        java.util.concurrent.Future<?> f = handle.getFuture();
+        if (f != null) {
+            f.cancel(true);
+        }
+        if (!expireWaiting(handle)) {
+            logger.warn("Task {} exceeded its deadline while running, interrupting it", task.getId());
+        }
+    }
+
+    /**
+     * Marks a task that is not on a worker TIMED_OUT and releases it. Returns false if
+     * it is running (or already finished) instead.
+     */
+    private boolean expireWaiting(TaskHandle handle) {
+        String id = handle.getTask().getId();
+        TaskStatusDto current = repository.find(id);
+        boolean waiting = current != null
+                && (current.getState() == TaskState.QUEUED || current.getState() == TaskState.RETRYING);
+        if (waiting && repository.compareAndUpdateStatus(id, current.getTaskStatus(), TaskStatus.TIMED_OUT, null)) {
+            recordOutcome(handle, TaskState.TIMED_OUT);
+            logger.warn("Task {} timed out before it could run", id);
+            finish(handle);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Stops tracking the task and completes its completion future with the last
+     * recorded status. Only called once the task has nothing left to run.
+     */
+    private void finish(TaskHandle handle) {
+        String id = handle.getTask().getId();
+        ScheduledFuture<?> deadline = handle.getDeadlineTimer();
+        if (deadline != null) {
+            deadline.cancel(false);
+        }
+        runningTasks.remove(id, handle);
+        handle.getCompletion().complete(repository.find(id));
+    }
+
+    private void recordOutcome(TaskHandle handle, TaskState state) {
+        ThreadPoolExecutor executor = handle.getExecutor();
+        if (state.isTerminal() && executor instanceof GracefulThreadPoolExecutor) {
+            ((GracefulThreadPoolExecutor) executor).recordOutcome(state);
+        }
+    }
+
+    /**
+     * Executor for the request: its bulkhead pool, if any, else the shared executor.
+     */
+    private ThreadPoolExecutor route(TaskRequest request) {
+        BulkheadRegistry bulkheads = this.bulkheads;
+        return bulkheads == null ? executor : bulkheads.route(request.getWorkload(), request.getComplexity());
+    }
 
     public Optional<TaskStatusDto> getStatus(String id) {
         return Optional.ofNullable(repository.find(id));
@@ -123,37 +743,213 @@ public class ProcessingService {
         return repository.findAll();
     }
 
+    /**
+     * Returns the page of tasks following the {@code after} cursor, ordered by id.
+     */
+    public TaskPageDto listPage(String after, int limit, TaskState state) {
+        List<TaskStatusDto> items = repository.findPage(after, limit, state);
+        String nextAfter = items.size() < limit ? null : items.get(items.size() - 1).getId();
+        return new TaskPageDto(items, nextAfter);
+    }
+
+    /**
+     * Feeds every task, optionally filtered by state, to the consumer as it is read.
+     */
+    public void streamAll(TaskState state, Consumer<TaskStatusDto> consumer) {
+        repository.forEach(state, consumer);
+    }
+
+    /**
+     * Future that completes with the task's status once it has nothing left to run,
+     * normally a terminal one. Completes immediately for a task that already finished
+     * and with null for an unknown id. A task this instance does not track but that is
+     * not finished either (left behind by a shutdown, or run by another instance) is
+     * polled in the repository every {@value #AWAIT_POLL_MILLIS} ms; after
+     * {@link #MAX_AWAIT_POLL} the future completes with whatever status it has then.
+     * Callers that stop waiting should cancel the future, which ends the polling.
+     */
+    public CompletableFuture<TaskStatusDto> awaitCompletion(String id) {
+        TaskHandle handle = runningTasks.get(id);
+        if (handle != null) {
+            return handle.getCompletion().copy();
+        }
+        // the final status is written before finish() drops the handle, so a task
+        // that is gone from runningTasks already shows it here
+        TaskStatusDto current = repository.find(id);
+        if (current == null || current.getState().isTerminal()) {
+            return CompletableFuture.completedFuture(current);
+        }
+        return poll(id);
+    }
+
+    private CompletableFuture<TaskStatusDto> poll(String id) {
+        CompletableFuture<TaskStatusDto> completion = new CompletableFuture<>();
+        long deadline = System.nanoTime() + MAX_AWAIT_POLL.toNanos();
+        ScheduledFuture<?> poller;
+        try {
+            poller = retryScheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    TaskStatusDto dto = repository.find(id);
+                    if (dto == null || dto.getState().isTerminal() || System.nanoTime() - deadline >= 0) {
+                        completion.complete(dto);
+                    }
+                } catch (RuntimeException e) {
+                    completion.completeExceptionally(e);
+                }
+            }, AWAIT_POLL_MILLIS, AWAIT_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // shutting down: nothing will change any more
+            completion.complete(repository.find(id));
+            return completion;
+        }
+        // also stops polling when the caller gives up and cancels the future
+        completion.whenComplete((dto, error) -> poller.cancel(false));
+        return completion;
+    }
+
+    /**
+     * Opens a Server-Sent Events stream of status transitions, optionally limited to
+     * some task ids and/or one state.
+     */
+    public SseEmitter subscribeEvents(Set<String> ids, TaskState state) {
+        if (events == null) {
+            throw new IllegalStateException("Task events are not enabled");
+        }
+        return events.subscribe(ids, state, repository::find);
+    }
+
     public boolean cancel(String id) {
         TaskHandle handle = runningTasks.get(id);
         if (handle != null) {
-            // mark the logical task as cancelled
-            handle.getTask().cancel();
-            boolean removedFromQueue = false;
+            StopResult stopped = stop(handle);
 
-            // attempt to remove the wrapper from the executor queue
-            Runnable wrapper = handle.getWrapper();
-            if (wrapper != null) {
-                removedFromQueue = executor.remove(wrapper);
+            // update repository: a task that is not on a worker (queued or waiting for
+            // a retry) is cancelled outright, a running one is asked to stop and reports
+            // CANCELLED/INTERRUPTED itself
+            TaskStatusDto current = repository.find(id);
+            boolean waiting = current != null
+                    && (current.getState() == TaskState.QUEUED || current.getState() == TaskState.RETRYING);
+            if (waiting && repository.compareAndUpdateStatus(id, current.getTaskStatus(), TaskStatus.CANCELLED, null)) {
+                recordOutcome(handle, TaskState.CANCELLED);
+                finish(handle);
+            } else {
+                // the running attempt stops at its next check and finishes the handle
+                repository.updateStatus(id, TaskStatus.CANCELLATION_REQUESTED, null);
             }
+            logger.info("Cancellation requested for {} removedFromQueue={} retryCancelled={}",
+                    id, stopped.removedFromQueue, stopped.retryCancelled);
 
-            // also cancel the future to prevent execution or interrupt if running
-            java.util.concurrent.Future<?> f = handle.getFuture();
-            if (f != null) {
-                f.cancel(true);
-            }
+            return true;
+        }
+        return false;
+    }
 
-            // update repository
-            repository.updateStatus(id, "CANCELLATION_REQUESTED", null);
-            logger.info("Cancellation requested for {} removedFromQueue={}", id, removedFromQueue);
+    /**
+     * Cancels every tracked task that matches the filter, in one pass over the tracked
+     * tasks (or just the given ids); the repository is only read for the current state
+     * of a task that passed the other criteria. Like {@link #cancel}, waiting tasks end
+     * CANCELLED and running ones are asked to stop, but each group is written with one
+     * batched repository update instead of a write per task.
+     */
+    public BulkCancelResultDto cancelAll(CancelFilter filter) {
+        if (filter.isEmpty()) {
+            throw new IllegalArgumentException("Specify at least one of ids, status, fileNamePrefix or submittedBefore");
+        }
+        TaskState state = filter.getStatus() == null ? null : TaskStatus.parse(filter.getStatus()).getState();
+
+        Map<String, TaskHandle> matched = new LinkedHashMap<>();
+        if (filter.getIds() != null) {
+            for (String id : filter.getIds()) {
+                TaskHandle handle = runningTasks.get(id);
+                if (handle != null && matches(handle, filter, state)) {
+                    matched.put(id, handle);
+                }
+            }
+        } else {
+            for (Map.Entry<String, TaskHandle> entry : runningTasks.entrySet()) {
+                if (matches(entry.getValue(), filter, state)) {
+                    matched.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        for (TaskHandle handle : matched.values()) {
+            stop(handle);
+        }
 
-            // ✅ Remove from running task registry (fix for test failure)
-            runningTasks.remove(id);
+        Set<String> waiting = repository.updateStatusAll(matched.keySet(),
+                EnumSet.of(TaskState.QUEUED, TaskState.RETRYING), TaskStatus.CANCELLED, null);
+        List<String> cancelled = new ArrayList<>(waiting.size());
+        List<String> running = new ArrayList<>(matched.size() - waiting.size());
+        for (Map.Entry<String, TaskHandle> entry : matched.entrySet()) {
+            if (waiting.contains(entry.getKey())) {
+                recordOutcome(entry.getValue(), TaskState.CANCELLED);
+                finish(entry.getValue());
+                cancelled.add(entry.getKey());
+            } else {
+                running.add(entry.getKey());
+            }
+        }
+        // a running task may already have stopped and reported CANCELLED/INTERRUPTED
+        // itself; it was asked to stop all the same
+        repository.updateStatusAll(running,
+                TaskState.CANCELLATION_REQUESTED.getPredecessors(), TaskStatus.CANCELLATION_REQUESTED, null);
+        logger.info("Bulk cancellation {}: {} cancelled, {} asked to stop", filter, cancelled.size(), running.size());
+        return new BulkCancelResultDto(cancelled, running);
+    }
 
+    private boolean matches(TaskHandle handle, CancelFilter filter, TaskState state) {
+        ImageProcessorTask task = handle.getTask();
+        if (filter.getFileNamePrefix() != null
+                && (task.getFileName() == null || !task.getFileName().startsWith(filter.getFileNamePrefix()))) {
+            return false;
+        }
+        if (filter.getSubmittedBefore() != null && !handle.getSubmittedAt().isBefore(filter.getSubmittedBefore())) {
+            return false;
+        }
+        if (state == null) {
             return true;
         }
-        return false;
+        TaskStatusDto current = repository.find(task.getId());
+        return current != null && current.getState() == state;
+    }
+
+    /**
+     * Stops the task from running (again): flags it cancelled, drops a pending retry,
+     * unlinks it from the executor queue and interrupts it if it is on a worker. The
+     * caller records the resulting status.
+     */
+    private StopResult stop(TaskHandle handle) {
+        // mark the logical task as cancelled
+        handle.getTask().cancel();
+
+        // a task waiting out its retry backoff is not in the executor at all
+        ScheduledFuture<?> retry = handle.getRetry();
+        boolean retryCancelled = retry != null && retry.cancel(false);
+
+        // attempt to remove the wrapper from the executor queue
+        boolean removedFromQueue = false;
+        Runnable wrapper = handle.getWrapper();
+        if (wrapper != null) {
+            removedFromQueue = handle.getExecutor().remove(wrapper);
+        }
+
+        // also cancel the future to prevent execution or interrupt if running
+        java.util.concurrent.Future<?> f = handle.getFuture();
+        if (f != null) {
+            f.cancel(true);
+        }
+        return new StopResult(removedFromQueue, retryCancelled);
     }
 
+    private static final class StopResult {
+        private final boolean removedFromQueue;
+        private final boolean retryCancelled;
+
+        StopResult(boolean removedFromQueue, boolean retryCancelled) {
+            this.removedFromQueue = removedFromQueue;
+            this.retryCancelled = retryCancelled;
+        }
+    }
 
     /**
      * Expose running task ids for tests/monitoring to detect leaks.
@@ -162,41 +958,119 @@ public class ProcessingService {
         return Collections.unmodifiableSet(runningTasks.keySet());
     }
 
+    /**
+     * Future handed to the executor, carrying the request's scheduling hints, the time
+     * it was enqueued and what to do if it is dropped or expires instead of running.
+     */
+    private static class QueuedTask extends FutureTask<Void>
+            implements PrioritizedTask, ExpirableTask, DroppableTask {
+        private final Runnable attempt;
+        private final Consumer<TaskStatus> discarded;
+        private final int priority;
+        private final int complexity;
+        private final long enqueuedNanos = System.nanoTime();
+
+        QueuedTask(Runnable attempt, Consumer<TaskStatus> discarded, int priority, int complexity) {
+            super(attempt, null);
+            this.attempt = attempt;
+            this.discarded = discarded;
+            this.priority = priority;
+            this.complexity = complexity;
+        }
+
+        /**
+         * Fresh, not yet run instance for the next attempt.
+         */
+        QueuedTask copy() {
+            return new QueuedTask(attempt, discarded, priority, complexity);
+        }
+
+        @Override
+        public void onDropped() {
+            discarded.accept(TaskStatus.DROPPED);
+        }
+
+        @Override
+        public void onExpired(long sojournNanos) {
+            discarded.accept(TaskStatus.EXPIRED);
+        }
+
+        @Override
+        public int getPriority() { return priority; }
+
+        @Override
+        public int getComplexity() { return complexity; }
+
+        @Override
+        public long getEnqueuedNanos() { return enqueuedNanos; }
+    }
+
     /**
      * Simple holder describing a task that has been submitted to the executor.
-     * Holds the logical task, the wrapper Runnable used for submission and the
-     * Future returned by the executor so we can cancel/remove it later.
+     * Holds the logical task, the wrapper Runnable used for submission, the
+     * Future returned by the executor, the pending retry and the deadline
+     * watchdog, if any, so we can cancel/remove it later.
      */
     private static class TaskHandle {
         private final ImageProcessorTask task;
-        private Runnable wrapper;
-        private java.util.concurrent.Future<?> future;
+        private final ThreadPoolExecutor executor;
+        private final CompletableFuture<TaskStatusDto> completion = new CompletableFuture<>();
+        private volatile Runnable wrapper;
+        private volatile java.util.concurrent.Future<?> future;
+        private volatile ScheduledFuture<?> retry;
+        private volatile long deadlineNanos;
+        private volatile ScheduledFuture<?> deadlineTimer;
+        private final Instant submittedAt = Instant.now();
 
-        TaskHandle(ImageProcessorTask task) {
+        TaskHandle(ImageProcessorTask task, ThreadPoolExecutor executor) {
             this.task = task;
+            this.executor = executor;
         }
 
         public ImageProcessorTask getTask() { return task; }
+        public ThreadPoolExecutor getExecutor() { return executor; }
+        public CompletableFuture<TaskStatusDto> getCompletion() { return completion; }
         public Runnable getWrapper() { return wrapper; }
         public void setWrapper(Runnable wrapper) { this.wrapper = wrapper; }
         public java.util.concurrent.Future<?> getFuture() { return future; }
         public void setFuture(java.util.concurrent.Future<?> future) { this.future = future; }
+        public ScheduledFuture<?> getRetry() { return retry; }
+        public void setRetry(ScheduledFuture<?> retry) { this.retry = retry; }
+        public ScheduledFuture<?> getDeadlineTimer() { return deadlineTimer; }
+        public Instant getSubmittedAt() { return submittedAt; }
+
+        public void setDeadline(long deadlineNanos, ScheduledFuture<?> timer) {
+            this.deadlineNanos = deadlineNanos;
+            this.deadlineTimer = timer;
+        }
+
+        public boolean isPastDeadline(long nanos) {
+            return deadlineTimer != null && nanos - deadlineNanos >= 0;
+        }
     }
 
     @PreDestroy
     public void shutdownExecutor() {
         logger.info("ProcessingService shutting down executor...");
+        if (ownsRetryScheduler) {
+            // pending retries are dropped; their tasks stay in their last recorded state
+            retryScheduler.shutdownNow();
+        }
+        Collection<? extends ThreadPoolExecutor> executors = bulkheads == null
+                ? List.of(executor) : bulkheads.getExecutors().values();
         try {
-            // request an orderly shutdown
-            executor.shutdown();
-            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
-                logger.warn("Executor did not terminate within timeout; forcing shutdownNow()");
-                executor.shutdownNow();
-                executor.awaitTermination(2, TimeUnit.SECONDS);
+            // request an orderly shutdown of every pool, then wait for them together
+            executors.forEach(ThreadPoolExecutor::shutdown);
+            for (ThreadPoolExecutor executor : executors) {
+                if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                    logger.warn("Executor did not terminate within timeout; forcing shutdownNow()");
+                    executor.shutdownNow();
+                    executor.awaitTermination(2, TimeUnit.SECONDS);
+                }
             }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            executor.shutdownNow();
+            executors.forEach(ThreadPoolExecutor::shutdownNow);
         } catch (Exception e) {
             logger.error("Error while shutting down executor: {}", e.getMessage(), e);
         }
@@ -0,0 +1,231 @@
+package com.example.threadpooldemo.service;
+
+import com.example.threadpooldemo.dto.TaskEventDto;
+import com.example.threadpooldemo.dto.TaskStatusDto;
+import com.example.threadpooldemo.model.TaskState;
+import com.example.threadpooldemo.model.TaskStatus;
+import com.example.threadpooldemo.repository.TaskTransitionListener;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Fans task status transitions out to Server-Sent Events subscribers.
+ *
+ * Publishing runs on the worker that changed the status, so it never blocks: each
+ * subscriber has a lock-free buffer of at most {@code app.events.bufferSize} events, and
+ * one of {@code app.events.senderThreads} sender threads drains it into the HTTP
+ * response. The sender pool is fixed: a subscription is queued at most once at a time,
+ * so its queue never holds more entries than there are subscribers, and a burst of
+ * subscribers cannot grow the thread count. When a slow client lets
+ * the buffer fill up, further events for it are dropped and counted, and the client
+ * receives a {@code dropped} event with that count before the next delivered one, so it
+ * knows to re-read the state it cares about. Without subscribers a transition costs a
+ * single read of the subscriber list.
+ */
+@Component
+public class TaskEventBroadcaster implements TaskTransitionListener {
+    private static final Logger logger = LoggerFactory.getLogger(TaskEventBroadcaster.class);
+
+    private final List<Subscription> subscribers = new CopyOnWriteArrayList<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ThreadPoolExecutor sender;
+    private final int bufferSize;
+    private final long timeoutMillis;
+
+    public TaskEventBroadcaster() {
+        this(256, 1_800_000);
+    }
+
+    public TaskEventBroadcaster(int bufferSize, long timeoutMillis) {
+        this(bufferSize, timeoutMillis, 4);
+    }
+
+    @Autowired
+    public TaskEventBroadcaster(@Value("${app.events.bufferSize:256}") int bufferSize,
+                                @Value("${app.events.timeoutMillis:1800000}") long timeoutMillis,
+                                @Value("${app.events.senderThreads:4}") int senderThreads) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("app.events.bufferSize must be at least 1");
+        }
+        if (senderThreads < 1) {
+            throw new IllegalArgumentException("app.events.senderThreads must be at least 1");
+        }
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeoutMillis;
+        AtomicInteger threads = new AtomicInteger();
+        this.sender = new ThreadPoolExecutor(senderThreads, senderThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "task-events-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.sender.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Registers a subscriber for the given task ids (null or empty for all tasks) and
+     * state (null for all states). For an id filter the current status of each task is
+     * sent first, so a transition that happened before subscribing is not missed.
+     */
+    public SseEmitter subscribe(Set<String> ids, TaskState state, Function<String, TaskStatusDto> current) {
+        return subscribe(new SseEmitter(timeoutMillis), ids, state, current);
+    }
+
+    SseEmitter subscribe(SseEmitter emitter, Set<String> ids, TaskState state, Function<String, TaskStatusDto> current) {
+        Subscription subscription = new Subscription(emitter, ids == null || ids.isEmpty() ? null : Set.copyOf(ids), state);
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(e -> subscription.close());
+        subscribers.add(subscription);
+        if (subscription.ids != null) {
+            for (String id : subscription.ids) {
+                TaskStatusDto dto = current.apply(id);
+                if (dto != null && subscription.matches(id, dto.getState())) {
+                    subscription.offer(event(id, dto.getTaskStatus(), dto.getAssignedThread()));
+                }
+            }
+        }
+        logger.debug("Task event subscriber added (ids={}, state={}), {} subscribers", subscription.ids, state, subscribers.size());
+        return emitter;
+    }
+
+    @Override
+    public void onTransition(String id, TaskStatus status, String threadName) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        TaskEventDto event = null;
+        for (Subscription subscription : subscribers) {
+            if (subscription.matches(id, status.getState())) {
+                if (event == null) {
+                    event = event(id, status, threadName);
+                }
+                subscription.offer(event);
+            }
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    int getSenderThreadCount() {
+        return sender.getPoolSize();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Subscription subscription : subscribers) {
+            subscription.emitter.complete();
+            subscription.close();
+        }
+        sender.shutdownNow();
+    }
+
+    private TaskEventDto event(String id, TaskStatus status, String threadName) {
+        return new TaskEventDto(sequence.incrementAndGet(), id, status.toString(), threadName, System.currentTimeMillis());
+    }
+
+    /**
+     * A subscriber's buffer. At most one sender thread drains it at a time; {@code draining}
+     * hands that role over without a lock.
+     */
+    private final class Subscription implements Runnable {
+        private final SseEmitter emitter;
+        private final Set<String> ids;
+        private final TaskState state;
+        private final Queue<TaskEventDto> buffer = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger buffered = new AtomicInteger();
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+
+        Subscription(SseEmitter emitter, Set<String> ids, TaskState state) {
+            this.emitter = emitter;
+            this.ids = ids;
+            this.state = state;
+        }
+
+        boolean matches(String id, TaskState taskState) {
+            return (ids == null || ids.contains(id)) && (state == null || state == taskState);
+        }
+
+        void offer(TaskEventDto event) {
+            if (closed) {
+                return;
+            }
+            if (buffered.incrementAndGet() > bufferSize) {
+                buffered.decrementAndGet();
+                dropped.incrementAndGet();
+            } else {
+                buffer.offer(event);
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    sender.execute(this);
+                } catch (RejectedExecutionException e) {
+                    // shutting down
+                    draining.set(false);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                do {
+                    long lost = dropped.getAndSet(0);
+                    if (lost > 0) {
+                        emitter.send(SseEmitter.event().name("dropped").data(lost));
+                    }
+                    TaskEventDto event;
+                    while (!closed && (event = buffer.poll()) != null) {
+                        buffered.decrementAndGet();
+                        emitter.send(SseEmitter.event()
+                                .id(String.valueOf(event.getSequence()))
+                                .name("status")
+                                .data(event, MediaType.APPLICATION_JSON));
+                    }
+                    draining.set(false);
+                    // an event offered after the last poll but before the flag was cleared
+                    // found draining still set; pick it up here instead
+                } while (!closed && (!buffer.isEmpty() || dropped.get() > 0) && draining.compareAndSet(false, true));
+            } catch (IOException | IllegalStateException e) {
+                logger.debug("Task event subscriber disconnected: {}", e.getMessage());
+                close();
+                draining.set(false);
+            }
+        }
+
+        void close() {
+            closed = true;
+            subscribers.remove(this);
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.threadpooldemo.config;
+
+import com.example.threadpooldemo.handler.LoggingRejectedExecutionHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BulkheadRegistryTest {
+
+    private final GracefulThreadPoolExecutor shared = executor();
+    private final GracefulThreadPoolExecutor heavy = executor();
+    private final GracefulThreadPoolExecutor light = executor();
+    private final GracefulThreadPoolExecutor interactive = executor();
+    private BulkheadRegistry registry;
+
+    private static GracefulThreadPoolExecutor executor() {
+        return new GracefulThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(1),
+                Thread::new, new LoggingRejectedExecutionHandler());
+    }
+
+    private static BulkheadRegistry.Settings range(Integer min, Integer max) {
+        BulkheadRegistry.Settings settings = new BulkheadRegistry.Settings();
+        settings.setMinComplexity(min);
+        settings.setMaxComplexity(max);
+        return settings;
+    }
+
+    private BulkheadRegistry registry() {
+        Map<String, BulkheadRegistry.Pool> pools = new LinkedHashMap<>();
+        pools.put("heavy", new BulkheadRegistry.Pool(range(6, null), heavy));
+        pools.put("light", new BulkheadRegistry.Pool(range(null, 2), light));
+        pools.put("interactive", new BulkheadRegistry.Pool(range(null, null), interactive));
+        return new BulkheadRegistry(shared, pools);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        for (GracefulThreadPoolExecutor executor : List.of(shared, heavy, light, interactive)) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void routesByComplexityRangeInConfigurationOrder() {
+        registry = registry();
+        assertSame(heavy, registry.route(null, 9));
+        assertSame(heavy, registry.route(null, 6));
+        assertSame(light, registry.route(null, 1));
+        assertSame(shared, registry.route(null, 4));
+    }
+
+    @Test
+    public void workloadNameOverridesComplexity() {
+        registry = registry();
+        assertSame(interactive, registry.route("interactive", 9));
+        assertSame(shared, registry.route(BulkheadRegistry.DEFAULT_POOL, 9));
+        assertSame(heavy, registry.route(" ", 9));
+        assertThrows(IllegalArgumentException.class, () -> registry.route("unknown", 1));
+    }
+
+    @Test
+    public void listsTheSharedPoolFirst() {
+        registry = registry();
+        assertEquals(List.of("default", "heavy", "light", "interactive"),
+                List.copyOf(registry.getExecutors().keySet()));
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.threadpooldemo.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CoDelQueueTest {
+
+    private final List<String> expired = new ArrayList<>();
+
+    private Job job(String name, long ageMillis) {
+        return new Job(name, System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(ageMillis), expired);
+    }
+
+    @Test
+    public void shortWaitsAreNeverShed() {
+        CoDelQueue queue = new CoDelQueue(new LinkedBlockingQueue<>(), 100, 50);
+        for (int i = 0; i < 5; i++) {
+            queue.offer(job("fresh-" + i, 0));
+        }
+        for (int i = 0; i < 5; i++) {
+            assertEquals("fresh-" + i, queue.poll().toString());
+        }
+        assertTrue(expired.isEmpty());
+        assertFalse(queue.isDropping());
+    }
+
+    @Test
+    public void aboveTargetForLessThanAnIntervalIsTolerated() {
+        CoDelQueue queue = new CoDelQueue(new LinkedBlockingQueue<>(), 10, 60_000);
+        queue.offer(job("stale-1", 500));
+        queue.offer(job("stale-2", 500));
+
+        assertEquals("stale-1", queue.poll().toString());
+        assertEquals("stale-2", queue.poll().toString());
+        assertTrue(expired.isEmpty());
+    }
+
+    @Test
+    public void persistentDelayShedsAtDequeueUntilWaitsRecover() throws Exception {
+        CoDelQueue queue = new CoDelQueue(new LinkedBlockingQueue<>(), 10, 20);
+        queue.offer(job("first", 500));
+        // starts the interval
+        assertEquals("first", queue.poll().toString());
+        Thread.sleep(30);
+
+        queue.offer(job("stale", 500));
+        queue.offer(job("next", 500));
+        queue.offer(job("fresh", 0));
+        // a full interval above target: one is shed, the next drop is not due yet
+        assertEquals("next", queue.poll(1, TimeUnit.SECONDS).toString());
+        assertEquals(List.of("stale"), expired);
+        assertTrue(queue.isDropping());
+
+        // a task below target ends the dropping state
+        assertEquals("fresh", queue.take().toString());
+        assertFalse(queue.isDropping());
+        assertEquals(1, queue.getExpiredCount());
+    }
+
+    @Test
+    public void dropsComeFasterWhileDelayPersists() throws Exception {
+        CoDelQueue queue = new CoDelQueue(new LinkedBlockingQueue<>(), 1, 20);
+        for (int i = 0; i < 200; i++) {
+            queue.offer(job("stale-" + i, 1_000));
+        }
+        queue.poll();
+        Thread.sleep(25);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        while (System.nanoTime() < deadline && !queue.isEmpty()) {
+            queue.poll();
+            Thread.sleep(1);
+        }
+        // 100ms of dropping at a 20ms interval shrinking with sqrt(count): more than 5 drops
+        assertTrue(expired.size() > 5, "expired " + expired.size());
+        assertTrue(queue.isDropping());
+    }
+
+    @Test
+    public void droppingResumedSoonAfterwardsKeepsTheDropRate() throws Exception {
+        CoDelQueue queue = new CoDelQueue(new LinkedBlockingQueue<>(), 1, 20);
+        for (int i = 0; i < 200; i++) {
+            queue.offer(job("stale-" + i, 1_000));
+        }
+        queue.poll();
+        Thread.sleep(25);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        while (System.nanoTime() < deadline && !queue.isEmpty()) {
+            queue.poll();
+            Thread.sleep(1);
+        }
+        int count = queue.getDropCount();
+        assertTrue(count > 2, "count " + count);
+
+        queue.clear();
+        queue.offer(job("fresh", 0));
+        queue.poll();
+        assertFalse(queue.isDropping());
+
+        // above target again for an interval, well within 16 intervals of the last drop
+        for (int i = 0; i < 3; i++) {
+            queue.offer(job("late-" + i, 1_000));
+        }
+        queue.poll();
+        Thread.sleep(25);
+        queue.poll();
+        assertTrue(queue.isDropping());
+        assertTrue(queue.getDropCount() > 1, "count " + queue.getDropCount());
+    }
+
+    @Test
+    public void nonExpirableTasksPassThrough() throws Exception {
+        CoDelQueue queue = new CoDelQueue(new LinkedBlockingQueue<>(), 1, 1);
+        queue.offer(job("first", 500));
+        queue.poll();
+        Thread.sleep(5);
+        Runnable plain = () -> { };
+        queue.offer(plain);
+        assertSame(plain, queue.poll());
+    }
+
+    private static final class Job implements ExpirableTask {
+        private final String name;
+        private final long enqueuedNanos;
+        private final List<String> expired;
+
+        Job(String name, long enqueuedNanos, List<String> expired) {
+            this.name = name;
+            this.enqueuedNanos = enqueuedNanos;
+            this.expired = expired;
+        }
+
+        @Override
+        public void run() { }
+
+        @Override
+        public long getEnqueuedNanos() { return enqueuedNanos; }
+
+        @Override
+        public void onExpired(long sojournNanos) {
+            expired.add(name);
+        }
+
+        @Override
+        public String toString() { return name; }
+    }
+}
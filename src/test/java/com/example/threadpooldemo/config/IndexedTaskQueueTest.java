@@ -0,0 +1,136 @@
+package com.example.threadpooldemo.config;
+
+import com.example.threadpooldemo.handler.LoggingRejectedExecutionHandler;
+import com.example.threadpooldemo.handler.LoggingRejectedExecutionHandler.OverflowPolicy;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndexedTaskQueueTest {
+
+    private static Runnable named(String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+            }
+
+            @Override
+            public String toString() {
+                return name;
+            }
+        };
+    }
+
+    private static List<String> drainNames(IndexedTaskQueue queue) {
+        List<Runnable> drained = new ArrayList<>();
+        queue.drainTo(drained);
+        List<String> names = new ArrayList<>();
+        for (Runnable r : drained) {
+            names.add(r.toString());
+        }
+        return names;
+    }
+
+    @Test
+    public void removingAnyTaskKeepsFifoOrderAndFreesItsSlot() {
+        IndexedTaskQueue queue = new IndexedTaskQueue(3);
+        Runnable a = named("a");
+        Runnable b = named("b");
+        Runnable c = named("c");
+        assertTrue(queue.offer(a));
+        assertTrue(queue.offer(b));
+        assertTrue(queue.offer(c));
+        assertFalse(queue.offer(named("d")));
+
+        assertTrue(queue.remove(b));
+        assertFalse(queue.remove(b));
+        assertFalse(queue.contains(b));
+        assertEquals(1, queue.remainingCapacity());
+        assertTrue(queue.offer(named("d")));
+        assertSame(a, queue.peek());
+
+        assertEquals(List.of("a", "c", "d"), drainNames(queue));
+        assertNull(queue.poll());
+        assertNull(queue.peek());
+        assertEquals(3, queue.remainingCapacity());
+    }
+
+    @Test
+    public void iteratorRemovesFromTheQueue() {
+        IndexedTaskQueue queue = new IndexedTaskQueue(5);
+        for (String name : new String[]{"a", "b", "c"}) {
+            queue.offer(named(name));
+        }
+        Iterator<Runnable> it = queue.iterator();
+        it.next();
+        it.next();
+        it.remove();
+
+        assertEquals(List.of("a", "c"), drainNames(queue));
+    }
+
+    @Test
+    public void takeWaitsForATaskAndPutForASlot() throws Exception {
+        IndexedTaskQueue queue = new IndexedTaskQueue(1);
+        CompletableFuture<Runnable> taken = CompletableFuture.supplyAsync(() -> {
+            try {
+                return queue.take();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Runnable a = named("a");
+        queue.put(a);
+        assertSame(a, taken.get(5, TimeUnit.SECONDS));
+
+        queue.put(named("b"));
+        assertFalse(queue.offer(named("c"), 20, TimeUnit.MILLISECONDS));
+        CompletableFuture<Void> put = CompletableFuture.runAsync(() -> {
+            try {
+                queue.put(named("c"));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertEquals("b", queue.poll(1, TimeUnit.SECONDS).toString());
+        put.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("c"), drainNames(queue));
+        assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void cancelledTaskNoLongerCountsAgainstExecutorCapacity() throws Exception {
+        IndexedTaskQueue queue = new IndexedTaskQueue(1);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, queue,
+                new LoggingRejectedExecutionHandler(OverflowPolicy.REJECT));
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            executor.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            Runnable queued = named("queued");
+            executor.execute(queued);
+            assertThrows(RejectedExecutionException.class, () -> executor.execute(named("full")));
+
+            assertTrue(executor.remove(queued));
+            executor.execute(named("admitted"));
+            assertEquals(1, queue.size());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+}
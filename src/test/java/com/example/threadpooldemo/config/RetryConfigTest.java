@@ -0,0 +1,24 @@
+package com.example.threadpooldemo.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RetryConfigTest {
+
+    @Test
+    public void backoffGrowsExponentiallyUpToTheCap() {
+        // random = 0.5 means no jitter offset
+        assertEquals(100, RetryConfig.backoffDelayMillis(100, 2.0, 1000, 0.2, 1, 0.5));
+        assertEquals(200, RetryConfig.backoffDelayMillis(100, 2.0, 1000, 0.2, 2, 0.5));
+        assertEquals(400, RetryConfig.backoffDelayMillis(100, 2.0, 1000, 0.2, 3, 0.5));
+        assertEquals(1000, RetryConfig.backoffDelayMillis(100, 2.0, 1000, 0.2, 10, 0.5));
+    }
+
+    @Test
+    public void jitterSpreadsWithinBounds() {
+        assertEquals(80, RetryConfig.backoffDelayMillis(100, 2.0, 1000, 0.2, 1, 0.0));
+        assertEquals(120, RetryConfig.backoffDelayMillis(100, 2.0, 1000, 0.2, 1, 1.0));
+        assertEquals(100, RetryConfig.backoffDelayMillis(100, 2.0, 1000, 0.0, 1, 1.0));
+    }
+}
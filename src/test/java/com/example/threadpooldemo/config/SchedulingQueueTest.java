@@ -0,0 +1,149 @@
+package com.example.threadpooldemo.config;
+
+import com.example.threadpooldemo.handler.LoggingRejectedExecutionHandler;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SchedulingQueueTest {
+
+    private static Job job(String name, int priority, int complexity) {
+        return new Job(name, priority, complexity);
+    }
+
+    private static List<String> drainNames(SchedulingQueue queue) {
+        List<Runnable> drained = new ArrayList<>();
+        queue.drainTo(drained);
+        List<String> names = new ArrayList<>();
+        for (Runnable r : drained) {
+            names.add(r.toString());
+        }
+        return names;
+    }
+
+    @Test
+    public void shortestJobFirstOrdersByComplexity() {
+        SchedulingQueue queue = new SchedulingQueue(10, SchedulingPolicy.SJF, 60_000);
+        queue.offer(job("big", 0, 10));
+        queue.offer(job("small", 0, 1));
+        queue.offer(job("medium", 0, 5));
+        queue.offer(job("small-2", 0, 1));
+
+        assertEquals(List.of("small", "small-2", "medium", "big"), drainNames(queue));
+    }
+
+    @Test
+    public void priorityOrdersHighestFirst() {
+        SchedulingQueue queue = new SchedulingQueue(10, SchedulingPolicy.PRIORITY, 60_000);
+        queue.offer(job("low", 1, 1));
+        queue.offer(job("high", 9, 10));
+        queue.offer(() -> { });
+        queue.offer(job("mid", 5, 1));
+
+        List<String> names = drainNames(queue);
+        assertEquals(List.of("high", "mid", "low"), names.subList(0, 3));
+    }
+
+    @Test
+    public void outOfRangePriorityCannotPushOthersBackIndefinitely() throws Exception {
+        SchedulingQueue queue = new SchedulingQueue(10, SchedulingPolicy.PRIORITY, 1);
+        queue.offer(job("low", Integer.MIN_VALUE, 1));
+        // ranks are clamped to 10 either way, so 20ms is enough for the old task to win
+        Thread.sleep(50);
+        queue.offer(job("high", Integer.MAX_VALUE, 1));
+
+        assertEquals(List.of("low", "high"), drainNames(queue));
+    }
+
+    @Test
+    public void agingLetsOldLargeJobsAheadOfNewSmallOnes() throws Exception {
+        SchedulingQueue queue = new SchedulingQueue(10, SchedulingPolicy.SJF, 10);
+        queue.offer(job("big", 0, 3));
+        // after more than (3 - 1) * 10ms the big job outranks a newly arrived small one
+        Thread.sleep(50);
+        queue.offer(job("small", 0, 1));
+
+        assertEquals(List.of("big", "small"), drainNames(queue));
+    }
+
+    @Test
+    public void removeAndPollLastAndCapacity() {
+        SchedulingQueue queue = new SchedulingQueue(3, SchedulingPolicy.SJF, 60_000);
+        Job a = job("a", 0, 1);
+        Job b = job("b", 0, 5);
+        Job c = job("c", 0, 9);
+        assertTrue(queue.offer(a));
+        assertTrue(queue.offer(b));
+        assertTrue(queue.offer(c));
+        assertFalse(queue.offer(job("d", 0, 1)), "queue is bounded");
+        assertEquals(0, queue.remainingCapacity());
+
+        assertTrue(queue.remove(b));
+        assertFalse(queue.remove(b));
+        assertSame(c, queue.pollLast());
+        assertSame(a, queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void rejectionHandlerDropsLeastUrgentTask() throws Exception {
+        SchedulingQueue queue = new SchedulingQueue(2, SchedulingPolicy.SJF, 60_000);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, queue,
+                new LoggingRejectedExecutionHandler());
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            executor.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            executor.execute(job("small", 0, 1));
+            executor.execute(job("big", 0, 10));
+            executor.execute(job("medium", 0, 5));
+
+            assertEquals(List.of("small", "medium"), drainNames(queue));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private static final class Job implements PrioritizedTask {
+        private final String name;
+        private final int priority;
+        private final int complexity;
+
+        Job(String name, int priority, int complexity) {
+            this.name = name;
+            this.priority = priority;
+            this.complexity = complexity;
+        }
+
+        @Override
+        public void run() {
+        }
+
+        @Override
+        public int getPriority() {
+            return priority;
+        }
+
+        @Override
+        public int getComplexity() {
+            return complexity;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.threadpooldemo.config;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for the platform/virtual executor modes of {@link ThreadPoolConfig}.
+ *
+ * The comparison benchmark only runs on JDK 21+ and when started with
+ * {@code -Dbenchmark=true}, since it deliberately pushes 10k tasks through each mode.
+ */
+public class ThreadPoolModeTest {
+    private static final Logger logger = LoggerFactory.getLogger(ThreadPoolModeTest.class);
+
+    private static final int BENCHMARK_TASKS = 10_000;
+    private static final long BENCHMARK_BLOCKING_MILLIS = 20;
+
+    private static boolean virtualThreadsAvailable() {
+        return Runtime.version().feature() >= 21;
+    }
+
+    private ThreadPoolConfig config(String mode, int core, int max, int queueCapacity) {
+        ThreadPoolConfig config = new ThreadPoolConfig();
+        ReflectionTestUtils.setField(config, "mode", mode);
+        ReflectionTestUtils.setField(config, "corePoolSize", core);
+        ReflectionTestUtils.setField(config, "maxPoolSize", max);
+        ReflectionTestUtils.setField(config, "keepAliveSeconds", 20);
+        ReflectionTestUtils.setField(config, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(config, "virtualMaxConcurrency", max);
+        return config;
+    }
+
+    @Test
+    public void platformModeIsDefault() throws Exception {
+        ThreadPoolExecutor executor = config("platform", 2, 4, 10).taskExecutor();
+        try {
+            Future<String> name = executor.submit(() -> Thread.currentThread().getName());
+            Assertions.assertTrue(name.get(2, TimeUnit.SECONDS).startsWith("image-processor-"));
+            Assertions.assertEquals(4, executor.getMaximumPoolSize());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void virtualModeFailsFastBeforeJdk21() {
+        Assumptions.assumeFalse(virtualThreadsAvailable());
+        ThreadPoolConfig config = config("virtual", 2, 4, 10);
+        Assertions.assertThrows(IllegalStateException.class, config::taskExecutor);
+    }
+
+    @Test
+    public void virtualModeRunsOnVirtualThreadsWithinConcurrencyLimit() throws Exception {
+        Assumptions.assumeTrue(virtualThreadsAvailable());
+        int limit = 4;
+        ThreadPoolExecutor executor = config("virtual", 1, limit, 100).taskExecutor();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                futures.add(executor.submit(() -> {
+                    peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    Thread.sleep(20);
+                    running.decrementAndGet();
+                    return (Boolean) Thread.class.getMethod("isVirtual").invoke(Thread.currentThread());
+                }));
+            }
+            for (Future<Boolean> f : futures) {
+                Assertions.assertTrue(f.get(5, TimeUnit.SECONDS));
+            }
+            Assertions.assertTrue(peak.get() <= limit, "Concurrency limit exceeded: " + peak.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void compareModesAtTenThousandConcurrentTasks() throws Exception {
+        Assumptions.assumeTrue(Boolean.getBoolean("benchmark"), "run with -Dbenchmark=true");
+        Assumptions.assumeTrue(virtualThreadsAvailable());
+
+        long platformMillis = runBlockingTasks(config("platform", 3, 6, BENCHMARK_TASKS).taskExecutor());
+        long virtualMillis = runBlockingTasks(config("virtual", 3, BENCHMARK_TASKS, BENCHMARK_TASKS).taskExecutor());
+
+        logger.info("{} tasks blocking {}ms each: platform(core=3,max=6)={}ms virtual={}ms",
+                BENCHMARK_TASKS, BENCHMARK_BLOCKING_MILLIS, platformMillis, virtualMillis);
+        Assertions.assertTrue(virtualMillis < platformMillis);
+    }
+
+    private long runBlockingTasks(ThreadPoolExecutor executor) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(BENCHMARK_TASKS);
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < BENCHMARK_TASKS; i++) {
+                executor.execute(() -> {
+                    try {
+                        Thread.sleep(BENCHMARK_BLOCKING_MILLIS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            Assertions.assertTrue(done.await(10, TimeUnit.MINUTES));
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
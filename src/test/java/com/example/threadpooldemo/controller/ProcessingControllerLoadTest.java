@@ -0,0 +1,263 @@
+package com.example.threadpooldemo.controller;
+
+import com.example.threadpooldemo.ThreadpoolExecutorSpringbootDemoApplication;
+import com.example.threadpooldemo.config.GracefulThreadPoolExecutor;
+import com.example.threadpooldemo.model.TaskRequest;
+import com.example.threadpooldemo.model.TaskState;
+import com.example.threadpooldemo.model.TaskStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop macro benchmark of the REST API. Starts the application on a random port,
+ * sends {@code POST /api/tasks} at a fixed arrival rate regardless of how fast the
+ * server answers, polls {@code GET /api/tasks/{id}} until every accepted task is
+ * terminal, and prints a latency report (also written to {@code target/}).
+ *
+ * Latencies are measured from the intended send time, so a stalled server shows up as
+ * latency instead of silently lowering the offered load. Completion times are only as
+ * precise as {@code load.pollMillis}.
+ *
+ * Skipped unless run with {@code -Dload=true}, e.g.
+ * {@code mvn test -Dtest=ProcessingControllerLoadTest -Dload=true -Dload.rate=20 -Dload.persistence=true}.
+ * Other knobs: {@code load.durationSeconds}, {@code load.complexity}, {@code load.drainSeconds}
+ * and {@code load.profile} (a Spring profile, i.e. {@code application-<profile>.properties}).
+ */
+public class ProcessingControllerLoadTest {
+    private static final Logger logger = LoggerFactory.getLogger(ProcessingControllerLoadTest.class);
+
+    private static final int RATE = Integer.getInteger("load.rate", 10);
+    private static final int DURATION_SECONDS = Integer.getInteger("load.durationSeconds", 30);
+    private static final int COMPLEXITY = Integer.getInteger("load.complexity", 1);
+    private static final long POLL_MILLIS = Long.getLong("load.pollMillis", 50);
+    private static final int DRAIN_SECONDS = Integer.getInteger("load.drainSeconds", 60);
+    private static final String PROFILE = System.getProperty("load.profile", "");
+    private static final boolean PERSISTENCE = Boolean.getBoolean("load.persistence");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void openLoopLoadReport() throws Exception {
+        Assumptions.assumeTrue(Boolean.getBoolean("load"), "run with -Dload=true");
+
+        ConfigurableApplicationContext context = startApplication();
+        ExecutorService clientPool = Executors.newCachedThreadPool();
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            GracefulThreadPoolExecutor executor = context.getBean(GracefulThreadPoolExecutor.class);
+            HttpClient client = HttpClient.newBuilder().executor(clientPool).connectTimeout(Duration.ofSeconds(5)).build();
+            Report report = run(client, "http://localhost:" + port + "/api/tasks", executor);
+
+            String text = report.format();
+            Path out = Path.of("target", "load-report-" + label() + ".txt");
+            Files.createDirectories(out.getParent());
+            Files.writeString(out, text, StandardCharsets.UTF_8);
+            logger.info("Load report written to {}:\n{}", out, text);
+
+            Assertions.assertTrue(report.completionNanos.size() > 0, "no task completed");
+        } finally {
+            context.close();
+            clientPool.shutdownNow();
+        }
+    }
+
+    private ConfigurableApplicationContext startApplication() {
+        List<String> args = new ArrayList<>(Arrays.asList(
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--logging.level.com.example.threadpooldemo=WARN"));
+        if (!PROFILE.isEmpty()) {
+            args.add("--spring.profiles.active=" + PROFILE);
+        }
+        if (PERSISTENCE) {
+            args.add("--app.persistence.enabled=true");
+            args.add("--spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1");
+            args.add("--spring.jpa.hibernate.ddl-auto=create-drop");
+        }
+        return new SpringApplicationBuilder(ThreadpoolExecutorSpringbootDemoApplication.class)
+                .run(args.toArray(new String[0]));
+    }
+
+    private static String label() {
+        return (PERSISTENCE ? "jpa" : "memory") + (PROFILE.isEmpty() ? "" : "-" + PROFILE);
+    }
+
+    private Report run(HttpClient client, String baseUrl, GracefulThreadPoolExecutor executor) throws Exception {
+        Report report = new Report();
+        long rejectedBefore = executor.getRejectedCount();
+        // id -> intended send time of its POST
+        Map<String, Long> outstanding = new ConcurrentHashMap<>();
+        List<CompletableFuture<?>> submissions = new ArrayList<>();
+        String body = objectMapper.writeValueAsString(new TaskRequest("load.jpg", COMPLEXITY));
+
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / RATE;
+        int total = RATE * DURATION_SECONDS;
+        report.start = System.nanoTime();
+        Thread poller = new Thread(() -> poll(client, baseUrl, outstanding, report), "load-poller");
+        poller.start();
+
+        for (int i = 0; i < total; i++) {
+            long intended = report.start + i * intervalNanos;
+            long delay = intended - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            HttpRequest post = HttpRequest.newBuilder(URI.create(baseUrl))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            submissions.add(client.sendAsync(post, HttpResponse.BodyHandlers.ofString()).whenComplete((response, error) -> {
+                report.submitNanos.add(System.nanoTime() - intended);
+                if (error == null && response.statusCode() == 201) {
+                    outstanding.put(response.body(), intended);
+                    report.accepted.incrementAndGet();
+                } else {
+                    report.httpRejected.incrementAndGet();
+                }
+            }));
+        }
+        report.sent = total;
+        report.sendWindowNanos = System.nanoTime() - report.start;
+        CompletableFuture.allOf(submissions.toArray(new CompletableFuture[0]))
+                .exceptionally(e -> null)
+                .get(DRAIN_SECONDS, TimeUnit.SECONDS);
+        report.submissionsDone = true;
+
+        poller.join(TimeUnit.SECONDS.toMillis(DRAIN_SECONDS));
+        poller.interrupt();
+        poller.join();
+        report.unfinished = outstanding.size();
+        report.executorRejected = executor.getRejectedCount() - rejectedBefore;
+        return report;
+    }
+
+    /**
+     * Polls every outstanding task once per round until all submissions are answered
+     * and every accepted task has reached a terminal state.
+     */
+    private void poll(HttpClient client, String baseUrl, Map<String, Long> outstanding, Report report) {
+        while (!Thread.currentThread().isInterrupted() && !(report.submissionsDone && outstanding.isEmpty())) {
+            Map<String, CompletableFuture<HttpResponse<String>>> round = new HashMap<>();
+            for (String id : outstanding.keySet()) {
+                HttpRequest get = HttpRequest.newBuilder(URI.create(baseUrl + "/" + id)).GET().build();
+                round.put(id, client.sendAsync(get, HttpResponse.BodyHandlers.ofString()));
+            }
+            for (Map.Entry<String, CompletableFuture<HttpResponse<String>>> entry : round.entrySet()) {
+                TaskState state = stateOf(entry.getValue());
+                if (state != null && state.isTerminal()) {
+                    Long intended = outstanding.remove(entry.getKey());
+                    long now = System.nanoTime();
+                    report.completionNanos.add(now - intended);
+                    report.lastCompletion = now;
+                    report.outcomes.merge(state, 1L, Long::sum);
+                }
+            }
+            try {
+                Thread.sleep(POLL_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private TaskState stateOf(CompletableFuture<HttpResponse<String>> future) {
+        try {
+            HttpResponse<String> response = future.join();
+            if (response.statusCode() != 200) {
+                return null;
+            }
+            String label = objectMapper.readTree(response.body()).path("status").asText();
+            return TaskStatus.parse(label).getState();
+        } catch (RuntimeException | IOException e) {
+            return null;
+        }
+    }
+
+    private static final class Report {
+        final Queue<Long> submitNanos = new ConcurrentLinkedQueue<>();
+        final Queue<Long> completionNanos = new ConcurrentLinkedQueue<>();
+        final AtomicLong accepted = new AtomicLong();
+        final AtomicLong httpRejected = new AtomicLong();
+        final Map<TaskState, Long> outcomes = new EnumMap<>(TaskState.class);
+        volatile boolean submissionsDone;
+        long start;
+        long sendWindowNanos;
+        long lastCompletion;
+        long sent;
+        long executorRejected;
+        long unfinished;
+
+        String format() {
+            long[] submit = sorted(submitNanos);
+            long[] completion = sorted(completionNanos);
+            double sendSeconds = sendWindowNanos / 1e9;
+            double completionSeconds = Math.max(1, lastCompletion - start) / 1e9;
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("=== REST load report (%s) ===%n", label()));
+            sb.append(String.format("offered rate       %d req/s for %ds, complexity %d, poll every %dms%n",
+                    RATE, DURATION_SECONDS, COMPLEXITY, POLL_MILLIS));
+            sb.append(String.format("submitted          %d sent, %d accepted, %d rejected by HTTP%n",
+                    sent, accepted.get(), httpRejected.get()));
+            sb.append(String.format("executor rejected  %d (tasks dropped by the rejection handler)%n", executorRejected));
+            sb.append(String.format("rejection rate     %.2f%%%n", 100.0 * (httpRejected.get() + executorRejected) / Math.max(1, sent)));
+            sb.append(String.format("submit latency     %s%n", percentiles(submit)));
+            sb.append(String.format("time to completion %s%n", percentiles(completion)));
+            sb.append(String.format("throughput         %.1f submits/s accepted, %.1f tasks/s reached a final state%n",
+                    accepted.get() / sendSeconds, completion.length / completionSeconds));
+            sb.append(String.format("outcomes           %s, %d never finished%n", outcomes, unfinished));
+            return sb.toString();
+        }
+
+        private static long[] sorted(Queue<Long> samples) {
+            long[] values = samples.stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(values);
+            return values;
+        }
+
+        private static String percentiles(long[] sorted) {
+            if (sorted.length == 0) {
+                return "n/a";
+            }
+            return String.format("p50=%.1fms p90=%.1fms p99=%.1fms p99.9=%.1fms max=%.1fms (n=%d)",
+                    at(sorted, 0.5), at(sorted, 0.9), at(sorted, 0.99), at(sorted, 0.999),
+                    sorted[sorted.length - 1] / 1e6, sorted.length);
+        }
+
+        private static double at(long[] sorted, double quantile) {
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+        }
+    }
+}
@@ -1,15 +1,35 @@
 package com.example.threadpooldemo.controller;
 
+import com.example.threadpooldemo.dto.TaskStatusDto;
 import com.example.threadpooldemo.model.TaskRequest;
+import com.example.threadpooldemo.service.ProcessingService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.AsyncListener;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockAsyncContext;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -22,6 +42,9 @@ public class ProcessingControllerTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @SpyBean
+    private ProcessingService service;
+
     @Test
     public void testSubmitEndpoint() throws Exception {
         TaskRequest req = new TaskRequest("controller-img.jpg", 2);
@@ -30,4 +53,206 @@ public class ProcessingControllerTest {
                 .content(objectMapper.writeValueAsString(req)))
                 .andExpect(status().isCreated());
     }
+
+    @Test
+    public void testSubmitAcceptsDeadlineAndRejectsInvalidTimeout() throws Exception {
+        mockMvc.perform(post("/api/tasks")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"fileName\":\"deadline.jpg\",\"complexity\":1,\"deadline\":\"2999-01-01T00:00:00Z\"}"))
+                .andExpect(status().isCreated());
+        mockMvc.perform(post("/api/tasks")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"fileName\":\"deadline.jpg\",\"complexity\":1,\"timeoutMillis\":0}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testOutOfRangePriorityIsRejected() throws Exception {
+        mockMvc.perform(post("/api/tasks")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new TaskRequest("priority.jpg", 1, Integer.MAX_VALUE))))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testUnknownWorkloadClassIsRejected() throws Exception {
+        mockMvc.perform(post("/api/tasks")
+                .header("X-Workload-Class", "no-such-pool")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new TaskRequest("workload.jpg", 1))))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testRepeatedIdempotencyKeyReturnsOriginalTask() throws Exception {
+        String body = objectMapper.writeValueAsString(new TaskRequest("idempotent.jpg", 1));
+        String first = mockMvc.perform(post("/api/tasks")
+                .header("Idempotency-Key", "controller-retry-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        mockMvc.perform(post("/api/tasks")
+                .header("Idempotency-Key", "controller-retry-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+                .andExpect(status().isCreated())
+                .andExpect(content().string(first));
+        mockMvc.perform(post("/api/tasks")
+                .header("Idempotency-Key", " ")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testBulkCancelByFilter() throws Exception {
+        String id = mockMvc.perform(post("/api/tasks")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new TaskRequest("bulk-cancel.jpg", 10))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        mockMvc.perform(post("/api/tasks/cancel")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\":[\"" + id + "\"],\"fileNamePrefix\":\"bulk-\",\"submittedBefore\":\"2999-01-01T00:00:00Z\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.matched").value(1));
+        mockMvc.perform(post("/api/tasks/cancel")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testBatchSubmitEndpointReportsPerItemResults() throws Exception {
+        List<TaskRequest> batch = List.of(
+                new TaskRequest("batch-1.jpg", 1),
+                new TaskRequest("", 1),
+                new TaskRequest("batch-3.jpg", 1));
+        mockMvc.perform(post("/api/tasks/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(batch)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].accepted").value(true))
+                .andExpect(jsonPath("$[1].accepted").value(false))
+                .andExpect(jsonPath("$[1].index").value(1))
+                .andExpect(jsonPath("$[2].accepted").value(true));
+    }
+
+    @Test
+    public void testListIsPaginatedWithCursor() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(post("/api/tasks")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(new TaskRequest("page-" + i + ".jpg", 1))))
+                    .andExpect(status().isCreated());
+        }
+        mockMvc.perform(get("/api/tasks").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.nextAfter").isNotEmpty());
+        mockMvc.perform(get("/api/tasks"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isArray());
+    }
+
+    @Test
+    public void testListStreamsNdjson() throws Exception {
+        mockMvc.perform(post("/api/tasks")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new TaskRequest("stream.jpg", 1))))
+                .andExpect(status().isCreated());
+
+        MvcResult started = mockMvc.perform(get("/api/tasks").accept(ProcessingController.NDJSON)).andReturn();
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        List<String> lines = Arrays.asList(body.split("\n"));
+        Assertions.assertFalse(lines.isEmpty());
+        for (String line : lines) {
+            Assertions.assertTrue(objectMapper.readTree(line).has("status"), line);
+        }
+    }
+
+    @Test
+    public void testEventStreamPushesTransitionsOfSubscribedTask() throws Exception {
+        String id = mockMvc.perform(post("/api/tasks")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new TaskRequest("events.jpg", 1))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+
+        MvcResult started = mockMvc.perform(get("/api/tasks/events").param("id", id).accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        Awaitility.await().atMost(Duration.ofSeconds(10)).until(() ->
+                started.getResponse().getContentAsString().contains("\"status\":\"COMPLETED\""));
+        String body = started.getResponse().getContentAsString();
+        Assertions.assertTrue(body.contains("event:status"), body);
+        Assertions.assertTrue(body.contains("\"id\":\"" + id + "\""), body);
+    }
+
+    @Test
+    public void testSubmitAndWaitReturnsFinalStatus() throws Exception {
+        MvcResult started = mockMvc.perform(post("/api/tasks").param("wait", "true").param("timeout", "10s")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new TaskRequest("wait.jpg", 1))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.status").value("COMPLETED"));
+    }
+
+    @Test
+    public void testStatusLongPollAnswersOnTerminalStateOrTimeout() throws Exception {
+        String slow = mockMvc.perform(post("/api/tasks")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new TaskRequest("long-poll.jpg", 3))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+
+        MvcResult timedOut = mockMvc.perform(get("/api/tasks/" + slow).param("waitFor", "terminal").param("timeout", "100ms"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        // MockMvc has no container to expire the request, so fire the timeout by hand
+        MockAsyncContext asyncContext = (MockAsyncContext) timedOut.getRequest().getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(null);
+        }
+        mockMvc.perform(asyncDispatch(timedOut))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(slow))
+                .andExpect(jsonPath("$.status").value(not("COMPLETED")));
+
+        MvcResult done = mockMvc.perform(get("/api/tasks/" + slow).param("waitFor", "terminal").param("timeout", "10"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(done))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("COMPLETED"));
+
+        mockMvc.perform(get("/api/tasks/" + slow).param("waitFor", "running"))
+                .andExpect(status().isBadRequest());
+        // 0 would mean "no timeout" to the container
+        mockMvc.perform(get("/api/tasks/" + slow).param("waitFor", "terminal").param("timeout", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testLongPollTimeoutStopsWaitingForTheTask() throws Exception {
+        CompletableFuture<TaskStatusDto> completion = new CompletableFuture<>();
+        Mockito.doReturn(completion).when(service).awaitCompletion("abandoned");
+
+        MvcResult timedOut = mockMvc.perform(get("/api/tasks/abandoned").param("waitFor", "terminal").param("timeout", "100ms"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MockAsyncContext asyncContext = (MockAsyncContext) timedOut.getRequest().getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(null);
+        }
+
+        Assertions.assertTrue(completion.isCancelled());
+    }
 }
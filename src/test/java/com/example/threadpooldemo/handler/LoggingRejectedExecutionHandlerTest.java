@@ -1,8 +1,15 @@
 package com.example.threadpooldemo.handler;
 
+import com.example.threadpooldemo.config.DroppableTask;
+import com.example.threadpooldemo.handler.LoggingRejectedExecutionHandler.OverflowPolicy;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -25,4 +32,67 @@ public class LoggingRejectedExecutionHandlerTest {
         executor.shutdown();
         executor.awaitTermination(1, TimeUnit.SECONDS);
     }
+
+    @Test
+    public void testDropPoliciesNotifyTheVictim() throws Exception {
+        Assertions.assertEquals(List.of("queued"), dropped(OverflowPolicy.DROP_OLDEST));
+        Assertions.assertEquals(List.of("incoming"), dropped(OverflowPolicy.DROP_NEWEST));
+    }
+
+    @Test
+    public void testRejectPolicyThrowsAndKeepsTheQueue() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ThreadPoolExecutor executor = saturated(OverflowPolicy.REJECT, release, new ArrayList<>());
+        try {
+            Assertions.assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> { }));
+            Assertions.assertEquals(1, executor.getQueue().size());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private List<String> dropped(OverflowPolicy policy) throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> dropped = new ArrayList<>();
+        ThreadPoolExecutor executor = saturated(policy, release, dropped);
+        try {
+            executor.execute(new Droppable("incoming", dropped));
+            Assertions.assertEquals(1, executor.getQueue().size());
+            return dropped;
+        } finally {
+            release.countDown();
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        }
+    }
+
+    /** One worker blocked until {@code release}, one droppable task "queued" waiting. */
+    private static ThreadPoolExecutor saturated(OverflowPolicy policy, CountDownLatch release, List<String> dropped) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(1), new LoggingRejectedExecutionHandler(policy));
+        executor.execute(() -> {
+            try { release.await(); } catch (InterruptedException ignored) {}
+        });
+        executor.execute(new Droppable("queued", dropped));
+        return executor;
+    }
+
+    private static final class Droppable implements DroppableTask {
+        private final String name;
+        private final List<String> dropped;
+
+        Droppable(String name, List<String> dropped) {
+            this.name = name;
+            this.dropped = dropped;
+        }
+
+        @Override
+        public void run() { }
+
+        @Override
+        public void onDropped() {
+            dropped.add(name);
+        }
+    }
 }
@@ -0,0 +1,48 @@
+package com.example.threadpooldemo.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TaskStatusTest {
+
+    @Test
+    public void labelsMatchTheRestFormat() {
+        assertEquals("QUEUED", TaskStatus.QUEUED.toString());
+        assertEquals("ATTEMPT_2_OF_3", TaskStatus.running(2, 3).toString());
+        assertEquals("FAILED_ATTEMPT_1_RETRYING", TaskStatus.retrying(1, 3).toString());
+        assertEquals("FAILED_PERMANENTLY", TaskStatus.FAILED_PERMANENTLY.toString());
+    }
+
+    @Test
+    public void commonStatusesAreShared() {
+        assertSame(TaskStatus.running(2, 3), TaskStatus.running(2, 3));
+        assertSame(TaskStatus.retrying(1, 5), TaskStatus.of(TaskState.RETRYING, 1, 5));
+        assertSame(TaskStatus.COMPLETED, TaskStatus.of(TaskState.COMPLETED));
+        // outside the cache a new but equal instance is returned
+        assertEquals(TaskStatus.running(1, 100), TaskStatus.running(1, 100));
+    }
+
+    @Test
+    public void parseRoundTripsLabels() {
+        assertEquals(TaskStatus.running(2, 3), TaskStatus.parse("ATTEMPT_2_OF_3"));
+        assertEquals(TaskState.RETRYING, TaskStatus.parse("FAILED_ATTEMPT_1_RETRYING").getState());
+        assertSame(TaskStatus.CANCELLED, TaskStatus.parse("CANCELLED"));
+        assertThrows(IllegalArgumentException.class, () -> TaskStatus.parse("DONE"));
+        assertThrows(IllegalArgumentException.class, () -> TaskStatus.parse("ATTEMPT_x_OF_3"));
+    }
+
+    @Test
+    public void transitionsFollowTheLifecycle() {
+        assertTrue(TaskState.QUEUED.canTransitionTo(TaskState.RUNNING));
+        assertTrue(TaskState.RUNNING.canTransitionTo(TaskState.RUNNING));
+        assertTrue(TaskState.RETRYING.canTransitionTo(TaskState.RUNNING));
+        assertTrue(TaskState.QUEUED.canTransitionTo(TaskState.CANCELLED));
+        assertFalse(TaskState.COMPLETED.canTransitionTo(TaskState.RUNNING));
+        assertFalse(TaskState.CANCELLED.canTransitionTo(TaskState.COMPLETED));
+        assertFalse(TaskState.RUNNING.canTransitionTo(TaskState.REJECTED));
+        for (TaskState state : TaskState.values()) {
+            assertSame(state, TaskState.fromCode(state.getCode()));
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.threadpooldemo.monitor;
+
+import com.example.threadpooldemo.config.GracefulThreadPoolExecutor;
+import com.example.threadpooldemo.config.TimestampedTask;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptivePoolControllerTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private GracefulThreadPoolExecutor executor;
+    private SimpleMeterRegistry registry;
+
+    private AdaptivePoolController controller(int core, int max) {
+        executor = new GracefulThreadPoolExecutor(core, max, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(10),
+                Thread::new, new ThreadPoolExecutor.AbortPolicy());
+        registry = new SimpleMeterRegistry();
+        return new AdaptivePoolController(executor, registry, 1, 8, 100, 3, 1, 0.5);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    private TimestampedTask blocker(long enqueuedNanos) {
+        return new TimestampedTask() {
+            @Override
+            public long getEnqueuedNanos() {
+                return enqueuedNanos;
+            }
+
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+
+    @Test
+    public void virtualModeExecutorIsLeftAlone() {
+        executor = new GracefulThreadPoolExecutor(100, 100, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(10),
+                Thread::new, new ThreadPoolExecutor.AbortPolicy());
+        registry = new SimpleMeterRegistry();
+        AdaptivePoolController controller = new AdaptivePoolController(executor, registry, 1, 8, 100, 1, 1, 0.5, "virtual");
+
+        controller.adjust();
+        controller.adjust();
+
+        assertEquals(100, executor.getCorePoolSize());
+        assertEquals(100, executor.getMaximumPoolSize());
+        assertEquals(100, controller.getLimit());
+    }
+
+    @Test
+    public void directionMustPersistForHysteresisSamples() {
+        AdaptivePoolController controller = controller(2, 3);
+        long high = TimeUnit.MILLISECONDS.toNanos(500);
+
+        assertEquals(AdaptivePoolController.Decision.HOLD, controller.decide(high, 1.0, 5));
+        assertEquals(AdaptivePoolController.Decision.HOLD, controller.decide(high, 1.0, 5));
+        // a sample inside the dead band resets the streak
+        assertEquals(AdaptivePoolController.Decision.HOLD, controller.decide(TimeUnit.MILLISECONDS.toNanos(80), 0.7, 5));
+        assertEquals(AdaptivePoolController.Decision.HOLD, controller.decide(high, 1.0, 5));
+        assertEquals(AdaptivePoolController.Decision.HOLD, controller.decide(high, 1.0, 5));
+        assertEquals(AdaptivePoolController.Decision.INCREASE, controller.decide(high, 1.0, 5));
+        // the streak starts over after a decision
+        assertEquals(AdaptivePoolController.Decision.HOLD, controller.decide(high, 1.0, 5));
+    }
+
+    @Test
+    public void saturatedPoolGrowsAdditively() {
+        AdaptivePoolController controller = controller(1, 2);
+        long longAgo = System.nanoTime() - TimeUnit.SECONDS.toNanos(1);
+        executor.execute(blocker(longAgo));
+        executor.execute(blocker(longAgo));
+        Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> executor.getActiveCount() == 1);
+
+        for (int i = 0; i < 3; i++) {
+            controller.adjust();
+        }
+        assertEquals(2, controller.getLimit());
+        assertEquals(2, executor.getCorePoolSize());
+        assertEquals(3, executor.getMaximumPoolSize(), "headroom above the limit is kept");
+        assertEquals(1.0, registry.get("threadpool.adaptive.decisions").tag("action", "increase").counter().count());
+        assertEquals(2.0, registry.get("threadpool.adaptive.limit").gauge().value());
+    }
+
+    @Test
+    public void idlePoolShrinksMultiplicativelyWithinBounds() {
+        AdaptivePoolController controller = controller(8, 8);
+
+        for (int i = 0; i < 3; i++) {
+            controller.adjust();
+        }
+        assertEquals(4, controller.getLimit());
+        assertEquals(4, executor.getCorePoolSize());
+        for (int i = 0; i < 9; i++) {
+            controller.adjust();
+        }
+        assertEquals(1, controller.getLimit(), "never below minPoolSize");
+        assertEquals(1, executor.getCorePoolSize());
+        assertEquals(3.0, registry.get("threadpool.adaptive.decisions").tag("action", "decrease").counter().count());
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.threadpooldemo.processor;
+
+import com.example.threadpooldemo.dto.TaskStatusDto;
+import com.example.threadpooldemo.model.TaskStatus;
+import com.example.threadpooldemo.repository.TaskRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ChunkedExecutionTest {
+
+    private final ChunkedExecution chunked = new ChunkedExecution(new ForkJoinPool(4), 2, 1);
+
+    @AfterEach
+    public void tearDown() {
+        chunked.shutdown();
+    }
+
+    @Test
+    public void everyIterationRunsOnceAndInParallel() throws Exception {
+        Set<Integer> seen = ConcurrentHashMap.newKeySet();
+        AtomicInteger calls = new AtomicInteger();
+        long start = System.nanoTime();
+        chunked.run(8, i -> {
+            calls.incrementAndGet();
+            seen.add(i);
+            Thread.sleep(100);
+        }, () -> false);
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        Assertions.assertEquals(8, calls.get());
+        Assertions.assertEquals(8, seen.size());
+        // 8 x 100ms sequentially; 4 workers need about 200ms
+        Assertions.assertTrue(millis < 600, "took " + millis + "ms");
+    }
+
+    @Test
+    public void onlyTasksAboveThresholdAreSplit() {
+        Assertions.assertFalse(chunked.shouldSplit(2));
+        Assertions.assertTrue(chunked.shouldSplit(3));
+    }
+
+    @Test
+    public void cancellationStopsRemainingChunks() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        AtomicInteger cancelAfter = new AtomicInteger(2);
+        chunked.run(100, i -> {
+            calls.incrementAndGet();
+            cancelAfter.decrementAndGet();
+            Thread.sleep(20);
+        }, () -> cancelAfter.get() <= 0);
+
+        Assertions.assertTrue(calls.get() < 100, "ran " + calls.get());
+    }
+
+    @Test
+    public void failingChunkIsRethrownToTheCaller() {
+        IllegalArgumentException thrown = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> chunked.run(4, i -> {
+                    if (i == 3) {
+                        throw new IllegalArgumentException("bad tile " + i);
+                    }
+                }, () -> false));
+        Assertions.assertEquals("bad tile 3", thrown.getMessage());
+    }
+
+    @Test
+    public void interruptingTheCallerAbortsTheChunks() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        AtomicReference<Throwable> outcome = new AtomicReference<>();
+        Thread caller = new Thread(() -> {
+            try {
+                chunked.run(100, i -> {
+                    calls.incrementAndGet();
+                    started.countDown();
+                    Thread.sleep(20);
+                }, () -> false);
+            } catch (Throwable t) {
+                outcome.set(t);
+            }
+        });
+        caller.start();
+        Assertions.assertTrue(started.await(2, TimeUnit.SECONDS));
+        caller.interrupt();
+        caller.join(2000);
+
+        Assertions.assertTrue(outcome.get() instanceof InterruptedException, String.valueOf(outcome.get()));
+        int afterAbort = calls.get();
+        Thread.sleep(100);
+        // at most the iterations already in flight on the 4 workers finish
+        Assertions.assertTrue(calls.get() <= afterAbort + 4);
+        Assertions.assertTrue(calls.get() < 100);
+    }
+
+    @Test
+    public void splitTaskReportsAsOneLogicalTask() {
+        TaskRepository repository = new TaskRepository();
+        repository.save(new TaskStatusDto("t1", "big.jpg", TaskStatus.QUEUED, null));
+        ImageProcessorTask task = new ImageProcessorTask("t1", "big.jpg", 8, repository, 1, 0, chunked);
+
+        long start = System.nanoTime();
+        task.run();
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        Assertions.assertEquals("COMPLETED", repository.find("t1").getStatus());
+        Assertions.assertEquals(Thread.currentThread().getName(), repository.find("t1").getAssignedThread());
+        // sequentially at least 8 x 200ms
+        Assertions.assertTrue(millis < 1600, "took " + millis + "ms");
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.threadpooldemo.processor;
+
+import com.example.threadpooldemo.dto.TaskStatusDto;
+import com.example.threadpooldemo.model.TaskState;
+import com.example.threadpooldemo.model.TaskStatus;
+import com.example.threadpooldemo.repository.TaskRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ResultCacheTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    public void concurrentIdenticalTasksShareOneExecution() throws Exception {
+        ResultCache cache = new ResultCache(registry, 10);
+        ResultCache.Key key = new ResultCache.Key("same.jpg", 3);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> compute(cache, key, "t1", () -> {
+            runs.incrementAndGet();
+            started.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        }).join());
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        // the follower gets the execution in flight back at once instead of blocking
+        CompletableFuture<String> follower = compute(cache, key, "t2", () -> runs.incrementAndGet() > 0);
+        Assertions.assertFalse(follower.isDone());
+
+        release.countDown();
+        Assertions.assertEquals("t1", leader.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals("t1", follower.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals("t1", compute(cache, key, "t3", () -> runs.incrementAndGet() > 0).getNow(null));
+        Assertions.assertEquals(1, runs.get());
+        Assertions.assertEquals("t1", cache.get(key));
+        Assertions.assertEquals(1.0, registry.get("threadpool.result.cache").tag("result", "hit").counter().count());
+        Assertions.assertEquals(1.0, registry.get("threadpool.result.cache").tag("result", "miss").counter().count());
+        Assertions.assertEquals(1.0, registry.get("threadpool.result.cache").tag("result", "coalesced").counter().count());
+    }
+
+    @Test
+    public void waitingTaskRunsItselfWhenTheExecutionStopsWithoutResult() throws Exception {
+        ResultCache cache = new ResultCache(registry, 10);
+        ResultCache.Key key = new ResultCache.Key("cancelled.jpg", 2);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> compute(cache, key, "t1", () -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return false;
+        }).join());
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> follower = compute(cache, key, "t2", () -> true);
+        release.countDown();
+
+        Assertions.assertNull(leader.get(5, TimeUnit.SECONDS));
+        Assertions.assertNull(follower.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals("t2", compute(cache, key, "t2", () -> true).getNow(null));
+        Assertions.assertEquals("t2", cache.get(key));
+    }
+
+    @Test
+    public void waitingTaskReleasesItsWorkerAndStopsWhenCancelled() throws Exception {
+        ResultCache cache = new ResultCache(registry, 10);
+        TaskRepository repository = new TaskRepository();
+        repository.save(new TaskStatusDto("t2", "slow.jpg", TaskStatus.QUEUED, null));
+        ResultCache.Key key = new ResultCache.Key("slow.jpg", 5);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture.runAsync(() -> compute(cache, key, "t1", () -> {
+            started.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        }));
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        ImageProcessorTask waiter = new ImageProcessorTask("t2", "slow.jpg", 5, repository, 1, 0, null, cache);
+        waiter.run();
+        CompletableFuture<String> awaited = waiter.getAwaited();
+        Assertions.assertNotNull(awaited);
+        Assertions.assertFalse(awaited.isDone());
+        Assertions.assertEquals(TaskState.RUNNING, repository.find("t2").getState());
+
+        waiter.cancel();
+        Assertions.assertNull(awaited.getNow("pending"));
+        Assertions.assertTrue(waiter.settle(null));
+        Assertions.assertEquals("CANCELLED", repository.find("t2").getStatus());
+        release.countDown();
+    }
+
+    @Test
+    public void leastRecentlyUsedResultIsEvicted() throws Exception {
+        ResultCache cache = new ResultCache(registry, 2);
+        compute(cache, new ResultCache.Key("a.jpg", 1), "a", () -> true);
+        compute(cache, new ResultCache.Key("b.jpg", 1), "b", () -> true);
+        cache.get(new ResultCache.Key("a.jpg", 1));
+        compute(cache, new ResultCache.Key("c.jpg", 1), "c", () -> true);
+
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertEquals("a", cache.get(new ResultCache.Key("a.jpg", 1)));
+        Assertions.assertNull(cache.get(new ResultCache.Key("b.jpg", 1)));
+        // a different complexity is a different input
+        Assertions.assertNull(cache.get(new ResultCache.Key("a.jpg", 2)));
+    }
+
+    @Test
+    public void taskWithCachedResultCompletesUnderItsOwnId() {
+        ResultCache cache = new ResultCache(registry, 10);
+        TaskRepository repository = new TaskRepository();
+        repository.save(new TaskStatusDto("t1", "img.jpg", TaskStatus.QUEUED, null));
+        repository.save(new TaskStatusDto("t2", "img.jpg", TaskStatus.QUEUED, null));
+
+        new ImageProcessorTask("t1", "img.jpg", 2, repository, 1, 0, null, cache).run();
+        long start = System.nanoTime();
+        new ImageProcessorTask("t2", "img.jpg", 2, repository, 1, 0, null, cache).run();
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        Assertions.assertEquals("COMPLETED", repository.find("t1").getStatus());
+        Assertions.assertEquals("COMPLETED", repository.find("t2").getStatus());
+        // processing would take at least 2 x 200ms
+        Assertions.assertTrue(millis < 400, "took " + millis + "ms");
+    }
+
+    private static CompletableFuture<String> compute(ResultCache cache, ResultCache.Key key, String taskId,
+                                                     ResultCache.Computation work) {
+        try {
+            return cache.compute(key, taskId, work);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
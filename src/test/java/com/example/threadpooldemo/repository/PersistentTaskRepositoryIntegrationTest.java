@@ -2,6 +2,7 @@ package com.example.threadpooldemo.repository;
 
 import com.example.threadpooldemo.ThreadpoolExecutorSpringbootDemoApplication;
 import com.example.threadpooldemo.dto.TaskStatusDto;
+import com.example.threadpooldemo.model.TaskStatus;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -42,7 +43,7 @@ public class PersistentTaskRepositoryIntegrationTest {
         try {
             // Use the JPA repository directly to ensure persistence to the H2 file DB
             JpaTaskRepository jpa = ctx1.getBean(JpaTaskRepository.class);
-            TaskEntity entity = new TaskEntity("p1", "fileA.jpg", "QUEUED", null);
+            TaskEntity entity = new TaskEntity("p1", "fileA.jpg", TaskStatus.QUEUED, null);
             jpa.saveAndFlush(entity);
             // verify immediate visibility within the same context
             org.junit.jupiter.api.Assertions.assertTrue(jpa.existsById("p1"));
@@ -60,7 +61,7 @@ public class PersistentTaskRepositoryIntegrationTest {
             org.junit.jupiter.api.Assertions.assertTrue(jpa2.existsById("p1"), "Persisted task should be available after context restart");
             TaskEntity reloaded = jpa2.findById("p1").orElse(null);
             Assertions.assertNotNull(reloaded, "Entity should be present in second context");
-            Assertions.assertEquals("QUEUED", reloaded.getStatus());
+            Assertions.assertEquals(TaskStatus.QUEUED, reloaded.getStatus());
         } finally {
             ctx2.close();
         }
@@ -1,5 +1,6 @@
 package com.example.threadpooldemo.repository;
 
+import com.example.threadpooldemo.model.TaskStatus;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
@@ -12,57 +13,243 @@ public class PersistentTaskRepositoryUnitTest {
     @Autowired
     private JpaTaskRepository jpa;
 
+    @Autowired
+    private JpaIdempotencyKeyRepository keys;
+
     @Test
     public void saveAndFind() {
-        PersistentTaskRepository repo = new PersistentTaskRepository(jpa);
-        TaskEntity e = new TaskEntity("u1", "f.jpg", "QUEUED", null);
+        PersistentTaskRepository repo = new PersistentTaskRepository(jpa, keys);
+        TaskEntity e = new TaskEntity("u1", "f.jpg", TaskStatus.QUEUED, null);
         repo.save(new com.example.threadpooldemo.dto.TaskStatusDto(e.getId(), e.getFileName(), e.getStatus(), e.getAssignedThread()));
 
         TaskEntity loaded = jpa.findById("u1").orElse(null);
         assertNotNull(loaded);
-        assertEquals("QUEUED", loaded.getStatus());
+        assertEquals(TaskStatus.QUEUED, loaded.getStatus());
     }
 
     @Test
     public void updateStatusAndCompare() {
-        PersistentTaskRepository repo = new PersistentTaskRepository(jpa);
-        jpa.saveAndFlush(new TaskEntity("u2", "g.jpg", "QUEUED", null));
+        PersistentTaskRepository repo = new PersistentTaskRepository(jpa, keys);
+        jpa.saveAndFlush(new TaskEntity("u2", "g.jpg", TaskStatus.QUEUED, null));
 
-        boolean updated = repo.updateStatus("u2", "RUNNING", "thread-1");
+        boolean updated = repo.updateStatus("u2", TaskStatus.running(1, 3), "thread-1");
         assertTrue(updated);
         TaskEntity after = jpa.findById("u2").orElse(null);
         assertNotNull(after);
-        assertEquals("RUNNING", after.getStatus());
+        assertEquals(TaskStatus.running(1, 3), after.getStatus());
 
         // compareAndUpdateStatus with wrong expected should fail
-        boolean cmpFalse = repo.compareAndUpdateStatus("u2", "QUEUED", "DONE", "t2");
+        boolean cmpFalse = repo.compareAndUpdateStatus("u2", TaskStatus.QUEUED, TaskStatus.COMPLETED, "t2");
         assertFalse(cmpFalse);
 
         // correct expected should succeed
-        boolean cmpTrue = repo.compareAndUpdateStatus("u2", "RUNNING", "DONE", "t2");
+        boolean cmpTrue = repo.compareAndUpdateStatus("u2", TaskStatus.running(1, 3), TaskStatus.COMPLETED, "t2");
         assertTrue(cmpTrue);
         TaskEntity finalE = jpa.findById("u2").orElse(null);
-        assertEquals("DONE", finalE.getStatus());
+        assertEquals(TaskStatus.COMPLETED, finalE.getStatus());
     }
 
     @Test
     public void updateMissingReturnsFalse() {
-        PersistentTaskRepository repo = new PersistentTaskRepository(jpa);
-        boolean res = repo.updateStatus("not-exist", "X", null);
+        PersistentTaskRepository repo = new PersistentTaskRepository(jpa, keys);
+        boolean res = repo.updateStatus("not-exist", TaskStatus.COMPLETED, null);
         assertFalse(res);
     }
 
     @Test
     public void saveExistingDoesNotOverwrite() {
-        PersistentTaskRepository repo = new PersistentTaskRepository(jpa);
-        jpa.saveAndFlush(new TaskEntity("u3", "h.jpg", "QUEUED", null));
+        PersistentTaskRepository repo = new PersistentTaskRepository(jpa, keys);
+        jpa.saveAndFlush(new TaskEntity("u3", "h.jpg", TaskStatus.QUEUED, null));
         // attempt to save same id again - repo.save should skip
-        repo.save(new com.example.threadpooldemo.dto.TaskStatusDto("u3", "h2.jpg", "RUNNING", "t"));
+        repo.save(new com.example.threadpooldemo.dto.TaskStatusDto("u3", "h2.jpg", TaskStatus.running(1, 3), "t"));
 
         TaskEntity e = jpa.findById("u3").orElse(null);
         assertNotNull(e);
         // original filename and status should remain
         assertEquals("h.jpg", e.getFileName());
-        assertEquals("QUEUED", e.getStatus());
+        assertEquals(TaskStatus.QUEUED, e.getStatus());
+    }
+
+    @Test
+    public void saveAllInsertsNewAndSkipsExisting() {
+        PersistentTaskRepository repo = new PersistentTaskRepository(jpa, keys);
+        jpa.saveAndFlush(new TaskEntity("b1", "orig.jpg", TaskStatus.QUEUED, null));
+
+        repo.saveAll(java.util.List.of(
+                new com.example.threadpooldemo.dto.TaskStatusDto("b1", "other.jpg", TaskStatus.running(1, 3), null),
+                new com.example.threadpooldemo.dto.TaskStatusDto("b2", "b2.jpg", TaskStatus.QUEUED, null),
+                new com.example.threadpooldemo.dto.TaskStatusDto("b3", "b3.jpg", TaskStatus.QUEUED, null)));
+
+        assertEquals("orig.jpg", jpa.findById("b1").orElseThrow().getFileName());
+        assertEquals(TaskStatus.QUEUED, jpa.findById("b2").orElseThrow().getStatus());
+        assertEquals(TaskStatus.QUEUED, jpa.findById("b3").orElseThrow().getStatus());
+    }
+
+    @Test
+    public void compareAndUpdateUsesAffectedRowCount() {
+        PersistentTaskRepository repo = new PersistentTaskRepository(jpa, keys);
+        repo.save(new com.example.threadpooldemo.dto.TaskStatusDto("c1", "c.jpg", TaskStatus.QUEUED, "submitter"));
+        assertEquals("submitter", jpa.findById("c1").orElseThrow().getAssignedThread());
+
+        assertFalse(repo.compareAndUpdateStatus("missing", TaskStatus.QUEUED, TaskStatus.running(1, 3), "t1"));
+        assertTrue(repo.compareAndUpdateStatus("c1", TaskStatus.QUEUED, TaskStatus.running(1, 3), "t1"));
+        // the second CAS from the same expected state must lose
+        assertFalse(repo.compareAndUpdateStatus("c1", TaskStatus.QUEUED, TaskStatus.running(1, 3), "t2"));
+        assertEquals("t1", jpa.findById("c1").orElseThrow().getAssignedThread());
+    }
+
+    @Test
+    public void upsertAllUpdatesExistingAndInsertsMissing() {
+        PersistentTaskRepository repo = new PersistentTaskRepository(jpa, keys);
+        jpa.saveAndFlush(new TaskEntity("w1", "w1.jpg", TaskStatus.QUEUED, null));
+
+        repo.upsertAll(java.util.List.of(
+                new com.example.threadpooldemo.dto.TaskStatusDto("w1", "w1.jpg", TaskStatus.COMPLETED, "t1"),
+                new com.example.threadpooldemo.dto.TaskStatusDto("w2", "w2.jpg", TaskStatus.running(1, 3), "t2")));
+
+        assertEquals(TaskStatus.COMPLETED, jpa.findById("w1").orElseThrow().getStatus());
+        assertEquals(TaskStatus.running(1, 3), jpa.findById("w2").orElseThrow().getStatus());
+    }
+
+    @Test
+    public void findPageAndForEachFollowIdOrder() {
+        PersistentTaskRepository repo = new PersistentTaskRepository(jpa, keys);
+        for (String id : new String[]{"p3", "p1", "p4", "p2"}) {
+            jpa.saveAndFlush(new TaskEntity(id, id + ".jpg", "p3".equals(id) ? TaskStatus.COMPLETED : TaskStatus.QUEUED, null));
+        }
+
+        java.util.List<com.example.threadpooldemo.dto.TaskStatusDto> first = repo.findPage(null, 2, null);
+        assertEquals(java.util.List.of("p1", "p2"), first.stream().map(d -> d.getId()).toList());
+        java.util.List<com.example.threadpooldemo.dto.TaskStatusDto> second = repo.findPage("p2", 2, null);
+        assertEquals(java.util.List.of("p3", "p4"), second.stream().map(d -> d.getId()).toList());
+        assertEquals(java.util.List.of("p2", "p4"), repo.findPage("p1", 10, com.example.threadpooldemo.model.TaskState.QUEUED).stream()
+                .map(d -> d.getId()).toList());
+
+        java.util.List<String> streamed = new java.util.ArrayList<>();
+        repo.forEach(com.example.threadpooldemo.model.TaskState.QUEUED, dto -> streamed.add(dto.getId()));
+        assertEquals(java.util.List.of("p1", "p2", "p4"), streamed);
+    }
+
+    @Test
+    public void illegalTransitionIsRejectedInTheUpdateStatement() {
+        PersistentTaskRepository repo = new PersistentTaskRepository(jpa, keys);
+        jpa.saveAndFlush(new TaskEntity("s1", "s.jpg", TaskStatus.COMPLETED, "t1"));
+
+        assertFalse(repo.updateStatus("s1", TaskStatus.running(2, 3), "t2"));
+        assertFalse(repo.updateStatus("s1", TaskStatus.CANCELLATION_REQUESTED, null));
+        assertFalse(repo.compareAndUpdateStatus("s1", TaskStatus.COMPLETED, TaskStatus.QUEUED, null));
+        assertEquals(TaskStatus.COMPLETED, jpa.findById("s1").orElseThrow().getStatus());
+        assertEquals("t1", jpa.findById("s1").orElseThrow().getAssignedThread());
+    }
+
+    @Test
+    public void idempotencyKeyKeepsFirstTaskUntilItExpires() {
+        PersistentTaskRepository repo = new PersistentTaskRepository(jpa, keys);
+        java.time.Instant t0 = java.time.Instant.parse("2030-01-01T00:00:00Z");
+
+        assertEquals("k1-task", repo.saveIdempotencyKey("k1", "k1-task", t0, t0.minusSeconds(60)));
+        assertEquals("k1-task", repo.saveIdempotencyKey("k1", "other", t0.plusSeconds(1), t0.minusSeconds(59)));
+        assertEquals("k1-task", repo.findIdempotencyKey("k1", t0.minusSeconds(59)));
+
+        // once older than the window the key is gone for lookups and can be claimed again
+        assertNull(repo.findIdempotencyKey("k1", t0.plusSeconds(1)));
+        assertEquals("next", repo.saveIdempotencyKey("k1", "next", t0.plusSeconds(61), t0.plusSeconds(1)));
+
+        repo.saveIdempotencyKey("k2", "k2-task", t0, t0.minusSeconds(60));
+        assertEquals(1, repo.deleteIdempotencyKeysBefore(t0.plusSeconds(1)));
+        assertNull(repo.findIdempotencyKey("k2", t0.minusSeconds(60)));
+        assertEquals("next", repo.findIdempotencyKey("k1", t0));
+    }
+
+    @Test
+    public void updateStatusAllChangesOnlyRowsInTheGivenStates() {
+        PersistentTaskRepository repo = new PersistentTaskRepository(jpa, keys);
+        jpa.saveAndFlush(new TaskEntity("c1", "c.jpg", TaskStatus.QUEUED, null));
+        jpa.saveAndFlush(new TaskEntity("c2", "c.jpg", TaskStatus.retrying(1, 3), "t1"));
+        jpa.saveAndFlush(new TaskEntity("c3", "c.jpg", TaskStatus.running(1, 3), "t2"));
+        jpa.saveAndFlush(new TaskEntity("c4", "c.jpg", TaskStatus.COMPLETED, "t3"));
+
+        java.util.Set<String> cancelled = repo.updateStatusAll(java.util.List.of("c1", "c2", "c3", "c4", "c5"),
+                java.util.EnumSet.of(com.example.threadpooldemo.model.TaskState.QUEUED,
+                        com.example.threadpooldemo.model.TaskState.RETRYING), TaskStatus.CANCELLED, null);
+        assertEquals(java.util.Set.of("c1", "c2"), cancelled);
+        // COMPLETED may not become CANCELLATION_REQUESTED even when listed
+        java.util.Set<String> requested = repo.updateStatusAll(java.util.List.of("c3", "c4"),
+                java.util.EnumSet.allOf(com.example.threadpooldemo.model.TaskState.class),
+                TaskStatus.CANCELLATION_REQUESTED, null);
+        assertEquals(java.util.Set.of("c3"), requested);
+
+        assertEquals(TaskStatus.CANCELLED, jpa.findById("c2").orElseThrow().getStatus());
+        assertEquals(TaskStatus.CANCELLATION_REQUESTED, jpa.findById("c3").orElseThrow().getStatus());
+        assertEquals(TaskStatus.COMPLETED, jpa.findById("c4").orElseThrow().getStatus());
+    }
+
+    @Test
+    public void unfinishedTasksAreFoundWithTheirSubmissionParameters() {
+        PersistentTaskRepository repo = new PersistentTaskRepository(jpa, keys);
+        java.time.Instant deadline = java.time.Instant.parse("2030-01-01T00:00:00Z");
+        com.example.threadpooldemo.model.TaskSpec spec =
+                new com.example.threadpooldemo.model.TaskSpec(4, 2, "heavy", deadline);
+        repo.save(new com.example.threadpooldemo.dto.TaskStatusDto("9", "r.jpg", TaskStatus.QUEUED, null, spec));
+        repo.saveAll(java.util.List.of(
+                new com.example.threadpooldemo.dto.TaskStatusDto("10", "r.jpg", TaskStatus.running(2, 3), "t1", spec),
+                new com.example.threadpooldemo.dto.TaskStatusDto("11", "r.jpg", TaskStatus.COMPLETED, "t2", spec)));
+        jpa.saveAndFlush(new TaskEntity("12", "r.jpg", TaskStatus.QUEUED, null));
+
+        java.util.List<com.example.threadpooldemo.dto.TaskStatusDto> page = repo.findUnfinished(null, 2);
+        assertEquals(java.util.List.of("10", "12"), page.stream()
+                .map(com.example.threadpooldemo.dto.TaskStatusDto::getId).collect(java.util.stream.Collectors.toList()));
+        com.example.threadpooldemo.model.TaskSpec loaded = page.get(0).getSpec();
+        assertEquals(4, loaded.getComplexity());
+        assertEquals(2, loaded.getPriority());
+        assertEquals("heavy", loaded.getWorkload());
+        assertEquals(deadline, loaded.getDeadline());
+        assertNull(page.get(1).getSpec());
+        assertEquals("9", repo.findUnfinished("12", 10).get(0).getId());
+        assertEquals(deadline, repo.findUnfinished("12", 10).get(0).getSpec().getDeadline());
+
+        // numeric, not string, order
+        assertEquals("12", repo.findLastId());
+    }
+
+    @Test
+    @org.springframework.transaction.annotation.Transactional(
+            propagation = org.springframework.transaction.annotation.Propagation.NOT_SUPPORTED)
+    public void concurrentInsertsOfTheSameIdOrKeyDoNotFail() throws Exception {
+        PersistentTaskRepository repo = new PersistentTaskRepository(jpa, keys);
+        int threads = 8;
+        int rounds = 20;
+        java.time.Instant now = java.time.Instant.now();
+        java.util.concurrent.ExecutorService pool = java.util.concurrent.Executors.newFixedThreadPool(threads);
+        java.util.concurrent.CyclicBarrier start = new java.util.concurrent.CyclicBarrier(threads);
+        try {
+            java.util.List<java.util.concurrent.Future<java.util.List<String>>> owners = new java.util.ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                String taskId = "race-task-" + t;
+                owners.add(pool.submit(() -> {
+                    java.util.List<String> seen = new java.util.ArrayList<>();
+                    for (int i = 0; i < rounds; i++) {
+                        start.await();
+                        repo.save(new com.example.threadpooldemo.dto.TaskStatusDto("race-" + i, "r.jpg", TaskStatus.QUEUED, null));
+                        seen.add(repo.saveIdempotencyKey("race-key-" + i, taskId, now, now.minusSeconds(60)));
+                    }
+                    return seen;
+                }));
+            }
+            java.util.List<String> first = owners.get(0).get(30, java.util.concurrent.TimeUnit.SECONDS);
+            for (java.util.concurrent.Future<java.util.List<String>> owner : owners) {
+                // every caller sees the same winner for each key
+                assertEquals(first, owner.get(30, java.util.concurrent.TimeUnit.SECONDS));
+            }
+            for (int i = 0; i < rounds; i++) {
+                assertTrue(jpa.existsById("race-" + i));
+            }
+        } finally {
+            pool.shutdownNow();
+            for (int i = 0; i < rounds; i++) {
+                jpa.deleteById("race-" + i);
+                keys.deleteById("race-key-" + i);
+            }
+        }
     }
 }
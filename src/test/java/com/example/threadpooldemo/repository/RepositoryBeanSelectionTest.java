@@ -37,4 +37,18 @@ public class RepositoryBeanSelectionTest {
             ctx.close();
         }
     }
+
+    @Test
+    public void whenWriteBehindEnabled_thenTieredRepositoryIsPrimary() {
+        // command line args, since builder properties are defaults that application.properties overrides
+        ConfigurableApplicationContext ctx = new SpringApplicationBuilder(ThreadpoolExecutorSpringbootDemoApplication.class)
+                .run("--spring.main.web-application-type=none", "--app.persistence.enabled=true",
+                        "--app.persistence.writeBehind.enabled=true", "--spring.datasource.url=jdbc:h2:mem:beanselect3");
+        try {
+            TaskRepositoryPort port = ctx.getBean(TaskRepositoryPort.class);
+            assertTrue(port instanceof WriteBehindTaskRepository, "Expected write-behind repository to be primary");
+        } finally {
+            ctx.close();
+        }
+    }
 }
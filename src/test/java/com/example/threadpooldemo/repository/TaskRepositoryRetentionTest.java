@@ -0,0 +1,161 @@
+package com.example.threadpooldemo.repository;
+
+import com.example.threadpooldemo.dto.TaskStatusDto;
+import com.example.threadpooldemo.model.TaskStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TaskRepositoryRetentionTest {
+
+    @Test
+    public void capacityEvictsOldestTerminalFirstAndNeverActive() {
+        TaskRepository repo = new TaskRepository(0, 3, "");
+        repo.save(new TaskStatusDto("1", "a.jpg", TaskStatus.QUEUED, null));
+        repo.save(new TaskStatusDto("2", "b.jpg", TaskStatus.QUEUED, null));
+        repo.save(new TaskStatusDto("3", "c.jpg", TaskStatus.QUEUED, null));
+        repo.updateStatus("2", TaskStatus.running(1, 1), "t");
+        repo.updateStatus("2", TaskStatus.COMPLETED, "t");
+        repo.updateStatus("3", TaskStatus.CANCELLED, "t");
+
+        repo.save(new TaskStatusDto("4", "d.jpg", TaskStatus.QUEUED, null));
+        assertNull(repo.find("2"), "oldest terminal task should be evicted first");
+        assertNotNull(repo.find("3"));
+        assertNotNull(repo.find("1"));
+        assertEquals(1, repo.getCapacityEvictions());
+
+        // only active tasks besides "3": the limit may be exceeded rather than evicting them
+        repo.save(new TaskStatusDto("5", "e.jpg", TaskStatus.QUEUED, null));
+        repo.save(new TaskStatusDto("6", "f.jpg", TaskStatus.QUEUED, null));
+        assertNull(repo.find("3"));
+        assertEquals(4, repo.findAll().size());
+        assertTrue(repo.findAll().stream().allMatch(dto -> "QUEUED".equals(dto.getStatus())));
+        assertEquals(2, repo.getCapacityEvictions());
+    }
+
+    @Test
+    public void evictionCountersAreExportedAsMeters() {
+        TaskRepository repo = new TaskRepository(0, 1, "");
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        repo.bindTo(registry);
+        repo.save(new TaskStatusDto("1", "a.jpg", TaskStatus.QUEUED, null));
+        repo.updateStatus("1", TaskStatus.CANCELLED, "t");
+        repo.save(new TaskStatusDto("2", "b.jpg", TaskStatus.QUEUED, null));
+
+        assertEquals(1.0, registry.get("threadpool.retention.evictions").tag("reason", "capacity").functionCounter().count());
+        assertEquals(0.0, registry.get("threadpool.retention.evictions").tag("reason", "expired").functionCounter().count());
+        assertEquals(0.0, registry.get("threadpool.retention.archived").functionCounter().count());
+    }
+
+    @Test
+    public void ttlEvictsOnlyExpiredTerminalTasks() throws Exception {
+        TaskRepository repo = new TaskRepository(1, 0, "");
+        repo.save(new TaskStatusDto("1", "a.jpg", TaskStatus.QUEUED, null));
+        repo.save(new TaskStatusDto("2", "b.jpg", TaskStatus.QUEUED, null));
+        repo.updateStatus("1", TaskStatus.FAILED_PERMANENTLY, "t");
+
+        repo.evictExpired();
+        assertNotNull(repo.find("1"), "not expired yet");
+
+        Thread.sleep(1100);
+        repo.evictExpired();
+        assertNull(repo.find("1"));
+        assertNotNull(repo.find("2"), "active task must never be evicted");
+        assertEquals(1, repo.getExpiredEvictions());
+    }
+
+    @Test
+    public void repeatedTerminalWriteIsEvictedOnlyOnce() {
+        TaskRepository repo = new TaskRepository(0, 1, "");
+        repo.save(new TaskStatusDto("1", "a.jpg", TaskStatus.QUEUED, null));
+        repo.updateStatus("1", TaskStatus.CANCELLED, "t1");
+        repo.updateStatus("1", TaskStatus.CANCELLED, "t2");
+
+        repo.save(new TaskStatusDto("2", "b.jpg", TaskStatus.QUEUED, null));
+        repo.save(new TaskStatusDto("3", "c.jpg", TaskStatus.QUEUED, null));
+        assertNull(repo.find("1"));
+        assertNotNull(repo.find("2"));
+        assertNotNull(repo.find("3"));
+        assertEquals(1, repo.getCapacityEvictions());
+    }
+
+    @Test
+    public void illegalTransitionLeavesTaskUntouched() {
+        TaskRepository repo = new TaskRepository();
+        repo.save(new TaskStatusDto("1", "a.jpg", TaskStatus.QUEUED, null));
+        assertTrue(repo.updateStatus("1", TaskStatus.running(1, 3), "t"));
+        assertTrue(repo.updateStatus("1", TaskStatus.COMPLETED, "t"));
+
+        assertFalse(repo.updateStatus("1", TaskStatus.running(2, 3), "t2"));
+        assertFalse(repo.updateStatus("1", TaskStatus.QUEUED, "t2"));
+        assertFalse(repo.compareAndUpdateStatus("1", TaskStatus.COMPLETED, TaskStatus.running(2, 3), "t2"));
+        assertEquals("COMPLETED", repo.find("1").getStatus());
+        assertEquals("t", repo.find("1").getAssignedThread());
+    }
+
+    @Test
+    public void compareAndUpdateKeepsSubmissionParameters() {
+        TaskRepository repo = new TaskRepository();
+        com.example.threadpooldemo.model.TaskSpec spec = new com.example.threadpooldemo.model.TaskSpec(3, 1, null, null);
+        repo.save(new TaskStatusDto("1", "a.jpg", TaskStatus.QUEUED, null, spec));
+
+        assertTrue(repo.compareAndUpdateStatus("1", TaskStatus.QUEUED, TaskStatus.running(1, 3), "t"));
+        assertSame(spec, repo.find("1").getSpec());
+    }
+
+    @Test
+    public void evictedEntriesAreArchived(@TempDir Path dir) throws Exception {
+        Path archivePath = dir.resolve("archive/tasks.tsv.gz");
+        TaskRepository repo = new TaskRepository(0, 1, archivePath.toString());
+        repo.save(new TaskStatusDto("1", "a.jpg", TaskStatus.QUEUED, null));
+        repo.updateStatus("1", TaskStatus.running(1, 1), "worker-1");
+        repo.updateStatus("1", TaskStatus.COMPLETED, "worker-1");
+        repo.save(new TaskStatusDto("2", "b.jpg", TaskStatus.QUEUED, null));
+        repo.closeArchive();
+
+        assertEquals(1, repo.getArchivedCount());
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(archivePath)), StandardCharsets.UTF_8))) {
+            List<String> lines = reader.lines().collect(Collectors.toList());
+            assertEquals(List.of("1\ta.jpg\tCOMPLETED\tworker-1"), lines);
+        }
+    }
+
+    @Test
+    public void archiveIsFlushedWithoutTtlAndEscapesSeparators(@TempDir Path dir) throws Exception {
+        Path archivePath = dir.resolve("tasks.tsv.gz");
+        TaskRepository repo = new TaskRepository(0, 1, archivePath.toString());
+        repo.save(new TaskStatusDto("1", "a\tb\nc\\d.jpg", TaskStatus.QUEUED, null));
+        repo.updateStatus("1", TaskStatus.CANCELLED, null);
+        repo.save(new TaskStatusDto("2", "b.jpg", TaskStatus.QUEUED, null));
+        repo.evictExpired();
+
+        // the archive is still open: the flushed line is readable, the gzip trailer is not written yet
+        ByteArrayOutputStream flushed = new ByteArrayOutputStream();
+        try (GZIPInputStream in = new GZIPInputStream(Files.newInputStream(archivePath))) {
+            byte[] buffer = new byte[256];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                flushed.write(buffer, 0, n);
+            }
+        } catch (EOFException expected) {
+            // end of the flushed data
+        } finally {
+            repo.closeArchive();
+        }
+        assertEquals("1\ta\\tb\\nc\\\\d.jpg\tCANCELLED\t\n", flushed.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.threadpooldemo.repository;
+
+import com.example.threadpooldemo.dto.TaskStatusDto;
+import com.example.threadpooldemo.model.TaskStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class WriteBehindTaskRepositoryTest {
+
+    private PersistentTaskRepository delegate;
+    private WriteBehindTaskRepository repo;
+
+    private void setup(WriteBehindTaskRepository.Durability durability, int batchSize) {
+        delegate = Mockito.mock(PersistentTaskRepository.class);
+        // long interval so only explicit flush() calls write in these tests
+        repo = new WriteBehindTaskRepository(delegate, 60_000, batchSize, durability);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        repo.shutdown();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<TaskStatusDto> captureSingleFlush() {
+        ArgumentCaptor<Collection<TaskStatusDto>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(delegate, times(1)).upsertAll(captor.capture());
+        return List.copyOf(captor.getValue());
+    }
+
+    @Test
+    public void transitionsAreServedFromMemoryAndCoalescedPerTask() {
+        setup(WriteBehindTaskRepository.Durability.ASYNC, 100);
+        repo.save(new TaskStatusDto("w1", "a.jpg", TaskStatus.QUEUED, null));
+        assertTrue(repo.updateStatus("w1", TaskStatus.running(1, 3), "t1"));
+        assertTrue(repo.compareAndUpdateStatus("w1", TaskStatus.running(1, 3), TaskStatus.running(2, 3), "t1"));
+        assertFalse(repo.compareAndUpdateStatus("w1", TaskStatus.running(1, 3), TaskStatus.COMPLETED, "t1"));
+
+        assertEquals("ATTEMPT_2_OF_3", repo.find("w1").getStatus());
+        verify(delegate, never()).upsertAll(any());
+        assertEquals(1, repo.getPendingCount());
+
+        repo.flush();
+        List<TaskStatusDto> written = captureSingleFlush();
+        assertEquals(1, written.size());
+        assertEquals("ATTEMPT_2_OF_3", written.get(0).getStatus());
+        assertEquals(0, repo.getPendingCount());
+    }
+
+    @Test
+    public void flushSplitsIntoBatches() {
+        setup(WriteBehindTaskRepository.Durability.ASYNC, 2);
+        for (int i = 0; i < 5; i++) {
+            repo.save(new TaskStatusDto("b" + i, "b.jpg", TaskStatus.QUEUED, null));
+        }
+        repo.flush();
+        verify(delegate, times(3)).upsertAll(any());
+    }
+
+    @Test
+    public void terminalStatesAreWrittenThroughInTerminalSyncMode() {
+        setup(WriteBehindTaskRepository.Durability.TERMINAL_SYNC, 100);
+        repo.save(new TaskStatusDto("s1", "s.jpg", TaskStatus.QUEUED, null));
+        repo.updateStatus("s1", TaskStatus.running(1, 1), "t1");
+        verify(delegate, never()).upsertAll(any());
+
+        repo.updateStatus("s1", TaskStatus.COMPLETED, "t1");
+        List<TaskStatusDto> written = captureSingleFlush();
+        assertEquals("COMPLETED", written.get(0).getStatus());
+        assertEquals(0, repo.getPendingCount());
+
+        // once durable the terminal entry leaves the hot tier and reads fall through
+        Mockito.when(delegate.find("s1")).thenReturn(written.get(0));
+        assertEquals("COMPLETED", repo.find("s1").getStatus());
+        verify(delegate).find("s1");
+    }
+
+    @Test
+    public void missingTasksAreLoadedFromDurableTier() {
+        setup(WriteBehindTaskRepository.Durability.ASYNC, 100);
+        Mockito.when(delegate.find("old")).thenReturn(new TaskStatusDto("old", "o.jpg", TaskStatus.QUEUED, null));
+
+        assertTrue(repo.compareAndUpdateStatus("old", TaskStatus.QUEUED, TaskStatus.REJECTED, null));
+        assertFalse(repo.updateStatus("unknown", TaskStatus.COMPLETED, null));
+        assertEquals("REJECTED", repo.find("old").getStatus());
+    }
+
+    @Test
+    public void failedFlushIsRetried() {
+        setup(WriteBehindTaskRepository.Durability.ASYNC, 100);
+        Mockito.doThrow(new RuntimeException("db down")).doNothing().when(delegate).upsertAll(any());
+        repo.save(new TaskStatusDto("f1", "f.jpg", TaskStatus.QUEUED, null));
+
+        repo.flush();
+        assertEquals(1, repo.getPendingCount());
+        repo.flush();
+        assertEquals(0, repo.getPendingCount());
+        verify(delegate, times(2)).upsertAll(any());
+    }
+
+    @Test
+    public void bulkTerminalUpdateIsWrittenThroughAsOneBatch() {
+        setup(WriteBehindTaskRepository.Durability.TERMINAL_SYNC, 100);
+        repo.save(new TaskStatusDto("b1", "a.jpg", TaskStatus.QUEUED, null));
+        repo.save(new TaskStatusDto("b2", "b.jpg", TaskStatus.QUEUED, null));
+        repo.save(new TaskStatusDto("b3", "c.jpg", TaskStatus.running(1, 3), "w1"));
+
+        java.util.Set<String> updated = repo.updateStatusAll(List.of("b1", "b2", "b3", "missing"),
+                java.util.EnumSet.of(com.example.threadpooldemo.model.TaskState.QUEUED), TaskStatus.CANCELLED, null);
+
+        assertEquals(java.util.Set.of("b1", "b2"), updated);
+        List<TaskStatusDto> written = captureSingleFlush();
+        assertEquals(2, written.size());
+        assertTrue(written.stream().allMatch(dto -> dto.getTaskStatus().equals(TaskStatus.CANCELLED)));
+        assertEquals(TaskStatus.running(1, 3), repo.find("b3").getTaskStatus());
+    }
+
+    @Test
+    public void finishedTasksLoadedFromTheDurableTierAreNotCached() {
+        setup(WriteBehindTaskRepository.Durability.TERMINAL_SYNC, 100);
+        Mockito.when(delegate.find("done")).thenReturn(new TaskStatusDto("done", "a.jpg", TaskStatus.COMPLETED, "t1"));
+
+        assertFalse(repo.updateStatus("done", TaskStatus.CANCELLATION_REQUESTED, null));
+        assertFalse(repo.compareAndUpdateStatus("done", TaskStatus.COMPLETED, TaskStatus.CANCELLED, null));
+        assertTrue(repo.updateStatusAll(List.of("done"), java.util.EnumSet.allOf(
+                com.example.threadpooldemo.model.TaskState.class), TaskStatus.CANCELLED, null).isEmpty());
+        assertEquals("COMPLETED", repo.find("done").getStatus());
+        assertEquals(0, repo.getCachedCount());
+        assertEquals(0, repo.getPendingCount());
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.threadpooldemo.service;
+
+import com.example.threadpooldemo.handler.LoggingRejectedExecutionHandler.OverflowPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+public class AdmissionControllerTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private ThreadPoolExecutor executor;
+
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRejectPolicyTurnsAwayOnlyWhenSaturated() {
+        executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(2));
+        AdmissionController admission = new AdmissionController(executor, registry, 0, 30, OverflowPolicy.REJECT);
+
+        executor.execute(this::block);
+        executor.execute(this::block);
+        admission.check(executor);
+        executor.execute(this::block);
+
+        AdmissionRejectedException e = Assertions.assertThrows(AdmissionRejectedException.class, () -> admission.check(executor));
+        // nothing has drained yet, so the hint falls back to the minimum
+        Assertions.assertEquals(1, e.getRetryAfterSeconds());
+        Assertions.assertEquals(1.0, registry.get("threadpool.admission.rejected").counter().count());
+    }
+
+    @Test
+    public void testDropPoliciesLeaveSaturationToTheHandler() {
+        executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(1));
+        AdmissionController admission = new AdmissionController(executor, registry, 0, 30, OverflowPolicy.DROP_OLDEST);
+
+        executor.execute(this::block);
+        executor.execute(this::block);
+        admission.check(executor);
+    }
+
+    @Test
+    public void testPredictedWaitUsesMeasuredDrainRate() throws Exception {
+        // one worker draining 20ms tasks: about 50 tasks/s
+        executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        AdmissionController admission = new AdmissionController(executor, registry, 200, 30, OverflowPolicy.REJECT);
+        for (int i = 0; i < 200; i++) {
+            executor.execute(() -> sleep(20));
+        }
+        for (int i = 0; i < 6 && admission.getDrainRate() == 0; i++) {
+            Thread.sleep(300);
+            admission.sample(executor);
+        }
+        Assertions.assertTrue(admission.getDrainRate() > 10 && admission.getDrainRate() < 100,
+                "drain rate " + admission.getDrainRate());
+
+        // well over a hundred tasks left is seconds of waiting, far above 200ms
+        AdmissionRejectedException e = Assertions.assertThrows(AdmissionRejectedException.class, () -> admission.check(executor));
+        Assertions.assertTrue(e.getRetryAfterSeconds() >= 2 && e.getRetryAfterSeconds() <= 30,
+                "retry after " + e.getRetryAfterSeconds());
+    }
+
+    @Test
+    public void testEachTargetExecutorHasItsOwnDrainEstimate() throws Exception {
+        executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        ThreadPoolExecutor bulkhead = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        try {
+            AdmissionController admission = new AdmissionController(executor, registry, 200, 30, OverflowPolicy.REJECT);
+            for (int i = 0; i < 200; i++) {
+                bulkhead.execute(() -> sleep(20));
+            }
+            for (int i = 0; i < 6 && admission.getDrainRate(bulkhead) == 0; i++) {
+                Thread.sleep(300);
+                admission.sample(bulkhead);
+            }
+            Assertions.assertTrue(admission.getDrainRate(bulkhead) > 10, "drain rate " + admission.getDrainRate(bulkhead));
+            Assertions.assertEquals(0.0, admission.getDrainRate());
+
+            AdmissionRejectedException e = Assertions.assertThrows(AdmissionRejectedException.class,
+                    () -> admission.check(bulkhead));
+            Assertions.assertTrue(e.getRetryAfterSeconds() >= 2, "retry after " + e.getRetryAfterSeconds());
+            // the idle shared executor still admits
+            admission.check(executor);
+        } finally {
+            bulkhead.shutdownNow();
+        }
+    }
+
+    private void block() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -3,6 +3,12 @@ package com.example.threadpooldemo.service;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import com.example.threadpooldemo.config.GracefulThreadPoolExecutor;
+import com.example.threadpooldemo.config.TimestampedTask;
+import com.example.threadpooldemo.model.TaskState;
+import io.micrometer.core.instrument.Timer;
+import org.awaitility.Awaitility;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
 import java.util.concurrent.*;
 
 /**
@@ -105,4 +111,49 @@ public class GracefulThreadPoolExecutorTest {
 		Assertions.assertTrue(exec.isTerminated(), "Executor should be terminated");
 	}
 
+	@Test
+	public void testHooksRecordLatencyRejectionsAndOutcomes() throws Exception {
+		GracefulThreadPoolExecutor exec = new GracefulThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<>(1), Thread::new, new ThreadPoolExecutor.AbortPolicy());
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		exec.bindTo(registry);
+
+		CountDownLatch release = new CountDownLatch(1);
+		long enqueued = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(50);
+		exec.execute(new TimestampedTask() {
+			@Override
+			public long getEnqueuedNanos() {
+				return enqueued;
+			}
+
+			@Override
+			public void run() {
+				try {
+					release.await();
+				} catch (InterruptedException ignored) {
+				}
+			}
+		});
+		exec.execute(() -> {
+		}); // fills the queue
+		Assertions.assertThrows(RejectedExecutionException.class, () -> exec.execute(() -> {
+		}));
+		release.countDown();
+		exec.recordRetry();
+		exec.recordOutcome(TaskState.COMPLETED);
+		exec.recordOutcome(TaskState.RUNNING); // not a final state, ignored
+		Awaitility.await().atMost(Duration.ofSeconds(5)).until(() -> exec.getCompletedTaskCount() == 2);
+		exec.shutdownGracefully();
+
+		Timer wait = registry.get("threadpool.task.queue.wait").timer();
+		Assertions.assertEquals(1, wait.count(), "only timestamped tasks have a queue wait");
+		Assertions.assertTrue(wait.totalTime(TimeUnit.MILLISECONDS) >= 50);
+		Assertions.assertEquals(2, registry.get("threadpool.task.execution").timer().count());
+		Assertions.assertEquals(1.0, registry.get("threadpool.task.rejected").functionCounter().count());
+		Assertions.assertEquals(1.0, registry.get("threadpool.task.retries").functionCounter().count());
+		Assertions.assertEquals(1.0, registry.get("threadpool.task.outcome").tag("state", "COMPLETED")
+				.functionCounter().count());
+		Assertions.assertEquals(0, exec.getOutcomeCount(TaskState.RUNNING));
+	}
+
 }
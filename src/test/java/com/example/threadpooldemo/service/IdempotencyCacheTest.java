@@ -0,0 +1,96 @@
+package com.example.threadpooldemo.service;
+
+import com.example.threadpooldemo.repository.TaskRepository;
+import com.example.threadpooldemo.repository.TaskRepositoryPort;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class IdempotencyCacheTest {
+
+    @Test
+    public void concurrentDuplicatesWaitForTheFirstSubmission() throws Exception {
+        IdempotencyCache cache = new IdempotencyCache(new TaskRepository(), Duration.ofMinutes(1), 100);
+        CountDownLatch submitting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger submissions = new AtomicInteger();
+
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> cache.submitOnce("k", () -> {
+            submitting.countDown();
+            await(release);
+            return "task-" + submissions.incrementAndGet();
+        }));
+        Assertions.assertTrue(submitting.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(
+                () -> cache.submitOnce("k", () -> "task-" + submissions.incrementAndGet()));
+        Assertions.assertFalse(second.isDone());
+
+        release.countDown();
+        Assertions.assertEquals("task-1", first.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals("task-1", second.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, submissions.get());
+        Assertions.assertEquals(1, cache.getReplayCount());
+    }
+
+    @Test
+    public void failedSubmissionDoesNotUseUpTheKey() {
+        IdempotencyCache cache = new IdempotencyCache(new TaskRepository(), Duration.ofMinutes(1), 100);
+
+        Assertions.assertThrows(RejectedExecutionException.class, () -> cache.submitOnce("k", () -> {
+            throw new RejectedExecutionException("full");
+        }));
+        Assertions.assertEquals(0, cache.size());
+        Assertions.assertEquals("task-2", cache.submitOnce("k", () -> "task-2"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> cache.submitOnce(" ", () -> "task-3"));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> cache.submitOnce("x".repeat(IdempotencyCache.MAX_KEY_LENGTH + 1), () -> "task-3"));
+    }
+
+    @Test
+    public void keysExpireAndOldestAreEvictedBeyondTheBound() throws Exception {
+        IdempotencyCache cache = new IdempotencyCache(new TaskRepository(), Duration.ofMillis(100), 2);
+        cache.submitOnce("a", () -> "task-a");
+        cache.submitOnce("b", () -> "task-b");
+        cache.submitOnce("c", () -> "task-c");
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertEquals("task-a2", cache.submitOnce("a", () -> "task-a2"));
+
+        Thread.sleep(150);
+        Assertions.assertEquals("task-b2", cache.submitOnce("b", () -> "task-b2"));
+        cache.purgeExpired();
+        Assertions.assertEquals(1, cache.size());
+        Assertions.assertNull(cache.find("c"));
+    }
+
+    @Test
+    public void keyEvictedFromMemoryIsAnsweredFromTheRepository() {
+        TaskRepositoryPort repository = Mockito.mock(TaskRepositoryPort.class);
+        Mockito.when(repository.findIdempotencyKey(Mockito.eq("stored"), Mockito.any(Instant.class)))
+                .thenReturn("task-stored");
+        Mockito.when(repository.saveIdempotencyKey(Mockito.anyString(), Mockito.anyString(), Mockito.any(), Mockito.any()))
+                .thenAnswer(invocation -> invocation.getArgument(1));
+        IdempotencyCache cache = new IdempotencyCache(repository, Duration.ofMinutes(1), 100);
+
+        Assertions.assertEquals("task-stored", cache.submitOnce("stored", () -> Assertions.fail("must not submit")));
+        Assertions.assertEquals("task-new", cache.submitOnce("new", () -> "task-new"));
+        Mockito.verify(repository).saveIdempotencyKey(Mockito.eq("new"), Mockito.eq("task-new"), Mockito.any(), Mockito.any());
+        Mockito.verify(repository, Mockito.never()).saveIdempotencyKey(Mockito.eq("stored"), Mockito.anyString(),
+                Mockito.any(), Mockito.any());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
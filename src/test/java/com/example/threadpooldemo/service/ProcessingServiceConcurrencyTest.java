@@ -2,6 +2,8 @@ package com.example.threadpooldemo.service;
 
 import com.example.threadpooldemo.config.RetryConfig;
 import com.example.threadpooldemo.dto.TaskStatusDto;
+import com.example.threadpooldemo.model.TaskState;
+import com.example.threadpooldemo.model.TaskStatus;
 import com.example.threadpooldemo.model.TaskRequest;
 import com.example.threadpooldemo.repository.TaskRepository;
 import org.awaitility.Awaitility;
@@ -120,7 +122,7 @@ public class ProcessingServiceConcurrencyTest {
         for (int i = 0; i < numUpdates; i++) {
             final int updateNum = i;
             CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
-                repository.updateStatus(id, "UPDATE_" + updateNum, "Thread-" + updateNum);
+                repository.updateStatus(id, TaskStatus.running(updateNum % 5 + 1, 5), "Thread-" + updateNum);
             }, testExecutor);
             futures.add(future);
         }
@@ -131,8 +133,9 @@ public class ProcessingServiceConcurrencyTest {
         // Verify the task exists and has a valid status
         TaskStatusDto finalStatus = repository.find(id);
         assertNotNull(finalStatus, "Task should exist");
-        assertTrue(finalStatus.getStatus().startsWith("UPDATE_"), 
-            "Status should be from our updates");
+        // updates racing with the worker either win (running) or lose to a terminal state
+        assertTrue(finalStatus.getState() == TaskState.RUNNING || finalStatus.getTaskStatus().isTerminal(),
+            "Status should be a legal result of the updates: " + finalStatus.getStatus());
     }
 
     @Test
@@ -1,8 +1,18 @@
 package com.example.threadpooldemo.service;
 
+import com.example.threadpooldemo.config.BulkheadRegistry;
+import com.example.threadpooldemo.config.GracefulThreadPoolExecutor;
 import com.example.threadpooldemo.config.RetryConfig;
+import com.example.threadpooldemo.config.SchedulingPolicy;
+import com.example.threadpooldemo.config.SchedulingQueue;
+import com.example.threadpooldemo.dto.BatchItemResultDto;
+import com.example.threadpooldemo.dto.TaskStatusDto;
+import com.example.threadpooldemo.handler.LoggingRejectedExecutionHandler;
+import com.example.threadpooldemo.handler.LoggingRejectedExecutionHandler.OverflowPolicy;
 import com.example.threadpooldemo.model.TaskRequest;
+import com.example.threadpooldemo.model.TaskState;
 import com.example.threadpooldemo.repository.TaskRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.awaitility.Awaitility;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
@@ -10,8 +20,10 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
 import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -121,4 +133,526 @@ public class ProcessingServiceTaskTrackingTest {
                     "COMPLETED".equals(repository.find(id2).getStatus());
         });
     }
+
+    @Test
+    public void testSubmitBatchQueuesValidEntriesAndRejectsInvalid() {
+        setup(2);
+        List<BatchItemResultDto> results = service.submitBatch(java.util.Arrays.asList(
+                new TaskRequest("img-batch-1.jpg", 1),
+                new TaskRequest(" ", 1),
+                null,
+                new TaskRequest("img-batch-2.jpg", 1)));
+
+        Assertions.assertEquals(4, results.size());
+        Assertions.assertTrue(results.get(0).isAccepted());
+        Assertions.assertFalse(results.get(1).isAccepted());
+        Assertions.assertFalse(results.get(2).isAccepted());
+        Assertions.assertTrue(results.get(3).isAccepted());
+        Assertions.assertNotEquals(results.get(0).getId(), results.get(3).getId());
+
+        Awaitility.await().atMost(Duration.ofSeconds(5)).until(() ->
+                "COMPLETED".equals(repository.find(results.get(0).getId()).getStatus()) &&
+                "COMPLETED".equals(repository.find(results.get(3).getId()).getStatus()));
+        Assertions.assertEquals(2, repository.findAll().size());
+    }
+
+    @Test
+    public void testCancelRemovesQueuedTaskFromSchedulingQueue() {
+        SchedulingQueue queue = new SchedulingQueue(10, SchedulingPolicy.SJF, 60_000);
+        executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, queue);
+        repository = new TaskRepository();
+        retryConfig = Mockito.mock(RetryConfig.class);
+        Mockito.when(retryConfig.getMaxRetryAttempts()).thenReturn(1);
+        Mockito.when(retryConfig.getRetryDelayMillis()).thenReturn(50L);
+        service = new ProcessingService(executor, repository, retryConfig);
+
+        service.submit(new TaskRequest("busy.jpg", 10));
+        String big = service.submit(new TaskRequest("big.jpg", 8));
+        String small = service.submit(new TaskRequest("small.jpg", 1));
+        Assertions.assertEquals(2, queue.size());
+
+        Assertions.assertTrue(service.cancel(big));
+        Assertions.assertEquals(1, queue.size());
+        Assertions.assertEquals("CANCELLED", repository.find(big).getStatus());
+        Assertions.assertEquals("QUEUED", repository.find(small).getStatus());
+    }
+
+    @Test
+    public void testRetryBackoffFreesWorkerAndCanBeCancelled() {
+        setup(1);
+        Mockito.when(retryConfig.backoffDelayMillis(Mockito.anyInt())).thenReturn(60_000L);
+
+        String failing = service.submit(new TaskRequest("img-backoff-fail.jpg", 0));
+        Awaitility.await().atMost(Duration.ofSeconds(5)).until(() ->
+                "FAILED_ATTEMPT_1_RETRYING".equals(repository.find(failing).getStatus()));
+
+        // the only worker is not parked for the backoff, so healthy work still runs
+        String healthy = service.submit(new TaskRequest("img-backoff-ok.jpg", 1));
+        Awaitility.await().atMost(Duration.ofSeconds(5)).until(() ->
+                "COMPLETED".equals(repository.find(healthy).getStatus()));
+        Assertions.assertTrue(service.getRunningTaskIds().contains(failing));
+
+        Assertions.assertTrue(service.cancel(failing));
+        Assertions.assertEquals("CANCELLED", repository.find(failing).getStatus());
+        Assertions.assertFalse(service.getRunningTaskIds().contains(failing));
+    }
+
+    @Test
+    public void testRetryIsResubmittedAfterBackoff() {
+        setup(1);
+        Mockito.when(retryConfig.getMaxRetryAttempts()).thenReturn(2);
+        Mockito.when(retryConfig.backoffDelayMillis(Mockito.anyInt())).thenReturn(100L);
+
+        String id = service.submit(new TaskRequest("img-backoff-retry.jpg", 0));
+        Awaitility.await().atMost(Duration.ofSeconds(5)).until(() ->
+                "FAILED_PERMANENTLY".equals(repository.find(id).getStatus()));
+        Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> service.getRunningTaskIds().isEmpty());
+    }
+
+    @Test
+    public void testRetriesAndOutcomesAreRecordedOnTheExecutor() {
+        GracefulThreadPoolExecutor graceful = new GracefulThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS,
+                new java.util.concurrent.LinkedBlockingQueue<>(), Thread::new, new ThreadPoolExecutor.AbortPolicy());
+        executor = graceful;
+        repository = new TaskRepository();
+        retryConfig = Mockito.mock(RetryConfig.class);
+        Mockito.when(retryConfig.getMaxRetryAttempts()).thenReturn(3);
+        Mockito.when(retryConfig.backoffDelayMillis(Mockito.anyInt())).thenReturn(10L);
+        service = new ProcessingService(executor, repository, retryConfig);
+
+        String failing = service.submit(new TaskRequest("img-metrics-fail.jpg", 0));
+        String ok = service.submit(new TaskRequest("img-metrics-ok.jpg", 1));
+        Awaitility.await().atMost(Duration.ofSeconds(5)).until(() ->
+                "FAILED_PERMANENTLY".equals(repository.find(failing).getStatus())
+                        && "COMPLETED".equals(repository.find(ok).getStatus()));
+
+        Assertions.assertEquals(1, graceful.getRetryCount());
+        Awaitility.await().atMost(Duration.ofSeconds(2)).until(() ->
+                graceful.getOutcomeCount(TaskState.FAILED_PERMANENTLY) == 1
+                        && graceful.getOutcomeCount(TaskState.COMPLETED) == 1);
+    }
+
+    @Test
+    public void testAwaitCompletionFollowsTaskToItsFinalStatus() throws Exception {
+        setup(1);
+        String running = service.submit(new TaskRequest("img-await-ok.jpg", 1));
+        String queued = service.submit(new TaskRequest("img-await-cancel.jpg", 1));
+
+        CompletableFuture<TaskStatusDto> completion = service.awaitCompletion(running);
+        CompletableFuture<TaskStatusDto> cancelled = service.awaitCompletion(queued);
+        Assertions.assertFalse(completion.isDone());
+        Assertions.assertTrue(service.cancel(queued));
+
+        Assertions.assertEquals("CANCELLED", cancelled.get(1, TimeUnit.SECONDS).getStatus());
+        Assertions.assertEquals("COMPLETED", completion.get(5, TimeUnit.SECONDS).getStatus());
+        // already finished and unknown tasks complete immediately
+        Assertions.assertEquals("COMPLETED", service.awaitCompletion(running).getNow(null).getStatus());
+        Assertions.assertTrue(service.awaitCompletion("no-such-task").isDone());
+        Assertions.assertNull(service.awaitCompletion("no-such-task").get());
+    }
+
+    @Test
+    public void testAwaitCompletionOfAnUntrackedTaskPollsTheRepository() throws Exception {
+        setup(1);
+        // e.g. left behind by a previous run and not recovered
+        repository.save(new TaskStatusDto("untracked", "img-untracked.jpg",
+                com.example.threadpooldemo.model.TaskStatus.QUEUED, null));
+
+        CompletableFuture<TaskStatusDto> completion = service.awaitCompletion("untracked");
+        Assertions.assertFalse(completion.isDone());
+        repository.updateStatus("untracked", com.example.threadpooldemo.model.TaskStatus.CANCELLED, null);
+        Assertions.assertEquals("CANCELLED", completion.get(2, TimeUnit.SECONDS).getStatus());
+    }
+
+    @Test
+    public void testCancellingTheAwaitStopsPollingTheRepository() throws Exception {
+        setup(1);
+        TaskRepository polled = Mockito.spy(repository);
+        service = new ProcessingService(executor, polled, retryConfig);
+        repository.save(new TaskStatusDto("abandoned", "img-abandoned.jpg",
+                com.example.threadpooldemo.model.TaskStatus.QUEUED, null));
+
+        CompletableFuture<TaskStatusDto> completion = service.awaitCompletion("abandoned");
+        Mockito.verify(polled, Mockito.timeout(2000).atLeast(2)).find("abandoned");
+        completion.cancel(false);
+        Thread.sleep(300);
+        Mockito.clearInvocations(polled);
+        Thread.sleep(600);
+        Mockito.verify(polled, Mockito.never()).find("abandoned");
+    }
+
+    @Test
+    public void testAwaitCompletionOfCancelledRunningTask() throws Exception {
+        setup(1);
+        String id = service.submit(new TaskRequest("img-await-running.jpg", 10));
+        Awaitility.await().atMost(Duration.ofSeconds(2)).until(() ->
+                repository.find(id).getState() == TaskState.RUNNING);
+        CompletableFuture<TaskStatusDto> completion = service.awaitCompletion(id);
+
+        Assertions.assertTrue(service.cancel(id));
+        TaskState state = completion.get(5, TimeUnit.SECONDS).getState();
+        Assertions.assertTrue(state == TaskState.CANCELLED || state == TaskState.INTERRUPTED, state.name());
+        Assertions.assertFalse(service.getRunningTaskIds().contains(id));
+    }
+
+    @Test
+    public void testDroppedTaskIsMarkedAndReleased() throws Exception {
+        executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new java.util.concurrent.LinkedBlockingQueue<>(1),
+                new LoggingRejectedExecutionHandler(OverflowPolicy.DROP_OLDEST));
+        repository = new TaskRepository();
+        retryConfig = Mockito.mock(RetryConfig.class);
+        Mockito.when(retryConfig.getMaxRetryAttempts()).thenReturn(1);
+        service = new ProcessingService(executor, repository, retryConfig);
+
+        service.submit(new TaskRequest("img-drop-busy.jpg", 10));
+        String victim = service.submit(new TaskRequest("img-drop-victim.jpg", 1));
+        CompletableFuture<TaskStatusDto> completion = service.awaitCompletion(victim);
+        String newest = service.submit(new TaskRequest("img-drop-newest.jpg", 1));
+
+        Assertions.assertEquals("DROPPED", repository.find(victim).getStatus());
+        Assertions.assertFalse(service.getRunningTaskIds().contains(victim));
+        Assertions.assertEquals("DROPPED", completion.get(1, TimeUnit.SECONDS).getStatus());
+        Assertions.assertEquals("QUEUED", repository.find(newest).getStatus());
+    }
+
+    @Test
+    public void testAdmissionRejectsBeforeStoringAnything() {
+        executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new java.util.concurrent.LinkedBlockingQueue<>(1),
+                new LoggingRejectedExecutionHandler(OverflowPolicy.REJECT));
+        repository = new TaskRepository();
+        retryConfig = Mockito.mock(RetryConfig.class);
+        Mockito.when(retryConfig.getMaxRetryAttempts()).thenReturn(1);
+        service = new ProcessingService(executor, repository, retryConfig);
+        service.setAdmissionController(new AdmissionController(executor, new SimpleMeterRegistry(), 0, 30,
+                OverflowPolicy.REJECT));
+
+        service.submit(new TaskRequest("img-admit-busy.jpg", 10));
+        service.submit(new TaskRequest("img-admit-queued.jpg", 10));
+
+        AdmissionRejectedException e = Assertions.assertThrows(AdmissionRejectedException.class,
+                () -> service.submit(new TaskRequest("img-admit-rejected.jpg", 1)));
+        Assertions.assertTrue(e.getRetryAfterSeconds() >= 1);
+        Assertions.assertEquals(2, repository.findAll().size());
+    }
+
+    @Test
+    public void testTasksShedByCoDelAreMarkedExpired() throws Exception {
+        com.example.threadpooldemo.config.CoDelQueue queue = new com.example.threadpooldemo.config.CoDelQueue(
+                new java.util.concurrent.LinkedBlockingQueue<>(), 10, 50);
+        executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, queue);
+        repository = new TaskRepository();
+        retryConfig = Mockito.mock(RetryConfig.class);
+        Mockito.when(retryConfig.getMaxRetryAttempts()).thenReturn(1);
+        service = new ProcessingService(executor, repository, retryConfig);
+
+        // complexity 1 takes far longer than the 10ms target, so waits stay above it
+        List<String> ids = new java.util.ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            ids.add(service.submit(new TaskRequest("img-codel-" + i + ".jpg", 1)));
+        }
+        Awaitility.await().atMost(Duration.ofSeconds(20)).until(() -> service.getRunningTaskIds().isEmpty());
+
+        List<String> expired = ids.stream().filter(id -> "EXPIRED".equals(repository.find(id).getStatus()))
+                .collect(Collectors.toList());
+        Assertions.assertFalse(expired.isEmpty());
+        Assertions.assertEquals(expired.size(), queue.getExpiredCount());
+        Assertions.assertTrue(ids.stream().allMatch(id -> repository.find(id).getState().isTerminal()));
+        Assertions.assertEquals("COMPLETED", repository.find(ids.get(0)).getStatus());
+    }
+
+    @Test
+    public void testRunningTaskIsInterruptedAtItsDeadline() throws Exception {
+        setup(1);
+        TaskRequest request = new TaskRequest("img-deadline-running.jpg", 10);
+        request.setTimeoutMillis(500L);
+        String id = service.submit(request);
+        CompletableFuture<TaskStatusDto> completion = service.awaitCompletion(id);
+
+        Assertions.assertEquals("TIMED_OUT", completion.get(5, TimeUnit.SECONDS).getStatus());
+        Assertions.assertFalse(service.getRunningTaskIds().contains(id));
+
+        // the worker is free again
+        String next = service.submit(new TaskRequest("img-deadline-next.jpg", 1));
+        Awaitility.await().atMost(Duration.ofSeconds(5)).until(() ->
+                "COMPLETED".equals(repository.find(next).getStatus()));
+    }
+
+    @Test
+    public void testQueuedTaskPastItsDeadlineIsSkipped() throws Exception {
+        setup(1);
+        String busy = service.submit(new TaskRequest("img-deadline-busy.jpg", 3));
+        TaskRequest request = new TaskRequest("img-deadline-queued.jpg", 1);
+        request.setDeadline(java.time.Instant.now().plusMillis(200));
+        String id = service.submit(request);
+
+        Assertions.assertEquals("TIMED_OUT", service.awaitCompletion(id).get(2, TimeUnit.SECONDS).getStatus());
+        Assertions.assertTrue(executor.getQueue().isEmpty());
+        Assertions.assertNotEquals("COMPLETED", repository.find(busy).getStatus());
+        Awaitility.await().atMost(Duration.ofSeconds(5)).until(() ->
+                "COMPLETED".equals(repository.find(busy).getStatus()));
+    }
+
+    @Test
+    public void testBulkheadPoolIsolatesItsWorkload() throws Exception {
+        GracefulThreadPoolExecutor shared = new GracefulThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS,
+                new java.util.concurrent.LinkedBlockingQueue<>(), r -> new Thread(r, "shared"),
+                new LoggingRejectedExecutionHandler());
+        GracefulThreadPoolExecutor heavy = new GracefulThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS,
+                new java.util.concurrent.LinkedBlockingQueue<>(1), r -> new Thread(r, "heavy"),
+                new LoggingRejectedExecutionHandler(OverflowPolicy.REJECT));
+        BulkheadRegistry.Settings heavySettings = new BulkheadRegistry.Settings();
+        heavySettings.setMinComplexity(5);
+        executor = shared;
+        repository = new TaskRepository();
+        retryConfig = Mockito.mock(RetryConfig.class);
+        Mockito.when(retryConfig.getMaxRetryAttempts()).thenReturn(1);
+        service = new ProcessingService(shared, repository, retryConfig);
+        service.setBulkheadRegistry(new BulkheadRegistry(shared,
+                java.util.Map.of("heavy", new BulkheadRegistry.Pool(heavySettings, heavy))));
+        try {
+            // fill the heavy pool: one running, one queued, the next is turned away
+            service.submit(new TaskRequest("img-heavy-1.jpg", 10));
+            service.submit(new TaskRequest("img-heavy-2.jpg", 10));
+            Assertions.assertThrows(AdmissionRejectedException.class,
+                    () -> service.submit(new TaskRequest("img-heavy-3.jpg", 10)));
+            Assertions.assertEquals(1, heavy.getRejectedCount());
+
+            // light work still runs on the shared pool, also when sent there by name
+            String light = service.submit(new TaskRequest("img-light.jpg", 1));
+            TaskRequest named = new TaskRequest("img-named.jpg", 10);
+            named.setWorkload("default");
+            service.cancel(service.submit(named));
+            Assertions.assertEquals("shared", service.awaitCompletion(light).get(5, TimeUnit.SECONDS).getAssignedThread());
+        } finally {
+            heavy.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFullDropOldestBulkheadDropsInsteadOfRejecting() {
+        GracefulThreadPoolExecutor shared = new GracefulThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS,
+                new java.util.concurrent.LinkedBlockingQueue<>(1), r -> new Thread(r, "shared"),
+                new LoggingRejectedExecutionHandler(OverflowPolicy.REJECT));
+        GracefulThreadPoolExecutor heavy = new GracefulThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS,
+                new java.util.concurrent.LinkedBlockingQueue<>(1), r -> new Thread(r, "heavy"),
+                new LoggingRejectedExecutionHandler(OverflowPolicy.DROP_OLDEST));
+        BulkheadRegistry.Settings heavySettings = new BulkheadRegistry.Settings();
+        heavySettings.setMinComplexity(5);
+        heavySettings.setPolicy(OverflowPolicy.DROP_OLDEST);
+        executor = shared;
+        repository = new TaskRepository();
+        retryConfig = Mockito.mock(RetryConfig.class);
+        Mockito.when(retryConfig.getMaxRetryAttempts()).thenReturn(1);
+        service = new ProcessingService(shared, repository, retryConfig);
+        service.setBulkheadRegistry(new BulkheadRegistry(shared,
+                java.util.Map.of("heavy", new BulkheadRegistry.Pool(heavySettings, heavy))));
+        service.setAdmissionController(new AdmissionController(shared, new SimpleMeterRegistry(), 0, 30,
+                OverflowPolicy.REJECT));
+        try {
+            String running = service.submit(new TaskRequest("img-drop-1.jpg", 10));
+            String queued = service.submit(new TaskRequest("img-drop-2.jpg", 10));
+            String newest = service.submit(new TaskRequest("img-drop-3.jpg", 10));
+
+            Assertions.assertEquals("DROPPED", repository.find(queued).getStatus());
+            Assertions.assertEquals("QUEUED", repository.find(newest).getStatus());
+            Assertions.assertNotEquals("DROPPED", repository.find(running).getStatus());
+        } finally {
+            heavy.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRepeatedIdempotencyKeyDoesNotEnqueueAgain() {
+        setup(1);
+        service.setIdempotencyCache(new IdempotencyCache(repository, Duration.ofMinutes(1), 100));
+        TaskRequest request = new TaskRequest("img-idempotent.jpg", 10);
+        request.setIdempotencyKey("retry-1");
+
+        String id = service.submit(request);
+        Assertions.assertEquals(id, service.submit(request));
+        Assertions.assertEquals(1, repository.findAll().size());
+
+        // batch entries carry their own key: a known key and a repeat within the batch add nothing
+        TaskRequest fresh = new TaskRequest("img-idempotent-batch.jpg", 1);
+        fresh.setIdempotencyKey("retry-2");
+        List<BatchItemResultDto> results = service.submitBatch(List.of(request, fresh, fresh));
+        Assertions.assertEquals(id, results.get(0).getId());
+        Assertions.assertTrue(results.get(1).isAccepted());
+        Assertions.assertEquals(results.get(1).getId(), results.get(2).getId());
+        Assertions.assertEquals(2, repository.findAll().size());
+        Assertions.assertEquals(results.get(1).getId(), service.submit(fresh));
+    }
+
+    @Test
+    public void testBatchWaitsForAConcurrentSubmissionWithTheSameKey() throws Exception {
+        setup(1);
+        IdempotencyCache idempotency = new IdempotencyCache(repository, Duration.ofMinutes(1), 100);
+        service.setIdempotencyCache(idempotency);
+        // a single submission holding the key, not yet finished
+        IdempotencyCache.Claim inFlight = idempotency.claim("shared");
+        TaskRequest request = new TaskRequest("img-idempotent-race.jpg", 1);
+        request.setIdempotencyKey("shared");
+
+        CompletableFuture<List<BatchItemResultDto>> batch =
+                CompletableFuture.supplyAsync(() -> service.submitBatch(List.of(request)));
+        Thread.sleep(100);
+        Assertions.assertFalse(batch.isDone());
+        inFlight.complete("other-task");
+
+        List<BatchItemResultDto> results = batch.get(5, TimeUnit.SECONDS);
+        Assertions.assertEquals("other-task", results.get(0).getId());
+        Assertions.assertTrue(repository.findAll().isEmpty());
+    }
+
+    @Test
+    public void testTaskDuplicatingAKeyClaimedElsewhereIsCancelled() throws Exception {
+        setup(1);
+        TaskRepository shared = Mockito.spy(repository);
+        // another instance recorded the key between the lookup and the insert
+        Mockito.doReturn("remote-task").when(shared).saveIdempotencyKey(Mockito.eq("contended"),
+                Mockito.anyString(), Mockito.any(), Mockito.any());
+        service = new ProcessingService(executor, shared, retryConfig);
+        service.setIdempotencyCache(new IdempotencyCache(shared, Duration.ofMinutes(1), 100));
+        TaskRequest request = new TaskRequest("img-idempotent-contended.jpg", 10);
+        request.setIdempotencyKey("contended");
+
+        Assertions.assertEquals("remote-task", service.submit(request));
+        TaskStatusDto duplicate = repository.findAll().iterator().next();
+        TaskState state = service.awaitCompletion(duplicate.getId()).get(5, TimeUnit.SECONDS).getState();
+        Assertions.assertTrue(state == TaskState.CANCELLED || state == TaskState.INTERRUPTED, state.name());
+    }
+
+    @Test
+    public void testIdenticalTasksShareOneExecutionButKeepTheirOwnIds() throws Exception {
+        setup(2);
+        com.example.threadpooldemo.processor.ResultCache cache =
+                new com.example.threadpooldemo.processor.ResultCache(new SimpleMeterRegistry(), 10);
+        service.setResultCache(cache);
+
+        String first = service.submit(new TaskRequest("img-shared.jpg", 3));
+        String second = service.submit(new TaskRequest("img-shared.jpg", 3));
+        Assertions.assertNotEquals(first, second);
+        TaskStatusDto a = service.awaitCompletion(first).get(5, TimeUnit.SECONDS);
+        TaskStatusDto b = service.awaitCompletion(second).get(5, TimeUnit.SECONDS);
+
+        Assertions.assertEquals("COMPLETED", a.getStatus());
+        Assertions.assertEquals("COMPLETED", b.getStatus());
+        Assertions.assertEquals(1, cache.size());
+        Assertions.assertEquals("COMPLETED", service.awaitCompletion(service.submit(new TaskRequest("img-shared.jpg", 3)))
+                .get(1, TimeUnit.SECONDS).getStatus());
+    }
+
+    @Test
+    public void testBulkCancelByStatusChecksOnlyTrackedTasks() throws Exception {
+        setup(1);
+        TaskRepository tracked = Mockito.spy(repository);
+        service = new ProcessingService(executor, tracked, retryConfig);
+        for (int i = 0; i < 100; i++) {
+            repository.save(new TaskStatusDto("stored-" + i, "img-stored.jpg",
+                    com.example.threadpooldemo.model.TaskStatus.QUEUED, null));
+        }
+        String running = service.submit(new TaskRequest("img-bulk-status-running.jpg", 10));
+        Awaitility.await().atMost(Duration.ofSeconds(5))
+                .until(() -> repository.find(running).getState() == TaskState.RUNNING);
+        String queued = service.submit(new TaskRequest("img-bulk-status-queued.jpg", 10));
+
+        com.example.threadpooldemo.model.CancelFilter byStatus = new com.example.threadpooldemo.model.CancelFilter();
+        byStatus.setStatus("QUEUED");
+        Assertions.assertEquals(List.of(queued), service.cancelAll(byStatus).getCancelled());
+        // stored tasks nobody tracks are neither scanned nor cancelled
+        Mockito.verify(tracked, Mockito.never()).forEach(Mockito.any(), Mockito.any());
+        Mockito.verify(tracked, Mockito.never()).find("stored-0");
+        Assertions.assertEquals("QUEUED", repository.find("stored-0").getStatus());
+        service.cancel(running);
+    }
+
+    @Test
+    public void testTaskWaitingForAnIdenticalExecutionDoesNotHoldAWorker() throws Exception {
+        setup(2);
+        com.example.threadpooldemo.processor.ResultCache cache =
+                new com.example.threadpooldemo.processor.ResultCache(new SimpleMeterRegistry(), 10);
+        service.setResultCache(cache);
+
+        String leader = service.submit(new TaskRequest("img-coalesced.jpg", 10));
+        String follower = service.submit(new TaskRequest("img-coalesced.jpg", 10));
+        String cancelled = service.submit(new TaskRequest("img-coalesced.jpg", 10));
+        String other = service.submit(new TaskRequest("img-coalesced-other.jpg", 1));
+
+        // both waiting tasks gave their worker back, so the unrelated task runs next to the leader
+        Assertions.assertEquals("COMPLETED", service.awaitCompletion(other).get(2, TimeUnit.SECONDS).getStatus());
+        Assertions.assertEquals(TaskState.RUNNING, repository.find(leader).getState());
+        Assertions.assertTrue(service.cancel(cancelled));
+        Assertions.assertEquals("CANCELLED", service.awaitCompletion(cancelled).get(1, TimeUnit.SECONDS).getStatus());
+
+        Assertions.assertEquals("COMPLETED", service.awaitCompletion(leader).get(5, TimeUnit.SECONDS).getStatus());
+        Assertions.assertEquals("COMPLETED", service.awaitCompletion(follower).get(1, TimeUnit.SECONDS).getStatus());
+        Awaitility.await().atMost(Duration.ofSeconds(1)).until(() -> service.getRunningTaskIds().isEmpty());
+    }
+
+    @Test
+    public void testBulkCancelStopsMatchingTasksInOnePass() throws Exception {
+        setup(1);
+        String running = service.submit(new TaskRequest("img-bulk-running.jpg", 10));
+        Awaitility.await().atMost(Duration.ofSeconds(5))
+                .until(() -> repository.find(running).getState() == TaskState.RUNNING);
+        String a1 = service.submit(new TaskRequest("img-bulk-a1.jpg", 10));
+        String a2 = service.submit(new TaskRequest("img-bulk-a2.jpg", 10));
+        String b = service.submit(new TaskRequest("img-bulk-b.jpg", 10));
+
+        com.example.threadpooldemo.model.CancelFilter byPrefix = new com.example.threadpooldemo.model.CancelFilter();
+        byPrefix.setFileNamePrefix("img-bulk-a");
+        com.example.threadpooldemo.dto.BulkCancelResultDto result = service.cancelAll(byPrefix);
+        Assertions.assertEquals(List.of(a1, a2), result.getCancelled());
+        Assertions.assertTrue(result.getCancellationRequested().isEmpty());
+        Assertions.assertEquals(1, executor.getQueue().size());
+
+        com.example.threadpooldemo.model.CancelFilter runningOnly = new com.example.threadpooldemo.model.CancelFilter();
+        runningOnly.setIds(List.of(running, b, "unknown"));
+        runningOnly.setStatus("RUNNING");
+        result = service.cancelAll(runningOnly);
+        Assertions.assertEquals(List.of(running), result.getCancellationRequested());
+        Assertions.assertEquals("QUEUED", repository.find(b).getStatus());
+        TaskState stopped = service.awaitCompletion(running).get(5, TimeUnit.SECONDS).getState();
+        Assertions.assertTrue(stopped == TaskState.CANCELLED || stopped == TaskState.INTERRUPTED, stopped.name());
+
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> service.cancelAll(new com.example.threadpooldemo.model.CancelFilter()));
+    }
+
+    @Test
+    public void testUnfinishedTasksOfAPreviousRunAreReplayedWithinQueueCapacity() throws Exception {
+        setup(1);
+        // one worker and one queue slot: recovery has to wait for room instead of being rejected
+        executor.shutdownNow();
+        executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new com.example.threadpooldemo.config.IndexedTaskQueue(1));
+        service = new ProcessingService(executor, repository, retryConfig);
+
+        // rows as a crashed process leaves them
+        com.example.threadpooldemo.model.TaskSpec spec = new com.example.threadpooldemo.model.TaskSpec(2, 0, null, null);
+        List<String> queued = List.of("3", "4", "5", "6");
+        for (String id : queued) {
+            repository.save(new TaskStatusDto(id, "img-recover-" + id + ".jpg",
+                    com.example.threadpooldemo.model.TaskStatus.QUEUED, null, spec));
+        }
+        repository.save(new TaskStatusDto("7", "img-recover-running.jpg",
+                com.example.threadpooldemo.model.TaskStatus.running(2, 3), "dead-worker", spec));
+        repository.save(new TaskStatusDto("8", "img-recover-cancel.jpg",
+                com.example.threadpooldemo.model.TaskStatus.CANCELLATION_REQUESTED, null, spec));
+        repository.save(new TaskStatusDto("9", "img-recover-unknown.jpg",
+                com.example.threadpooldemo.model.TaskStatus.QUEUED, null));
+        repository.save(new TaskStatusDto("10", "img-recover-done.jpg",
+                com.example.threadpooldemo.model.TaskStatus.COMPLETED, "worker", spec));
+
+        Assertions.assertEquals(5, service.recoverUnfinished(2, 20).get(10, TimeUnit.SECONDS));
+        for (String id : List.of("3", "4", "5", "6", "7")) {
+            Awaitility.await().atMost(Duration.ofSeconds(5))
+                    .until(() -> repository.find(id).getState() == TaskState.COMPLETED);
+        }
+        Assertions.assertEquals("CANCELLED", repository.find("8").getStatus());
+        Assertions.assertEquals("FAILED_PERMANENTLY", repository.find("9").getStatus());
+        Assertions.assertEquals("COMPLETED", repository.find("10").getStatus());
+        // new ids continue after the stored ones
+        Assertions.assertEquals("11", service.submit(new TaskRequest("img-after-restart.jpg", 1)));
+    }
 }
@@ -0,0 +1,173 @@
+package com.example.threadpooldemo.service;
+
+import com.example.threadpooldemo.dto.TaskStatusDto;
+import com.example.threadpooldemo.model.TaskState;
+import com.example.threadpooldemo.model.TaskStatus;
+import com.example.threadpooldemo.repository.PublishingTaskRepository;
+import com.example.threadpooldemo.repository.TaskRepository;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+public class TaskEventBroadcasterTest {
+
+    private TaskEventBroadcaster broadcaster;
+
+    @AfterEach
+    public void tearDown() {
+        broadcaster.shutdown();
+    }
+
+    /**
+     * Records the text of every event instead of writing it to a response, optionally
+     * blocking until released to play a slow client.
+     */
+    private static class RecordingEmitter extends SseEmitter {
+        final List<String> events = new CopyOnWriteArrayList<>();
+        final CountDownLatch release;
+
+        RecordingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            events.add(builder.build().stream()
+                    .map(ResponseBodyEmitter.DataWithMediaType::getData)
+                    .map(String::valueOf)
+                    .collect(Collectors.joining()));
+        }
+
+        List<String> named(String name) {
+            return events.stream().filter(e -> e.contains("event:" + name + "\n")).collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    public void transitionsArePublishedThroughTheRepositoryAndFiltered() {
+        broadcaster = new TaskEventBroadcaster();
+        TaskRepository store = new TaskRepository();
+        PublishingTaskRepository repository = new PublishingTaskRepository(store, broadcaster);
+        repository.save(new TaskStatusDto("1", "a.jpg", TaskStatus.QUEUED, null));
+        repository.save(new TaskStatusDto("2", "b.jpg", TaskStatus.QUEUED, null));
+
+        RecordingEmitter all = new RecordingEmitter(new CountDownLatch(0));
+        RecordingEmitter completedOfTwo = new RecordingEmitter(new CountDownLatch(0));
+        broadcaster.subscribe(all, null, null, repository::find);
+        broadcaster.subscribe(completedOfTwo, Set.of("2"), TaskState.COMPLETED, repository::find);
+
+        repository.updateStatus("1", TaskStatus.running(1, 1), "w1");
+        repository.updateStatus("2", TaskStatus.running(1, 1), "w2");
+        repository.compareAndUpdateStatus("2", TaskStatus.running(1, 1), TaskStatus.COMPLETED, "w2");
+        // refused: illegal transition and lost compare
+        Assertions.assertFalse(repository.updateStatus("2", TaskStatus.QUEUED, "w2"));
+        Assertions.assertFalse(repository.compareAndUpdateStatus("1", TaskStatus.QUEUED, TaskStatus.CANCELLED, null));
+
+        Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> all.named("status").size() == 3);
+        Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> completedOfTwo.named("status").size() == 1);
+        Assertions.assertTrue(completedOfTwo.events.get(0).contains("id='2', status='COMPLETED'"));
+        Assertions.assertEquals(3, all.named("status").size());
+    }
+
+    @Test
+    public void idSubscriptionStartsWithCurrentStatus() {
+        broadcaster = new TaskEventBroadcaster();
+        TaskRepository store = new TaskRepository();
+        store.save(new TaskStatusDto("7", "c.jpg", TaskStatus.QUEUED, null));
+
+        RecordingEmitter emitter = new RecordingEmitter(new CountDownLatch(0));
+        broadcaster.subscribe(emitter, Set.of("7", "missing"), null, store::find);
+
+        Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> emitter.named("status").size() == 1);
+        Assertions.assertTrue(emitter.events.get(0).contains("id='7', status='QUEUED'"));
+    }
+
+    @Test
+    public void slowSubscriberDoesNotBlockPublisherAndIsToldAboutDrops() {
+        broadcaster = new TaskEventBroadcaster(4, 60_000);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter slow = new RecordingEmitter(release);
+        RecordingEmitter other = new RecordingEmitter(new CountDownLatch(0));
+        broadcaster.subscribe(slow, null, null, id -> null);
+        broadcaster.subscribe(other, null, null, id -> null);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            broadcaster.onTransition(String.valueOf(i), TaskStatus.running(1, 1), "w");
+        }
+        Assertions.assertTrue(System.nanoTime() - start < 1_000_000_000L, "publishing must not wait for the slow client");
+        // the other subscriber is served while the slow one is stuck
+        Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> accountedFor(other) == 100);
+        Assertions.assertTrue(slow.events.isEmpty());
+
+        release.countDown();
+        Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> accountedFor(slow) == 100);
+        // one event was already taken by the blocked sender, the buffer held the next four
+        Assertions.assertTrue(slow.named("status").size() <= 5, "delivered " + slow.named("status").size());
+        Assertions.assertFalse(slow.named("dropped").isEmpty());
+    }
+
+    @Test
+    public void manySubscribersShareABoundedSenderPool() {
+        broadcaster = new TaskEventBroadcaster(256, 60_000, 2);
+        List<RecordingEmitter> emitters = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            RecordingEmitter emitter = new RecordingEmitter(new CountDownLatch(0));
+            broadcaster.subscribe(emitter, null, null, id -> null);
+            emitters.add(emitter);
+        }
+
+        for (int i = 0; i < 10; i++) {
+            broadcaster.onTransition(String.valueOf(i), TaskStatus.running(1, 1), "w");
+        }
+
+        Awaitility.await().atMost(Duration.ofSeconds(2))
+                .until(() -> emitters.stream().allMatch(e -> e.named("status").size() == 10));
+        Assertions.assertTrue(broadcaster.getSenderThreadCount() <= 2, "threads " + broadcaster.getSenderThreadCount());
+    }
+
+    /**
+     * Events delivered plus events reported as dropped.
+     */
+    private static long accountedFor(RecordingEmitter emitter) {
+        long dropped = emitter.named("dropped").stream()
+                .mapToLong(e -> Long.parseLong(e.replaceAll("(?s).*data:(\\d+).*", "$1")))
+                .sum();
+        return emitter.named("status").size() + dropped;
+    }
+
+    @Test
+    public void disconnectedSubscriberIsRemoved() {
+        broadcaster = new TaskEventBroadcaster();
+        SseEmitter broken = new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+        broadcaster.subscribe(broken, null, null, id -> null);
+        Assertions.assertEquals(1, broadcaster.getSubscriberCount());
+
+        broadcaster.onTransition("1", TaskStatus.running(1, 1), "w");
+        Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> broadcaster.getSubscriberCount() == 0);
+    }
+}